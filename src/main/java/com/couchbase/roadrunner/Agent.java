@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Agent runs a workload on behalf of a {@link Coordinator}.
+ *
+ * It connects to the coordinator, receives the command line arguments of the
+ * run and connects to the cluster. Once every agent is connected, all of them
+ * start at the same time given by the coordinator. While running, the agent
+ * sends the histograms of each interval (with --report-interval) and, at the
+ * end, the summary of its run.
+ *
+ * Frames sent to the coordinator start with a frame type byte:
+ * {@link #FRAME_READY}, {@link #FRAME_INTERVAL} (phase, start, end, ops and
+ * histograms), {@link #FRAME_RESULTS} (a {@link RunSummary}) or
+ * {@link #FRAME_FAILED} (an error message).
+ */
+final class Agent {
+
+  /** Configure a reusable logger. */
+  static final Logger LOGGER = LoggerFactory.getLogger(Agent.class.getName());
+
+  static final byte FRAME_READY = 1;
+  static final byte FRAME_INTERVAL = 2;
+  static final byte FRAME_RESULTS = 3;
+  static final byte FRAME_FAILED = 4;
+
+  /** Host of the coordinator. */
+  private final String host;
+
+  /** Port of the coordinator. */
+  private final int port;
+
+  private DataOutputStream out;
+
+  /**
+   * Create the Agent.
+   *
+   * @param address Address of the coordinator, as HOST:PORT.
+   */
+  public Agent(final String address) {
+    int separator = address.lastIndexOf(':');
+    if (separator <= 0) {
+      throw new IllegalArgumentException("The coordinator address must be "
+        + "HOST:PORT, got: " + address);
+    }
+    this.host = address.substring(0, separator);
+    this.port = Integer.parseInt(address.substring(separator + 1));
+  }
+
+  /**
+   * Connect to the coordinator and run the workload it sends.
+   *
+   * @throws Exception if the workload could not be run.
+   */
+  public void run() throws Exception {
+    LOGGER.info("Connecting to the coordinator at " + host + ":" + port);
+    try (Socket socket = new Socket(host, port)) {
+      socket.setTcpNoDelay(true);
+      DataInputStream in = new DataInputStream(
+        new BufferedInputStream(socket.getInputStream()));
+      out = new DataOutputStream(
+        new BufferedOutputStream(socket.getOutputStream()));
+
+      String[] args = new String[in.readInt()];
+      for (int i = 0; i < args.length; i++) {
+        args[i] = in.readUTF();
+      }
+      try {
+        GlobalConfig config =
+          GlobalConfig.fromCommandLine(RoadRunner.parseCommandLine(args));
+        LOGGER.info("Running with Config: " + config.toString());
+        WorkloadDispatcher dispatcher = new WorkloadDispatcher(config);
+        dispatcher.setIntervalListener(this::sendInterval);
+        dispatcher.init();
+        sendFrame(FRAME_READY);
+
+        long wait = in.readLong() - System.currentTimeMillis();
+        if (wait > 0) {
+          Thread.sleep(wait);
+        } else {
+          LOGGER.warn("Start time passed " + -wait + "ms ago, starting right "
+            + "away. Are the clocks of the hosts in sync?");
+        }
+
+        LOGGER.info("Running Workload.");
+        dispatcher.dispatchWorkload();
+        dispatcher.prepareMeasures();
+        sendResults(RunSummary.of(dispatcher));
+        LOGGER.info("Finished Workload, results sent to the coordinator.");
+      } catch (Exception ex) {
+        sendFailure(ex);
+        throw ex;
+      }
+    }
+  }
+
+  private synchronized void sendFrame(byte frame) throws IOException {
+    out.writeByte(frame);
+    out.flush();
+  }
+
+  private synchronized void sendInterval(int phase, long start, long end,
+    long ops, Map<String, Histogram> measures) throws IOException {
+    out.writeByte(FRAME_INTERVAL);
+    out.writeInt(phase);
+    out.writeLong(start);
+    out.writeLong(end);
+    out.writeLong(ops);
+    RunSummary.writeHistograms(out, measures);
+    out.flush();
+  }
+
+  private synchronized void sendResults(RunSummary summary)
+    throws IOException {
+    out.writeByte(FRAME_RESULTS);
+    summary.writeTo(out);
+    out.flush();
+  }
+
+  private synchronized void sendFailure(Exception ex) {
+    try {
+      out.writeByte(FRAME_FAILED);
+      out.writeUTF(String.valueOf(ex));
+      out.flush();
+    } catch (IOException sendEx) {
+      LOGGER.warn("Could not report the failure to the coordinator: ", sendEx);
+    }
+  }
+}
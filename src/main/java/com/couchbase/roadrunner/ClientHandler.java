@@ -22,19 +22,25 @@
 
 package com.couchbase.roadrunner;
 
-import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.HdrHistogram.Histogram;
+
 import com.couchbase.client.java.Bucket;
 import com.couchbase.client.java.Cluster;
+import com.couchbase.roadrunner.workloads.Measures;
+import com.couchbase.roadrunner.workloads.OpCounters;
 import com.couchbase.roadrunner.workloads.Workload;
-import com.couchbase.roadrunner.workloads.Workload.DocumentFactory;
+import com.couchbase.roadrunner.workloads.WorkloadContext;
+import com.couchbase.roadrunner.workloads.WorkloadProvider;
 import com.google.common.base.Stopwatch;
 
 /**
@@ -55,26 +61,29 @@ class ClientHandler {
   /** The identifier of this ClientHandler. */
   private final String id;
 
-  /** Number of documents to perform against in this handler. */
-  private final long numDocs;
+  /** The index of this ClientHandler, starting at 0. */
+  private final int index;
 
   /** List of deployed workloads. */
   private List<Workload> workloads;
 
-  /** Used to store the merged measures after runs. */
-  private Map<String, List<Stopwatch>> mergedMeasures;
+  /** Measures of the deployed workloads. */
+  private List<Measures> measures;
+
+  /** Completion of the deployed workloads. */
+  private List<Future<?>> completions;
 
   /**
    * Initialize the ClientHandler object.
    *
    * @param config the global configuration object.
+   * @param index the index of this ClientHandler, starting at 0.
    */
-  public ClientHandler(final GlobalConfig config, final Cluster cluster, final String id,
-    final long numDocs)
+  public ClientHandler(final GlobalConfig config, final Cluster cluster, final int index)
     throws Exception {
     this.config = config;
-    this.id = id;
-    this.numDocs = numDocs;
+    this.index = index;
+    this.id = "ClientHandler-" + (index + 1);
     //open the bucket asynchronously and then wait for it
     this.client = cluster.openBucket(config.getBucket(), config.getPassword()).toBlocking().single();
     this.executor = new ThreadPoolExecutor(
@@ -85,70 +94,109 @@ class ClientHandler {
       new ArrayBlockingQueue<Runnable>(config.getNumThreads(), true),
       new ThreadPoolExecutor.CallerRunsPolicy()
     );
-    this.workloads = new ArrayList<Workload>();
-    this.mergedMeasures = new HashMap<String, List<Stopwatch>>();
+    this.workloads = new CopyOnWriteArrayList<Workload>();
+    this.measures = new CopyOnWriteArrayList<Measures>();
+    this.completions = new ArrayList<Future<?>>();
   }
 
   /**
    * Execute the given workload against the workers.
    *
-   * @param clazz the Workload class name.
+   * Replaces the workloads executed before, which must have completed.
+   *
+   * @param provider the provider of the workload.
+   * @param context the context with the settings shared by all workloads,
+   *   completed here with the ones of each workload.
+   * @param docs the number of documents, split across the ClientHandlers
+   *   running the workload (in all partitions), or Long.MAX_VALUE to run
+   *   until the deadline.
+   * @param clients the number of ClientHandlers running the workload, the
+   *   ones with the lowest indexes.
    * @throws Exception
    */
-  public void executeWorkload(Class<? extends Workload> clazz, DocumentFactory documentFactory) throws Exception {
-    long docsPerThread =  (long)Math.floor(numDocs/config.getNumThreads());
-    Constructor<? extends Workload> constructor = clazz.getConstructor(
-      Bucket.class, String.class, long.class, int.class, int.class,
-      int.class, DocumentFactory.class);
+  public void executeWorkload(WorkloadProvider provider,
+    WorkloadContext.Builder context, long docs, int clients) throws Exception {
+    reset();
+    // threads of all the processes sharing the work, see --partition
+    int processThreads = clients * config.getNumThreads();
+    int threads = config.getPartitionCount() * processThreads;
     for(int i=0;i<config.getNumThreads();i++) {
-     Workload workload = constructor.newInstance(this.client,
-       this.id + "/Workload-" + (i+1), docsPerThread, config.getRatio(),
-       config.getSampling(), config.getRamp(), documentFactory);
+      int thread = config.getPartitionIndex() * processThreads
+        + index * config.getNumThreads() + i;
+      long docsPerThread = docs == Long.MAX_VALUE
+        ? docs : docs / threads + (thread < docs % threads ? 1 : 0);
+      Measures workloadMeasures = new Measures(context.isScheduled());
+      Workload workload = provider.create(context
+        .bucket(this.client)
+        .name(this.id + "/Workload-" + (i+1))
+        .amount(docsPerThread)
+        .thread(thread, threads)
+        .metricsSink(workloadMeasures)
+        .build());
       workloads.add(workload);
-      executor.execute(workload);
+      measures.add(workloadMeasures);
+      completions.add(executor.submit(workload));
+    }
+  }
+
+  /**
+   * Forget the workloads executed before, which must have completed, for
+   * example because this ClientHandler does not run the next one.
+   */
+  public void reset() {
+    workloads.clear();
+    measures.clear();
+    completions.clear();
+  }
+
+  /**
+   * Wait for the workloads to complete.
+   *
+   * @throws Exception if a workload failed.
+   */
+  public void awaitCompletion() throws Exception {
+    for (Future<?> completion : completions) {
+      completion.get();
     }
   }
 
   /**
-   * Cleanup after workload execution and store the measures.
+   * Cleanup after workload execution.
    *
    * @throws Exception
    */
   public void cleanup() throws Exception {
-    while (true) {
-      if (executor.getActiveCount() == 0) {
-        executor.shutdown();
-        break;
-      }
-    }
+    awaitCompletion();
+    executor.shutdown();
     executor.awaitTermination(1, TimeUnit.MINUTES);
-    storeMeasures();
     //close bucket and wait for it to close
     this.client.close().toBlocking().single();
   }
 
   /**
-   * Aggregate and store the calculated measurements.
+   * Returns the measures of the last executed workloads, aggregated.
+   * @return the measures.
    */
-  private void storeMeasures() {
-    for(Workload workload : workloads) {
-      Map<String, List<Stopwatch>> measures = workload.getMeasures();
-      for (Map.Entry<String, List<Stopwatch>> entry : measures.entrySet()) {
-        if(mergedMeasures.containsKey(entry.getKey())) {
-          mergedMeasures.get(entry.getKey()).addAll(entry.getValue());
-        } else {
-          mergedMeasures.put(entry.getKey(), entry.getValue());
-        }
-      }
+  public Map<String, Histogram> getMeasures() {
+    Map<String, Histogram> merged = new HashMap<String, Histogram>();
+    for(Measures workloadMeasures : measures) {
+      Measures.merge(merged, workloadMeasures.getHistograms());
     }
+    return merged;
   }
 
   /**
-   * Returns the aggregated measures.
-   * @return the measures.
+   * Returns the measures stored since the last call, merged across the
+   * workloads.
+   *
+   * @return the interval measures.
    */
-  public Map<String, List<Stopwatch>> getMeasures() {
-    return mergedMeasures;
+  public Map<String, Histogram> getIntervalMeasures() {
+    Map<String, Histogram> merged = new HashMap<String, Histogram>();
+    for (Measures workloadMeasures : measures) {
+      Measures.merge(merged, workloadMeasures.getIntervalHistograms());
+    }
+    return merged;
   }
 
   public long getTotalOps() {
@@ -159,6 +207,19 @@ class ClientHandler {
     return totalOps;
   }
 
+  /**
+   * Returns the op counts of the last executed workloads, aggregated.
+   *
+   * @return the counts by op identifier, indexed by outcome ordinal.
+   */
+  public Map<String, long[]> getOpCounts() {
+    Map<String, long[]> merged = new HashMap<String, long[]>();
+    for (Workload workload : workloads) {
+      OpCounters.merge(merged, workload.getOpCounters().getCounts());
+    }
+    return merged;
+  }
+
   public long getMeasuredOps() {
     long measuredOps = 0;
     for(Workload workload : workloads) {
@@ -0,0 +1,375 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.HdrHistogram.Histogram;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.couchbase.roadrunner.workloads.Measures;
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * The Coordinator runs a workload on several {@link Agent}s at once, for
+ * example on several hosts, and merges their results.
+ *
+ * It waits for the given number of agents to connect and sends each one the
+ * command line arguments of the run. Once every agent is connected to the
+ * cluster, it sends all of them the same start time, shortly ahead. The start
+ * time is wall-clock time, so the clocks of the hosts should be kept in sync
+ * (for example with NTP).
+ *
+ * The histograms the agents send are added up, so the merged percentiles are
+ * the true percentiles across all agents, not an average of them. Intervals
+ * are matched by the phase of the run they belong to and their index in it
+ * (see {@link IntervalReporter}), as the agents may end a phase at different
+ * times. An interval is reported once every agent has sent it, or moved on
+ * past it because its phase had fewer intervals there.
+ */
+final class Coordinator {
+
+  /** Configure a reusable logger. */
+  static final Logger LOGGER =
+    LoggerFactory.getLogger(Coordinator.class.getName());
+
+  public static final String DEFAULT_AGENTS = "1";
+
+  /** Time between the last agent being ready and the start of the run. */
+  static final long START_DELAY_MS = 1000;
+
+  /** Port to wait for the agents on. */
+  private final int port;
+
+  /** Number of agents to wait for. */
+  private final int agents;
+
+  /** Command line arguments to run each agent with. */
+  private final List<String[]> args;
+
+  /** The intervals not yet reported, by key (see {@link #intervalKey}). */
+  private final Map<Long, Interval> intervals;
+
+  /** Key of the last interval of each agent, Long.MAX_VALUE once done. */
+  private final long[] lastKeys;
+
+  /** Receives the merged measures of each interval, may be null. */
+  private final IntervalReporter.Listener intervalListener;
+
+  /**
+   * Create the Coordinator.
+   *
+   * @param port Port to wait for the agents on.
+   * @param agents Number of agents to wait for.
+   * @param params The command line of the coordinator, to build the ones of
+   *   the agents from.
+   * @param intervalListener Receives the merged measures of each interval,
+   *   or null.
+   */
+  public Coordinator(final int port, final int agents,
+    final CommandLine params, final IntervalReporter.Listener intervalListener) {
+    if (agents < 1) {
+      throw new IllegalArgumentException("At least one agent is needed.");
+    }
+    this.port = port;
+    this.agents = agents;
+    this.args = new ArrayList<String[]>();
+    for (int i = 0; i < agents; i++) {
+      args.add(agentArguments(params, i, agents));
+    }
+    this.intervals = new TreeMap<Long, Interval>();
+    this.lastKeys = new long[agents];
+    Arrays.fill(lastKeys, -1);
+    this.intervalListener = intervalListener;
+  }
+
+  /**
+   * Run the workload on the agents.
+   *
+   * @return the results of all agents, merged.
+   * @throws IOException if an agent failed or could not be talked to.
+   * @throws InterruptedException if interrupted while waiting for the agents.
+   */
+  public RunSummary run() throws IOException, InterruptedException {
+    List<Socket> sockets = new ArrayList<Socket>();
+    try {
+      try (ServerSocket server = new ServerSocket(port)) {
+        LOGGER.info("Waiting for " + agents + " agent(s) on port "
+          + server.getLocalPort() + ".");
+        while (sockets.size() < agents) {
+          Socket socket = server.accept();
+          socket.setTcpNoDelay(true);
+          sockets.add(socket);
+          LOGGER.info("Agent " + sockets.size() + " connected from "
+            + socket.getRemoteSocketAddress());
+        }
+      }
+
+      List<DataInputStream> ins = new ArrayList<DataInputStream>();
+      List<DataOutputStream> outs = new ArrayList<DataOutputStream>();
+      for (int i = 0; i < agents; i++) {
+        Socket socket = sockets.get(i);
+        ins.add(new DataInputStream(
+          new BufferedInputStream(socket.getInputStream())));
+        DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(args.get(i).length);
+        for (String arg : args.get(i)) {
+          out.writeUTF(arg);
+        }
+        out.flush();
+        outs.add(out);
+      }
+
+      for (int i = 0; i < agents; i++) {
+        byte frame = ins.get(i).readByte();
+        if (frame != Agent.FRAME_READY) {
+          throw unexpected(i, frame, ins.get(i));
+        }
+      }
+      long startTime = System.currentTimeMillis() + START_DELAY_MS;
+      for (DataOutputStream out : outs) {
+        out.writeLong(startTime);
+        out.flush();
+      }
+      LOGGER.info("Running Workload on " + agents + " agent(s).");
+
+      ExecutorService executor = Executors.newFixedThreadPool(agents);
+      List<Future<RunSummary>> results = new ArrayList<Future<RunSummary>>();
+      for (int i = 0; i < agents; i++) {
+        final int agent = i;
+        final DataInputStream in = ins.get(i);
+        results.add(executor.submit(new Callable<RunSummary>() {
+          @Override
+          public RunSummary call() throws IOException {
+            return receive(agent, in);
+          }
+        }));
+      }
+      executor.shutdown();
+
+      RunSummary merged = new RunSummary();
+      for (Future<RunSummary> result : results) {
+        try {
+          merged.merge(result.get());
+        } catch (ExecutionException ex) {
+          executor.shutdownNow();
+          if (ex.getCause() instanceof IOException) {
+            throw (IOException) ex.getCause();
+          }
+          throw new IOException(ex.getCause());
+        }
+      }
+      return merged;
+    } finally {
+      for (Socket socket : sockets) {
+        socket.close();
+      }
+    }
+  }
+
+  /**
+   * Receive the frames of an agent until it sends its results.
+   */
+  @VisibleForTesting
+  RunSummary receive(int agent, DataInputStream in) throws IOException {
+    int phase = 0;
+    int index = -1;
+    while (true) {
+      byte frame = in.readByte();
+      if (frame == Agent.FRAME_RESULTS) {
+        RunSummary summary = RunSummary.readFrom(in);
+        addLastKey(agent, Long.MAX_VALUE);
+        return summary;
+      } else if (frame != Agent.FRAME_INTERVAL) {
+        throw unexpected(agent, frame, in);
+      }
+      int intervalPhase = in.readInt();
+      index = intervalPhase == phase ? index + 1 : 0;
+      phase = intervalPhase;
+      long start = in.readLong();
+      long end = in.readLong();
+      long ops = in.readLong();
+      addInterval(agent, phase, index, start, end, ops,
+        RunSummary.readHistograms(in));
+    }
+  }
+
+  /**
+   * @return the key of an interval, ordering the intervals by phase, then
+   *   by index in the phase.
+   */
+  private static long intervalKey(int phase, int index) {
+    return ((long) phase << 32) | index;
+  }
+
+  private IOException unexpected(int agent, byte frame, DataInputStream in)
+    throws IOException {
+    if (frame == Agent.FRAME_FAILED) {
+      return new IOException("Agent " + (agent + 1) + " failed: "
+        + in.readUTF());
+    }
+    return new IOException("Unexpected frame " + frame + " from agent "
+      + (agent + 1));
+  }
+
+  private synchronized void addInterval(int agent, int phase, int index,
+    long start, long end, long ops, Map<String, Histogram> measures)
+    throws IOException {
+    long key = intervalKey(phase, index);
+    Interval interval = intervals.get(key);
+    if (interval == null) {
+      interval = new Interval(phase, index);
+      intervals.put(key, interval);
+    }
+    interval.start = interval.agents == 0
+      ? start : Math.min(interval.start, start);
+    interval.end = Math.max(interval.end, end);
+    interval.agents++;
+    interval.ops += ops;
+    Measures.merge(interval.measures, measures);
+    addLastKey(agent, key);
+  }
+
+  /**
+   * Record the last interval an agent sent, then report the intervals every
+   * agent has sent or moved past, in order.
+   */
+  private synchronized void addLastKey(int agent, long key)
+    throws IOException {
+    lastKeys[agent] = key;
+    long reported = Long.MAX_VALUE;
+    for (long lastKey : lastKeys) {
+      reported = Math.min(reported, lastKey);
+    }
+    Iterator<Map.Entry<Long, Interval>> pending =
+      intervals.entrySet().iterator();
+    while (pending.hasNext()) {
+      Map.Entry<Long, Interval> entry = pending.next();
+      if (entry.getKey() > reported) {
+        break;
+      }
+      pending.remove();
+      report(entry.getValue());
+    }
+  }
+
+  private void report(Interval interval) throws IOException {
+    double seconds = Math.max(interval.end - interval.start, 1) / 1000.0;
+    LOGGER.info("Interval " + (interval.index + 1) + " of phase "
+      + (interval.phase + 1) + " of " + interval.agents + " agent(s): "
+      + Math.round(interval.ops / seconds) + " ops/s");
+    IntervalReporter.logMeasures(interval.measures, seconds);
+    if (intervalListener != null) {
+      intervalListener.interval(interval.phase, interval.start, interval.end,
+        interval.ops, interval.measures);
+    }
+  }
+
+  /**
+   * Build the command line arguments to run an agent with, out of the
+   * coordinator's own, leaving out the coordinator options and the reports
+   * and histogram log, which the coordinator writes itself.
+   *
+   * The work is split across the agents: each one gets its share of the
+   * --rate, the first ones the remainder, and its --partition of
+   * --num-docs and of the documents to load.
+   *
+   * @param params The command line of the coordinator.
+   * @param agent Index of the agent.
+   * @param agents Number of agents.
+   * @return the command line arguments for the agent.
+   */
+  static String[] agentArguments(final CommandLine params, final int agent,
+    final int agents) {
+    List<String> args = new ArrayList<String>();
+    for (Option option : params.getOptions()) {
+      String name = option.getLongOpt();
+      if (name.equals(RoadRunner.OPT_COORDINATOR)
+        || name.equals(RoadRunner.OPT_AGENTS)
+        || name.equals(RoadRunner.OPT_REPORT)
+        || name.equals(RoadRunner.OPT_REPORT_CSV)
+        || name.equals(RoadRunner.OPT_HISTOGRAM_LOG)
+        || name.equals(RoadRunner.OPT_RATE)
+        || name.equals(RoadRunner.OPT_PARTITION)) {
+        continue;
+      }
+      args.add("--" + name);
+      if (option.hasArg()) {
+        args.add(option.getValue());
+      }
+    }
+
+    long rate = Long.parseLong(params.getOptionValue(RoadRunner.OPT_RATE,
+      GlobalConfig.DEFAULT_RATE));
+    if (rate > 0) {
+      if (rate < agents) {
+        throw new IllegalArgumentException("The rate of " + rate + " ops/s "
+          + "can not be split across " + agents + " agents.");
+      }
+      args.add("--" + RoadRunner.OPT_RATE);
+      args.add(String.valueOf(rate / agents + (agent < rate % agents ? 1 : 0)));
+    }
+    args.add("--" + RoadRunner.OPT_PARTITION);
+    args.add(agent + "/" + agents);
+    return args.toArray(new String[args.size()]);
+  }
+
+  /**
+   * An interval, merged across the agents which sent it so far.
+   */
+  private static final class Interval {
+    final int phase;
+    final int index;
+    int agents;
+    long start;
+    long end;
+    long ops;
+    final Map<String, Histogram> measures = new TreeMap<String, Histogram>();
+
+    Interval(int phase, int index) {
+      this.phase = phase;
+      this.index = index;
+    }
+  }
+}
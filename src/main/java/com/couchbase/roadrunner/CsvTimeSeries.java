@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Writes the measures of each interval as a CSV time series.
+ *
+ * Each interval gets a "total" row with the throughput of all ops, followed
+ * by one row per op type with its throughput and latency percentiles in
+ * microseconds. Start and end are epoch millis.
+ */
+final class CsvTimeSeries implements IntervalReporter.Listener, Closeable {
+
+  static final String HEADER =
+    "start,end,op,count,ops_per_sec,p50,p90,p99,p99.9,max";
+
+  /** The op name of the row with the throughput of all ops. */
+  static final String TOTAL = "total";
+
+  private final PrintStream out;
+
+  /**
+   * Create the CsvTimeSeries, writing the header right away.
+   *
+   * @param file The file to write to.
+   * @throws FileNotFoundException if the file can not be created.
+   */
+  public CsvTimeSeries(final String file) throws FileNotFoundException {
+    this.out = new PrintStream(file);
+    out.println(HEADER);
+  }
+
+  @Override
+  public synchronized void interval(final int phase, final long start,
+    final long end, final long ops, final Map<String, Histogram> measures) {
+    double seconds = Math.max(end - start, 1) / 1000.0;
+    out.println(start + "," + end + "," + TOTAL + "," + ops + ","
+      + Math.round(ops / seconds) + ",,,,,");
+    for (Map.Entry<String, Histogram> entry : measures.entrySet()) {
+      Histogram h = entry.getValue();
+      out.println(start + "," + end + "," + entry.getKey() + ","
+        + h.getTotalCount() + "," + Math.round(h.getTotalCount() / seconds)
+        + "," + h.getValueAtPercentile(50) + "," + h.getValueAtPercentile(90)
+        + "," + h.getValueAtPercentile(99) + ","
+        + h.getValueAtPercentile(99.9) + "," + h.getMaxValue());
+    }
+    out.flush();
+  }
+
+  @Override
+  public synchronized void close() {
+    out.close();
+  }
+}
@@ -24,7 +24,9 @@ package com.couchbase.roadrunner;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.cli.CommandLine;
 import org.slf4j.Logger;
@@ -53,6 +55,34 @@ final  class GlobalConfig {
   public static final String DEFAULT_WORKLOAD = "getset";
   public static final String DEFAULT_RAMP = "0";
   public static final String DEFAULT_SIZE = "1000";
+  public static final String DEFAULT_RATE = "0";
+  public static final String DEFAULT_DURATION = "0";
+  public static final String DEFAULT_REPORT_INTERVAL = "10";
+  public static final String DEFAULT_MAX_IN_FLIGHT = "0";
+  public static final String DEFAULT_KEY_SPACE = "0";
+  public static final String DEFAULT_KEY_DISTRIBUTION = "uniform";
+  public static final String DEFAULT_ZIPF_THETA = "0.99";
+  public static final String DEFAULT_HOTSPOT_FRACTION = "0.2";
+  public static final String DEFAULT_HOTSPOT_OPS = "0.8";
+  public static final String DEFAULT_PHASE = "run";
+  public static final String DEFAULT_MIX = "get:70,upsert:20,counter:5,touch:5";
+  public static final String DEFAULT_PAYLOAD_POOL = "64";
+  public static final String DEFAULT_DOCUMENT_MODE = "legacy";
+  public static final String BINARY_DOCUMENT_MODE = "binary";
+  public static final String DEFAULT_JSON_VARIANTS = "4096";
+  public static final String DEFAULT_SIZE_DISTRIBUTION = "fixed";
+  public static final String DEFAULT_DATASET_ORDER = "random";
+  public static final String DEFAULT_KEY_PREFIX = "key_";
+  public static final String DEFAULT_KEY_LENGTH = "0";
+  public static final String DEFAULT_ERROR_SAMPLES = "5";
+  public static final String DEFAULT_BATCH_SIZE = "20";
+  public static final String DEFAULT_BATCH_CONCURRENCY = "0";
+  public static final String DEFAULT_ENGINE = "async";
+  public static final String DEFAULT_IO_POOL_SIZE = "0";
+  public static final String DEFAULT_PARTITION = "0/1";
+  public static final String DEFAULT_COMPUTATION_POOL_SIZE = "0";
+  public static final String DEFAULT_REQUEST_BUFFER_SIZE = "0";
+  public static final String DEFAULT_OP_TIMEOUT = "2500";
 
   private final List<String> nodes;
   private final String bucket;
@@ -66,6 +96,42 @@ final  class GlobalConfig {
   private final int ramp;
   private final int size;
   private final String filename;
+  private final long rate;
+  private final long duration;
+  private final int reportInterval;
+  private final String histogramLog;
+  private final String report;
+  private final String reportCsv;
+  private final int maxInFlight;
+  private final long keySpace;
+  private final String keyDistribution;
+  private final double zipfTheta;
+  private final double hotspotFraction;
+  private final double hotspotOps;
+  private final String phase;
+  private final String mix;
+  private final int payloadPool;
+  private final String documentMode;
+  private final boolean offHeap;
+  private final String jsonTemplate;
+  private final int jsonVariants;
+  private final String sizeDistribution;
+  private final String dataset;
+  private final String datasetOrder;
+  private final String keyPrefix;
+  private final int keyLength;
+  private final int errorSamples;
+  private final int batchSize;
+  private final int batchConcurrency;
+  private final String engine;
+  private final boolean envPerClient;
+  private final int ioPoolSize;
+  private final int computationPoolSize;
+  private final int requestBufferSize;
+  private final boolean clientSweep;
+  private final int partitionIndex;
+  private final int partitionCount;
+  private final long opTimeout;
 
   /**
    * Create the GlobalConfig.
@@ -75,10 +141,59 @@ final  class GlobalConfig {
    * @param password The password of the bucket.
    * @param numThreads The number of threads.
    * @param numClients The number of CouchbaseClients.
+   * @param rate The target throughput in ops/s, 0 for no target.
+   * @param duration The duration of the run in seconds, 0 for no limit.
+   * @param reportInterval Seconds between interval reports, 0 for none.
+   * @param histogramLog File to write the interval histograms to, or null.
+   * @param report File to write the JSON report of the run to, or null.
+   * @param reportCsv File to write the interval time series to, or null.
+   * @param maxInFlight Maximum in-flight ops per workload, 0 for no limit.
+   * @param keySpace Number of keys to work with, 0 for random keys.
+   * @param keyDistribution Distribution of the keys in the key space.
+   * @param zipfTheta Skew of the zipfian and latest distributions.
+   * @param hotspotFraction Fraction of the key space in the hot set.
+   * @param hotspotOps Fraction of the ops going to the hot set.
+   * @param phase The phases to run: load, run or both.
+   * @param mix The ops of the mix workload and their weights.
+   * @param payloadPool Number of distinct random documents to generate.
+   * @param documentMode How documents are stored: legacy or binary.
+   * @param offHeap Whether to keep binary document contents off-heap.
+   * @param jsonTemplate The template to generate JSON documents from.
+   * @param jsonVariants Number of JSON documents to generate.
+   * @param sizeDistribution The distribution of the document sizes.
+   * @param dataset The dataset file to read documents from, one per line.
+   * @param datasetOrder The order to read the dataset in.
+   * @param keyPrefix The prefix of the keys.
+   * @param keyLength The length of the keys, 0 for no fixed length.
+   * @param errorSamples The number of errors to log with their stack trace.
+   * @param batchSize The number of keys per batch.
+   * @param batchConcurrency The keys of a batch in flight at once, 0 for all.
+   * @param engine How the chains of ops are run: async, blocking or virtual.
+   * @param envPerClient Whether each CouchbaseClient has its own environment.
+   * @param ioPoolSize The size of the IO pool, 0 for the SDK default.
+   * @param computationPoolSize The size of the computation pool, 0 for the
+   *   SDK default.
+   * @param requestBufferSize The size of the request ring buffer, 0 for the
+   *   SDK default.
+   * @param clientSweep Whether to run with 1, 2, 4... CouchbaseClients.
+   * @param partitionIndex Index of the share of the work this process runs.
+   * @param partitionCount Number of processes sharing the work.
+   * @param opTimeout The time after which an op fails, in milliseconds, 0
+   *   for none.
    */
   private GlobalConfig(List<String> nodes, String bucket, String password,
     int numThreads, int numClients, long numDocs, int ratio, int sampling,
-    String workload, int ramp, int size, String filename) {
+    String workload, int ramp, int size, String filename, long rate,
+    long duration, int reportInterval, String histogramLog, String report,
+    String reportCsv, int maxInFlight, long keySpace, String keyDistribution, double zipfTheta,
+    double hotspotFraction, double hotspotOps, String phase, String mix,
+    int payloadPool, String documentMode, boolean offHeap,
+    String jsonTemplate, int jsonVariants, String sizeDistribution,
+    String dataset, String datasetOrder, String keyPrefix, int keyLength,
+    int errorSamples, int batchSize, int batchConcurrency, String engine,
+    boolean envPerClient, int ioPoolSize, int computationPoolSize,
+    int requestBufferSize, boolean clientSweep, int partitionIndex,
+    int partitionCount, long opTimeout) {
     this.nodes = Collections.unmodifiableList(nodes);
     this.bucket = bucket;
     this.password = password;
@@ -91,6 +206,42 @@ final  class GlobalConfig {
     this.ramp = ramp;
     this.size = size;
     this.filename = filename;
+    this.rate = rate;
+    this.duration = duration;
+    this.reportInterval = reportInterval;
+    this.histogramLog = histogramLog;
+    this.report = report;
+    this.reportCsv = reportCsv;
+    this.maxInFlight = maxInFlight;
+    this.keySpace = keySpace;
+    this.keyDistribution = keyDistribution;
+    this.zipfTheta = zipfTheta;
+    this.hotspotFraction = hotspotFraction;
+    this.hotspotOps = hotspotOps;
+    this.phase = phase;
+    this.mix = mix;
+    this.payloadPool = payloadPool;
+    this.documentMode = documentMode;
+    this.offHeap = offHeap;
+    this.jsonTemplate = jsonTemplate;
+    this.jsonVariants = jsonVariants;
+    this.sizeDistribution = sizeDistribution;
+    this.dataset = dataset;
+    this.datasetOrder = datasetOrder;
+    this.keyPrefix = keyPrefix;
+    this.keyLength = keyLength;
+    this.errorSamples = errorSamples;
+    this.batchSize = batchSize;
+    this.batchConcurrency = batchConcurrency;
+    this.engine = engine;
+    this.envPerClient = envPerClient;
+    this.ioPoolSize = ioPoolSize;
+    this.computationPoolSize = computationPoolSize;
+    this.requestBufferSize = requestBufferSize;
+    this.clientSweep = clientSweep;
+    this.partitionIndex = partitionIndex;
+    this.partitionCount = partitionCount;
+    this.opTimeout = opTimeout;
   }
 
   /**
@@ -124,11 +275,142 @@ final  class GlobalConfig {
     String size = args.hasOption(RoadRunner.OPT_DOC_SIZE)
       ? args.getOptionValue(RoadRunner.OPT_DOC_SIZE) : DEFAULT_SIZE;
     String filename = args.hasOption(RoadRunner.OPT_FILENAME) ? args.getOptionValue(RoadRunner.OPT_FILENAME) : null;
+    String rate = args.hasOption(RoadRunner.OPT_RATE)
+      ? args.getOptionValue(RoadRunner.OPT_RATE) : DEFAULT_RATE;
+    String duration = args.hasOption(RoadRunner.OPT_DURATION)
+      ? args.getOptionValue(RoadRunner.OPT_DURATION) : DEFAULT_DURATION;
+    String reportInterval = args.hasOption(RoadRunner.OPT_REPORT_INTERVAL)
+      ? args.getOptionValue(RoadRunner.OPT_REPORT_INTERVAL)
+      : DEFAULT_REPORT_INTERVAL;
+    String histogramLog = args.getOptionValue(RoadRunner.OPT_HISTOGRAM_LOG);
+    String maxInFlight = args.hasOption(RoadRunner.OPT_MAX_IN_FLIGHT)
+      ? args.getOptionValue(RoadRunner.OPT_MAX_IN_FLIGHT)
+      : DEFAULT_MAX_IN_FLIGHT;
+    String keySpace = args.hasOption(RoadRunner.OPT_KEY_SPACE)
+      ? args.getOptionValue(RoadRunner.OPT_KEY_SPACE) : DEFAULT_KEY_SPACE;
+    String keyDistribution = args.hasOption(RoadRunner.OPT_KEY_DISTRIBUTION)
+      ? args.getOptionValue(RoadRunner.OPT_KEY_DISTRIBUTION)
+      : DEFAULT_KEY_DISTRIBUTION;
+    String zipfTheta = args.hasOption(RoadRunner.OPT_ZIPF_THETA)
+      ? args.getOptionValue(RoadRunner.OPT_ZIPF_THETA) : DEFAULT_ZIPF_THETA;
+    String hotspotFraction = args.hasOption(RoadRunner.OPT_HOTSPOT_FRACTION)
+      ? args.getOptionValue(RoadRunner.OPT_HOTSPOT_FRACTION)
+      : DEFAULT_HOTSPOT_FRACTION;
+    String hotspotOps = args.hasOption(RoadRunner.OPT_HOTSPOT_OPS)
+      ? args.getOptionValue(RoadRunner.OPT_HOTSPOT_OPS) : DEFAULT_HOTSPOT_OPS;
+    String phase = args.hasOption(RoadRunner.OPT_PHASE)
+      ? args.getOptionValue(RoadRunner.OPT_PHASE) : DEFAULT_PHASE;
+    String mix = args.hasOption(RoadRunner.OPT_MIX)
+      ? args.getOptionValue(RoadRunner.OPT_MIX) : DEFAULT_MIX;
+    String payloadPool = args.hasOption(RoadRunner.OPT_PAYLOAD_POOL)
+      ? args.getOptionValue(RoadRunner.OPT_PAYLOAD_POOL) : DEFAULT_PAYLOAD_POOL;
+    String documentMode = parseDocumentMode(args);
+    String jsonVariants = args.hasOption(RoadRunner.OPT_JSON_VARIANTS)
+      ? args.getOptionValue(RoadRunner.OPT_JSON_VARIANTS) : DEFAULT_JSON_VARIANTS;
+    String sizeDistribution = args.hasOption(RoadRunner.OPT_SIZE_DISTRIBUTION)
+      ? args.getOptionValue(RoadRunner.OPT_SIZE_DISTRIBUTION)
+      : DEFAULT_SIZE_DISTRIBUTION;
+    String datasetOrder = args.hasOption(RoadRunner.OPT_DATASET_ORDER)
+      ? args.getOptionValue(RoadRunner.OPT_DATASET_ORDER) : DEFAULT_DATASET_ORDER;
+    String keyPrefix = args.hasOption(RoadRunner.OPT_KEY_PREFIX)
+      ? args.getOptionValue(RoadRunner.OPT_KEY_PREFIX) : DEFAULT_KEY_PREFIX;
+    String keyLength = args.hasOption(RoadRunner.OPT_KEY_LENGTH)
+      ? args.getOptionValue(RoadRunner.OPT_KEY_LENGTH) : DEFAULT_KEY_LENGTH;
+    String errorSamples = args.hasOption(RoadRunner.OPT_ERROR_SAMPLES)
+      ? args.getOptionValue(RoadRunner.OPT_ERROR_SAMPLES) : DEFAULT_ERROR_SAMPLES;
+    String batchSize = args.hasOption(RoadRunner.OPT_BATCH_SIZE)
+      ? args.getOptionValue(RoadRunner.OPT_BATCH_SIZE) : DEFAULT_BATCH_SIZE;
+    String batchConcurrency = args.hasOption(RoadRunner.OPT_BATCH_CONCURRENCY)
+      ? args.getOptionValue(RoadRunner.OPT_BATCH_CONCURRENCY)
+      : DEFAULT_BATCH_CONCURRENCY;
+    String engine = args.hasOption(RoadRunner.OPT_ENGINE)
+      ? args.getOptionValue(RoadRunner.OPT_ENGINE) : DEFAULT_ENGINE;
+    String ioPoolSize = args.hasOption(RoadRunner.OPT_IO_POOL_SIZE)
+      ? args.getOptionValue(RoadRunner.OPT_IO_POOL_SIZE) : DEFAULT_IO_POOL_SIZE;
+    String computationPoolSize =
+      args.hasOption(RoadRunner.OPT_COMPUTATION_POOL_SIZE)
+      ? args.getOptionValue(RoadRunner.OPT_COMPUTATION_POOL_SIZE)
+      : DEFAULT_COMPUTATION_POOL_SIZE;
+    String requestBufferSize = args.hasOption(RoadRunner.OPT_REQUEST_BUFFER_SIZE)
+      ? args.getOptionValue(RoadRunner.OPT_REQUEST_BUFFER_SIZE)
+      : DEFAULT_REQUEST_BUFFER_SIZE;
+    int[] partition = parsePartition(args.hasOption(RoadRunner.OPT_PARTITION)
+      ? args.getOptionValue(RoadRunner.OPT_PARTITION) : DEFAULT_PARTITION);
+    String opTimeout = args.hasOption(RoadRunner.OPT_OP_TIMEOUT)
+      ? args.getOptionValue(RoadRunner.OPT_OP_TIMEOUT) : DEFAULT_OP_TIMEOUT;
     return new GlobalConfig(prepareNodeList(nodes), bucket, password,
       Integer.parseInt(numThreads), Integer.parseInt(numClients),
       Long.parseLong(numDocs), Integer.parseInt(ratio),
       Integer.parseInt(sampling), workload, Integer.parseInt(ramp),
-      Integer.parseInt(size), filename);
+      Integer.parseInt(size), filename, Long.parseLong(rate),
+      Long.parseLong(duration), Integer.parseInt(reportInterval),
+      histogramLog, args.getOptionValue(RoadRunner.OPT_REPORT),
+      args.getOptionValue(RoadRunner.OPT_REPORT_CSV),
+      Integer.parseInt(maxInFlight), Long.parseLong(keySpace),
+      keyDistribution, Double.parseDouble(zipfTheta),
+      Double.parseDouble(hotspotFraction), Double.parseDouble(hotspotOps),
+      phase, mix, Integer.parseInt(payloadPool), documentMode,
+      args.hasOption(RoadRunner.OPT_OFF_HEAP),
+      args.getOptionValue(RoadRunner.OPT_JSON_TEMPLATE),
+      Integer.parseInt(jsonVariants), sizeDistribution,
+      args.getOptionValue(RoadRunner.OPT_DATASET), datasetOrder, keyPrefix,
+      Integer.parseInt(keyLength), Integer.parseInt(errorSamples),
+      Integer.parseInt(batchSize), Integer.parseInt(batchConcurrency), engine,
+      args.hasOption(RoadRunner.OPT_ENV_PER_CLIENT),
+      Integer.parseInt(ioPoolSize), Integer.parseInt(computationPoolSize),
+      Integer.parseInt(requestBufferSize),
+      args.hasOption(RoadRunner.OPT_CLIENT_SWEEP), partition[0], partition[1],
+      Long.parseLong(opTimeout));
+  }
+
+  /**
+   * Reads the document mode, which defaults to binary when the documents
+   * come from a JSON template or a dataset: legacy mode would store them as
+   * Java-serialized objects.
+   *
+   * @param args The parsed command line.
+   * @return the document mode.
+   */
+  private static String parseDocumentMode(final CommandLine args) {
+    String source = args.hasOption(RoadRunner.OPT_JSON_TEMPLATE)
+      ? RoadRunner.OPT_JSON_TEMPLATE
+      : args.hasOption(RoadRunner.OPT_DATASET) ? RoadRunner.OPT_DATASET : null;
+    if (source == null) {
+      return args.hasOption(RoadRunner.OPT_DOCUMENT_MODE)
+        ? args.getOptionValue(RoadRunner.OPT_DOCUMENT_MODE)
+        : DEFAULT_DOCUMENT_MODE;
+    }
+    String documentMode = args.getOptionValue(RoadRunner.OPT_DOCUMENT_MODE,
+      BINARY_DOCUMENT_MODE);
+    if (!BINARY_DOCUMENT_MODE.equals(documentMode)) {
+      throw new IllegalArgumentException("--" + source + " requires --"
+        + RoadRunner.OPT_DOCUMENT_MODE + " " + BINARY_DOCUMENT_MODE + ", got: "
+        + documentMode);
+    }
+    return documentMode;
+  }
+
+  /**
+   * Parses a partition given as INDEX/COUNT.
+   *
+   * @param partition The partition.
+   * @return the index and the count of the partition.
+   */
+  private static int[] parsePartition(final String partition) {
+    String[] parts = partition.split("/");
+    try {
+      if (parts.length == 2) {
+        int index = Integer.parseInt(parts[0].trim());
+        int count = Integer.parseInt(parts[1].trim());
+        if (count > 0 && index >= 0 && index < count) {
+          return new int[] { index, count };
+        }
+      }
+    } catch (NumberFormatException ex) {
+      // reported below
+    }
+    throw new IllegalArgumentException("The partition must be INDEX/COUNT "
+      + "with 0 <= INDEX < COUNT, got: " + partition);
   }
 
   /**
@@ -220,12 +502,341 @@ final  class GlobalConfig {
     return filename;
   }
 
+  /**
+   * @return the target throughput in ops/s, 0 if there is none
+   */
+  public long getRate() {
+    return rate;
+  }
+
+  /**
+   * @return the duration of the run in seconds, 0 if it runs until all
+   *   documents are done
+   */
+  public long getDuration() {
+    return duration;
+  }
+
+  /**
+   * @return the seconds between interval reports, 0 if disabled
+   */
+  public int getReportInterval() {
+    return reportInterval;
+  }
+
+  /**
+   * @return the file the interval histograms are logged to, or null
+   */
+  public String getHistogramLog() {
+    return histogramLog;
+  }
+
+  /**
+   * @return the file the JSON report of the run is written to, or null
+   */
+  public String getReport() {
+    return report;
+  }
+
+  /**
+   * @return the file the interval time series is written to, as CSV, or null
+   */
+  public String getReportCsv() {
+    return reportCsv;
+  }
+
+  /**
+   * @return the maximum in-flight ops per workload, 0 if not bounded
+   */
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * @return the number of keys to work with, 0 for random keys
+   */
+  public long getKeySpace() {
+    return keySpace;
+  }
+
+  /**
+   * @return the distribution of the keys in the key space
+   */
+  public String getKeyDistribution() {
+    return keyDistribution;
+  }
+
+  /**
+   * @return the skew of the zipfian and latest distributions
+   */
+  public double getZipfTheta() {
+    return zipfTheta;
+  }
+
+  /**
+   * @return the fraction of the key space in the hot set
+   */
+  public double getHotspotFraction() {
+    return hotspotFraction;
+  }
+
+  /**
+   * @return the fraction of the ops going to the hot set
+   */
+  public double getHotspotOps() {
+    return hotspotOps;
+  }
+
+  /**
+   * @return the phases to run: load, run or both
+   */
+  public String getPhase() {
+    return phase;
+  }
+
+  /**
+   * @return the ops of the mix workload and their weights
+   */
+  public String getMix() {
+    return mix;
+  }
+
+  /**
+   * @return the number of distinct random documents to generate
+   */
+  public int getPayloadPool() {
+    return payloadPool;
+  }
+
+  /**
+   * @return how documents are stored: legacy or binary
+   */
+  public String getDocumentMode() {
+    return documentMode;
+  }
+
+  /**
+   * @return whether binary document contents are kept off-heap
+   */
+  public boolean isOffHeap() {
+    return offHeap;
+  }
+
+  /**
+   * @return the template to generate JSON documents from, or null
+   */
+  public String getJsonTemplate() {
+    return jsonTemplate;
+  }
+
+  /**
+   * @return the number of JSON documents to generate
+   */
+  public int getJsonVariants() {
+    return jsonVariants;
+  }
+
+  /**
+   * @return the distribution of the document sizes
+   */
+  public String getSizeDistribution() {
+    return sizeDistribution;
+  }
+
+  /**
+   * @return the dataset file to read documents from, or null
+   */
+  public String getDataset() {
+    return dataset;
+  }
+
+  /**
+   * @return the order to read the dataset in: random or sequential
+   */
+  public String getDatasetOrder() {
+    return datasetOrder;
+  }
+
+  /**
+   * @return the prefix of the keys
+   */
+  public String getKeyPrefix() {
+    return keyPrefix;
+  }
+
+  /**
+   * @return the length of the keys, 0 for no fixed length
+   */
+  public int getKeyLength() {
+    return keyLength;
+  }
+
+  /**
+   * @return the number of errors to log with their stack trace
+   */
+  public int getErrorSamples() {
+    return errorSamples;
+  }
+
+  /**
+   * @return the number of keys per batch
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @return the keys of a batch in flight at once, 0 for all of them
+   */
+  public int getBatchConcurrency() {
+    return batchConcurrency;
+  }
+
+  /**
+   * @return how the chains of ops are run: async, blocking or virtual
+   */
+  public String getEngine() {
+    return engine;
+  }
+
+  /**
+   * @return whether each CouchbaseClient has its own environment
+   */
+  public boolean isEnvPerClient() {
+    return envPerClient;
+  }
+
+  /**
+   * @return the size of the IO pool, 0 for the SDK default
+   */
+  public int getIoPoolSize() {
+    return ioPoolSize;
+  }
+
+  /**
+   * @return the size of the computation pool, 0 for the SDK default
+   */
+  public int getComputationPoolSize() {
+    return computationPoolSize;
+  }
+
+  /**
+   * @return the size of the request ring buffer, 0 for the SDK default
+   */
+  public int getRequestBufferSize() {
+    return requestBufferSize;
+  }
+
+  /**
+   * @return whether to run with 1, 2, 4... CouchbaseClients
+   */
+  public boolean isClientSweep() {
+    return clientSweep;
+  }
+
+  /**
+   * @return the index of the share of the work this process runs
+   */
+  public int getPartitionIndex() {
+    return partitionIndex;
+  }
+
+  /**
+   * @return the number of processes sharing the work
+   */
+  public int getPartitionCount() {
+    return partitionCount;
+  }
+
+  /**
+   * @return the time after which an op fails, in milliseconds, 0 for none
+   */
+  public long getOpTimeout() {
+    return opTimeout;
+  }
+
+  /**
+   * Returns the settings by command line option name, for machine-readable
+   * reports. The password is left out.
+   *
+   * @return the settings, in the order of the options.
+   */
+  public Map<String, Object> toMap() {
+    Map<String, Object> map = new LinkedHashMap<String, Object>();
+    map.put(RoadRunner.OPT_NODES, nodes);
+    map.put(RoadRunner.OPT_BUCKET, bucket);
+    map.put(RoadRunner.OPT_NUM_THREADS, numThreads);
+    map.put(RoadRunner.OPT_NUM_CLIENTS, numClients);
+    map.put(RoadRunner.OPT_NUM_DOCS, numDocs);
+    map.put(RoadRunner.OPT_RATIO, ratio);
+    map.put(RoadRunner.OPT_SAMPLING, sampling);
+    map.put(RoadRunner.OPT_WORKLOAD, workload);
+    map.put(RoadRunner.OPT_RAMP, ramp);
+    map.put(RoadRunner.OPT_DOC_SIZE, size);
+    map.put(RoadRunner.OPT_FILENAME, filename);
+    map.put(RoadRunner.OPT_RATE, rate);
+    map.put(RoadRunner.OPT_DURATION, duration);
+    map.put(RoadRunner.OPT_REPORT_INTERVAL, reportInterval);
+    map.put(RoadRunner.OPT_HISTOGRAM_LOG, histogramLog);
+    map.put(RoadRunner.OPT_REPORT, report);
+    map.put(RoadRunner.OPT_REPORT_CSV, reportCsv);
+    map.put(RoadRunner.OPT_MAX_IN_FLIGHT, maxInFlight);
+    map.put(RoadRunner.OPT_KEY_SPACE, keySpace);
+    map.put(RoadRunner.OPT_KEY_DISTRIBUTION, keyDistribution);
+    map.put(RoadRunner.OPT_ZIPF_THETA, zipfTheta);
+    map.put(RoadRunner.OPT_HOTSPOT_FRACTION, hotspotFraction);
+    map.put(RoadRunner.OPT_HOTSPOT_OPS, hotspotOps);
+    map.put(RoadRunner.OPT_PHASE, phase);
+    map.put(RoadRunner.OPT_MIX, mix);
+    map.put(RoadRunner.OPT_PAYLOAD_POOL, payloadPool);
+    map.put(RoadRunner.OPT_DOCUMENT_MODE, documentMode);
+    map.put(RoadRunner.OPT_OFF_HEAP, offHeap);
+    map.put(RoadRunner.OPT_JSON_TEMPLATE, jsonTemplate);
+    map.put(RoadRunner.OPT_JSON_VARIANTS, jsonVariants);
+    map.put(RoadRunner.OPT_SIZE_DISTRIBUTION, sizeDistribution);
+    map.put(RoadRunner.OPT_DATASET, dataset);
+    map.put(RoadRunner.OPT_DATASET_ORDER, datasetOrder);
+    map.put(RoadRunner.OPT_KEY_PREFIX, keyPrefix);
+    map.put(RoadRunner.OPT_KEY_LENGTH, keyLength);
+    map.put(RoadRunner.OPT_ERROR_SAMPLES, errorSamples);
+    map.put(RoadRunner.OPT_BATCH_SIZE, batchSize);
+    map.put(RoadRunner.OPT_BATCH_CONCURRENCY, batchConcurrency);
+    map.put(RoadRunner.OPT_ENGINE, engine);
+    map.put(RoadRunner.OPT_ENV_PER_CLIENT, envPerClient);
+    map.put(RoadRunner.OPT_IO_POOL_SIZE, ioPoolSize);
+    map.put(RoadRunner.OPT_COMPUTATION_POOL_SIZE, computationPoolSize);
+    map.put(RoadRunner.OPT_REQUEST_BUFFER_SIZE, requestBufferSize);
+    map.put(RoadRunner.OPT_CLIENT_SWEEP, clientSweep);
+    map.put(RoadRunner.OPT_PARTITION, partitionIndex + "/" + partitionCount);
+    map.put(RoadRunner.OPT_OP_TIMEOUT, opTimeout);
+    return map;
+  }
+
   @Override
   public String toString() {
     return "GlobalConfig{" + "nodes=" + nodes + ", bucket=" + bucket
       + ", password=" + password + ", numThreads=" + numThreads
       + ", numClients=" + numClients + ", numDocs=" + numDocs
       + ", ratio=" + ratio + ", sampling=" + sampling + ", workload="
-      + workload + ", ramp=" + ramp + ", doc-size=" + size + ", data-filename=" + filename + '}';
+      + workload + ", ramp=" + ramp + ", doc-size=" + size + ", data-filename=" + filename
+      + ", rate=" + rate + ", duration=" + duration
+      + ", report-interval=" + reportInterval + ", histogram-log="
+      + histogramLog + ", report=" + report + ", report-csv=" + reportCsv
+      + ", max-in-flight=" + maxInFlight + ", key-space="
+      + keySpace + ", key-distribution=" + keyDistribution + ", zipf-theta="
+      + zipfTheta + ", hotspot-fraction=" + hotspotFraction + ", hotspot-ops="
+      + hotspotOps + ", phase=" + phase + ", mix=" + mix + ", payloadPool="
+      + payloadPool + ", documentMode=" + documentMode + ", offHeap="
+      + offHeap + ", jsonTemplate=" + jsonTemplate + ", jsonVariants="
+      + jsonVariants + ", sizeDistribution=" + sizeDistribution
+      + ", dataset=" + dataset + ", datasetOrder=" + datasetOrder
+      + ", keyPrefix=" + keyPrefix + ", keyLength=" + keyLength
+      + ", errorSamples=" + errorSamples + ", batchSize=" + batchSize
+      + ", batchConcurrency=" + batchConcurrency + ", engine=" + engine
+      + ", envPerClient=" + envPerClient + ", ioPoolSize=" + ioPoolSize
+      + ", computationPoolSize=" + computationPoolSize
+      + ", requestBufferSize=" + requestBufferSize
+      + ", clientSweep=" + clientSweep + ", partition=" + partitionIndex
+      + "/" + partitionCount + ", op-timeout=" + opTimeout + '}';
   }
 }
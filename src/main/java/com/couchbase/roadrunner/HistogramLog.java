@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+
+/**
+ * Writes the histograms of each interval to a log in the HdrHistogram log
+ * format, so that they can be analyzed later with the standard HdrHistogram
+ * tooling. Each histogram is tagged with its op identifier.
+ *
+ * The start time of the log is the start of the first interval.
+ */
+final class HistogramLog implements IntervalReporter.Listener, Closeable {
+
+  private final PrintStream out;
+  private final HistogramLogWriter writer;
+  private boolean started;
+
+  /**
+   * Create the HistogramLog.
+   *
+   * @param file The file to write to.
+   * @throws FileNotFoundException if the file can not be created.
+   */
+  public HistogramLog(final String file) throws FileNotFoundException {
+    this.out = new PrintStream(file);
+    this.writer = new HistogramLogWriter(out);
+  }
+
+  @Override
+  public synchronized void interval(final int phase, final long start,
+    final long end, final long ops, final Map<String, Histogram> measures) {
+    if (!started) {
+      writer.outputLogFormatVersion();
+      writer.outputStartTime(start);
+      writer.setBaseTime(start);
+      writer.outputLegend();
+      started = true;
+    }
+    for (Map.Entry<String, Histogram> entry : measures.entrySet()) {
+      Histogram h = entry.getValue();
+      h.setStartTimeStamp(start);
+      h.setEndTimeStamp(end);
+      h.setTag(entry.getKey());
+      writer.outputIntervalHistogram(h);
+    }
+    out.flush();
+  }
+
+  @Override
+  public synchronized void close() {
+    out.close();
+  }
+}
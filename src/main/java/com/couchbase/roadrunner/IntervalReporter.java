@@ -0,0 +1,275 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The IntervalReporter periodically reports the throughput and latency of
+ * the running workload.
+ *
+ * Every interval, it samples the measures of all workloads (without stopping
+ * them), prints ops/s and percentiles for each op type and, if configured,
+ * appends the interval histograms to a {@link HistogramLog}.
+ * A {@link Listener} can also be handed the interval measures, for example to
+ * ship them to a coordinator.
+ *
+ * The run is made of phases (the load and run phases, the steps of a client
+ * sweep), each ended by {@link #flush()}. Intervals are counted from the
+ * start of their phase, so the intervals of several processes running the
+ * same phases can be matched by their phase and their index in it, even if
+ * the phases do not end at the same time everywhere.
+ */
+final class IntervalReporter implements Runnable {
+
+  /** Configure a reusable logger. */
+  static final Logger LOGGER =
+    LoggerFactory.getLogger(IntervalReporter.class.getName());
+
+  /** The dispatcher to sample the measures from. */
+  private final WorkloadDispatcher dispatcher;
+
+  /** Seconds between two reports, 0 if disabled. */
+  private final int interval;
+
+  /** File to log the interval histograms to, may be null. */
+  private final String histogramLog;
+
+  /** Receives the measures of each interval, may be null. */
+  private final Listener listener;
+
+  private ScheduledExecutorService executor;
+  private ScheduledFuture<?> scheduled;
+  private HistogramLog log;
+
+  /** Index of the current phase, advanced by {@link #flush()}. */
+  private int phase;
+
+  /** Start of the current interval (epoch millis). */
+  private long intervalStart;
+
+  /** Total ops at the start of the current interval. */
+  private long intervalStartOps;
+
+  /**
+   * Create the IntervalReporter.
+   *
+   * @param dispatcher The dispatcher running the workload.
+   * @param interval Seconds between two reports, 0 to disable.
+   * @param histogramLog File to log the interval histograms to, or null.
+   * @param listener Receives the measures of each interval, or null.
+   */
+  public IntervalReporter(final WorkloadDispatcher dispatcher,
+    final int interval, final String histogramLog, final Listener listener) {
+    this.dispatcher = dispatcher;
+    this.interval = interval;
+    this.histogramLog = histogramLog;
+    this.listener = listener;
+  }
+
+  /**
+   * Start reporting in the background.
+   *
+   * @throws FileNotFoundException if the histogram log can not be created.
+   */
+  public void start() throws FileNotFoundException {
+    if (interval <= 0) {
+      if (histogramLog != null) {
+        LOGGER.warn("Interval reports are disabled, not writing the "
+          + "histogram log " + histogramLog);
+      }
+      return;
+    }
+
+    intervalStart = System.currentTimeMillis();
+    intervalStartOps = 0;
+    if (histogramLog != null) {
+      log = new HistogramLog(histogramLog);
+    }
+
+    executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "IntervalReporter");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    schedule();
+  }
+
+  /**
+   * Schedule the reports of the current phase, from now on.
+   */
+  private void schedule() {
+    if (scheduled != null) {
+      scheduled.cancel(false);
+    }
+    final int scheduledPhase = phase;
+    scheduled = executor.scheduleAtFixedRate(() -> {
+      synchronized (this) {
+        // a report due when the phase ended was replaced by the flush
+        if (scheduledPhase == phase) {
+          run();
+        }
+      }
+    }, interval, interval, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Stop reporting, after reporting the last (partial) interval.
+   *
+   * @throws InterruptedException if interrupted while waiting for the
+   *   reporter to stop.
+   */
+  public void stop() throws InterruptedException {
+    if (executor == null) {
+      return;
+    }
+    executor.shutdown();
+    executor.awaitTermination(interval, TimeUnit.SECONDS);
+    run();
+    if (log != null) {
+      log.close();
+    }
+  }
+
+  /**
+   * Report the current interval right away because a phase of the run has
+   * ended, and start the intervals of the next phase.
+   */
+  public synchronized void flush() {
+    if (executor != null) {
+      run();
+      phase++;
+      schedule();
+    }
+  }
+
+  /**
+   * Report the interval which just ended.
+   */
+  @Override
+  public void run() {
+    try {
+      report();
+    } catch (Exception ex) {
+      LOGGER.warn("Error while reporting the interval: ", ex);
+    }
+  }
+
+  private synchronized void report() throws IOException {
+    long now = System.currentTimeMillis();
+    long totalOps = dispatcher.getOpsSinceStart();
+    Map<String, Histogram> measures =
+      new TreeMap<String, Histogram>(dispatcher.getIntervalMeasures());
+    double seconds = Math.max(now - intervalStart, 1) / 1000.0;
+
+    LOGGER.info("Interval: " + Math.round((totalOps - intervalStartOps)
+      / seconds) + " ops/s (" + totalOps + " ops total)");
+    logMeasures(measures, seconds);
+    if (log != null) {
+      log.interval(phase, intervalStart, now, totalOps - intervalStartOps,
+        measures);
+    }
+
+    Map<String, Long> errors = new TreeMap<String, Long>(
+      dispatcher.getErrorTracker().getIntervalCounts());
+    if (!errors.isEmpty()) {
+      StringBuilder summary = new StringBuilder();
+      for (Map.Entry<String, Long> entry : errors.entrySet()) {
+        summary.append("   \"").append(entry.getKey()).append("\": ")
+          .append(entry.getValue());
+      }
+      LOGGER.warn("   errors:" + summary);
+    }
+
+    long start = intervalStart;
+    long ops = totalOps - intervalStartOps;
+    intervalStart = now;
+    intervalStartOps = totalOps;
+    if (listener != null) {
+      listener.interval(phase, start, now, ops, measures);
+    }
+  }
+
+  /**
+   * Log the throughput and percentiles of each op type over an interval.
+   *
+   * @param measures The interval histograms by op identifier.
+   * @param seconds The length of the interval.
+   */
+  static void logMeasures(final Map<String, Histogram> measures,
+    final double seconds) {
+    for (Map.Entry<String, Histogram> entry : measures.entrySet()) {
+      Histogram h = entry.getValue();
+      LOGGER.info("   \"" + entry.getKey() + "\": "
+        + Math.round(h.getTotalCount() / seconds) + " ops/s"
+        + "   50%:" + h.getValueAtPercentile(50)
+        + "   99%:" + h.getValueAtPercentile(99)
+        + "   99.9%:" + h.getValueAtPercentile(99.9)
+        + "   max:" + h.getMaxValue());
+    }
+  }
+
+  /**
+   * Receives the measures of each interval, once it has been reported.
+   */
+  interface Listener {
+
+    /**
+     * @param phase Index of the phase of the run the interval belongs to.
+     * @param start Start of the interval (epoch millis).
+     * @param end End of the interval (epoch millis).
+     * @param ops Ops completed during the interval.
+     * @param measures The interval histograms by op identifier.
+     * @throws IOException if the measures could not be handled.
+     */
+    void interval(int phase, long start, long end, long ops,
+      Map<String, Histogram> measures) throws IOException;
+
+    /**
+     * @param next The listener to hand the measures to after this one.
+     * @return a listener handing the measures to this listener, then to the
+     *   next one.
+     */
+    default Listener andThen(final Listener next) {
+      return (phase, start, end, ops, measures) -> {
+        interval(phase, start, end, ops, measures);
+        next.interval(phase, start, end, ops, measures);
+      };
+    }
+  }
+}
@@ -0,0 +1,331 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes plain values, lists and maps as JSON, for the reports, and reads
+ * them back.
+ *
+ * Maps are written as objects, in their iteration order. Numbers which are
+ * not finite are written as null. When read, objects become maps, arrays
+ * lists, and numbers longs or, with a fraction or exponent, doubles.
+ */
+final class Json {
+
+  private static final String INDENT = "  ";
+
+  /** Do not instantiate. */
+  private Json() { }
+
+  /**
+   * Write a value as indented JSON.
+   *
+   * @param value A map, iterable, string, number, boolean or null.
+   * @return the JSON text.
+   */
+  static String write(final Object value) {
+    StringBuilder builder = new StringBuilder();
+    write(builder, value, "");
+    return builder.append('\n').toString();
+  }
+
+  private static void write(StringBuilder builder, Object value,
+    String indent) {
+    if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      if (map.isEmpty()) {
+        builder.append("{}");
+        return;
+      }
+      builder.append("{\n");
+      boolean first = true;
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        if (!first) {
+          builder.append(",\n");
+        }
+        first = false;
+        builder.append(indent).append(INDENT);
+        quote(builder, String.valueOf(entry.getKey()));
+        builder.append(": ");
+        write(builder, entry.getValue(), indent + INDENT);
+      }
+      builder.append('\n').append(indent).append('}');
+    } else if (value instanceof Iterable) {
+      builder.append('[');
+      boolean first = true;
+      for (Object item : (Iterable<?>) value) {
+        if (!first) {
+          builder.append(", ");
+        }
+        first = false;
+        write(builder, item, indent);
+      }
+      builder.append(']');
+    } else if (value instanceof Double || value instanceof Float) {
+      double number = ((Number) value).doubleValue();
+      builder.append(Double.isNaN(number) || Double.isInfinite(number)
+        ? "null" : String.valueOf(number));
+    } else if (value instanceof Number || value instanceof Boolean
+      || value == null) {
+      builder.append(value);
+    } else {
+      quote(builder, value.toString());
+    }
+  }
+
+  /**
+   * Read a JSON value.
+   *
+   * @param text The JSON text.
+   * @return the value, as a map, list, string, number, boolean or null.
+   * @throws IllegalArgumentException if the text is not valid JSON.
+   */
+  static Object parse(final String text) {
+    Parser parser = new Parser(text);
+    Object value = parser.value();
+    parser.skipWhitespace();
+    if (parser.at < text.length()) {
+      throw parser.error("Unexpected content");
+    }
+    return value;
+  }
+
+  private static void quote(StringBuilder builder, String text) {
+    builder.append('"');
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '"':
+          builder.append("\\\"");
+          break;
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            builder.append(String.format("\\u%04x", (int) c));
+          } else {
+            builder.append(c);
+          }
+      }
+    }
+    builder.append('"');
+  }
+
+  /**
+   * A recursive descent parser over the JSON text.
+   */
+  private static final class Parser {
+
+    private final String text;
+    private int at;
+
+    Parser(String text) {
+      this.text = text;
+    }
+
+    Object value() {
+      skipWhitespace();
+      if (at >= text.length()) {
+        throw error("Unexpected end");
+      }
+      char c = text.charAt(at);
+      switch (c) {
+        case '{':
+          return object();
+        case '[':
+          return array();
+        case '"':
+          return string();
+        case 't':
+          return literal("true", Boolean.TRUE);
+        case 'f':
+          return literal("false", Boolean.FALSE);
+        case 'n':
+          return literal("null", null);
+        default:
+          return number();
+      }
+    }
+
+    private Map<String, Object> object() {
+      Map<String, Object> map = new LinkedHashMap<String, Object>();
+      at++;
+      skipWhitespace();
+      if (peek() == '}') {
+        at++;
+        return map;
+      }
+      while (true) {
+        skipWhitespace();
+        if (peek() != '"') {
+          throw error("Expected a key");
+        }
+        String key = string();
+        skipWhitespace();
+        expect(':');
+        map.put(key, value());
+        skipWhitespace();
+        if (peek() == ',') {
+          at++;
+        } else {
+          expect('}');
+          return map;
+        }
+      }
+    }
+
+    private List<Object> array() {
+      List<Object> list = new ArrayList<Object>();
+      at++;
+      skipWhitespace();
+      if (peek() == ']') {
+        at++;
+        return list;
+      }
+      while (true) {
+        list.add(value());
+        skipWhitespace();
+        if (peek() == ',') {
+          at++;
+        } else {
+          expect(']');
+          return list;
+        }
+      }
+    }
+
+    private String string() {
+      StringBuilder builder = new StringBuilder();
+      at++;
+      while (true) {
+        if (at >= text.length()) {
+          throw error("Unterminated string");
+        }
+        char c = text.charAt(at++);
+        if (c == '"') {
+          return builder.toString();
+        } else if (c != '\\') {
+          builder.append(c);
+          continue;
+        }
+        if (at >= text.length()) {
+          throw error("Unterminated string");
+        }
+        char escaped = text.charAt(at++);
+        switch (escaped) {
+          case 'b':
+            builder.append('\b');
+            break;
+          case 'f':
+            builder.append('\f');
+            break;
+          case 'n':
+            builder.append('\n');
+            break;
+          case 'r':
+            builder.append('\r');
+            break;
+          case 't':
+            builder.append('\t');
+            break;
+          case 'u':
+            if (at + 4 > text.length()) {
+              throw error("Invalid escape");
+            }
+            builder.append((char) Integer.parseInt(
+              text.substring(at, at + 4), 16));
+            at += 4;
+            break;
+          default:
+            builder.append(escaped);
+        }
+      }
+    }
+
+    private Object number() {
+      int start = at;
+      boolean decimal = false;
+      while (at < text.length()) {
+        char c = text.charAt(at);
+        if (c == '.' || c == 'e' || c == 'E') {
+          decimal = true;
+        } else if (!(c >= '0' && c <= '9') && c != '-' && c != '+') {
+          break;
+        }
+        at++;
+      }
+      String number = text.substring(start, at);
+      try {
+        return decimal ? (Object) Double.valueOf(number)
+          : (Object) Long.valueOf(number);
+      } catch (NumberFormatException ex) {
+        at = start;
+        throw error("Invalid value");
+      }
+    }
+
+    private Object literal(String literal, Object value) {
+      if (!text.startsWith(literal, at)) {
+        throw error("Invalid value");
+      }
+      at += literal.length();
+      return value;
+    }
+
+    private char peek() {
+      return at < text.length() ? text.charAt(at) : 0;
+    }
+
+    private void expect(char c) {
+      if (peek() != c) {
+        throw error("Expected '" + c + "'");
+      }
+      at++;
+    }
+
+    void skipWhitespace() {
+      while (at < text.length() && Character.isWhitespace(text.charAt(at))) {
+        at++;
+      }
+    }
+
+    IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " at offset " + at);
+    }
+  }
+}
@@ -0,0 +1,385 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.couchbase.roadrunner.workloads.Outcome;
+
+/**
+ * Compares the JSON report of a candidate run to the reports of one or more
+ * baseline runs, to catch performance regressions.
+ *
+ * Runs are lined up by op type. The overall throughput, the throughput of
+ * each op type and its latency percentiles (p50 through max, out of the
+ * encoded histograms) are compared. The baseline percentiles come from the
+ * histograms of all baseline runs added up, the baseline throughputs are
+ * the mean of the runs.
+ *
+ * A change for the worse is a regression when it is larger than the
+ * threshold. With several baseline runs, the run-to-run noise of each
+ * metric, the spread of the baseline values relative to the baseline, is
+ * taken into account: a change within the noise is no regression either,
+ * even if larger than the threshold.
+ */
+final class ReportComparison {
+
+  /** Configure a reusable logger. */
+  static final Logger LOGGER =
+    LoggerFactory.getLogger(ReportComparison.class.getName());
+
+  /** The command, as first argument, selecting the compare mode. */
+  public static final String COMMAND = "compare";
+
+  public static final String DEFAULT_THRESHOLD = "10";
+
+  /** The percentiles compared, 100 standing for the max. */
+  static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99, 100};
+
+  /** Name of the overall metrics, which are not those of an op type. */
+  static final String ALL_OPS = "all";
+
+  private final List<Report> baselines;
+  private final Report candidate;
+
+  /** Change for the worse in % tolerated, beyond the noise. */
+  private final double threshold;
+
+  /**
+   * Create the ReportComparison.
+   *
+   * @param baselines The reports of the baseline runs.
+   * @param candidate The report of the candidate run.
+   * @param threshold Change for the worse in % tolerated.
+   */
+  public ReportComparison(final List<Report> baselines,
+    final Report candidate, final double threshold) {
+    if (baselines.isEmpty()) {
+      throw new IllegalArgumentException("At least one baseline is needed.");
+    }
+    this.baselines = baselines;
+    this.candidate = candidate;
+    this.threshold = threshold;
+  }
+
+  /**
+   * Compare the candidate to the baselines.
+   *
+   * @return the compared metrics, by op type.
+   */
+  public List<Metric> compare() {
+    List<Metric> metrics = new ArrayList<Metric>();
+    double[] throughputs = new double[baselines.size()];
+    for (int i = 0; i < throughputs.length; i++) {
+      throughputs[i] = baselines.get(i).throughput;
+    }
+    metrics.add(new Metric(ALL_OPS, "ops/s", throughputs,
+      mean(throughputs), candidate.throughput, false, threshold));
+
+    TreeSet<String> ops = new TreeSet<String>();
+    for (Report baseline : baselines) {
+      ops.addAll(baseline.opThroughputs.keySet());
+      ops.addAll(baseline.latencies.keySet());
+    }
+    for (String op : ops) {
+      Double opThroughput = candidate.opThroughputs.get(op);
+      if (opThroughput != null) {
+        for (int i = 0; i < throughputs.length; i++) {
+          Double baseline = baselines.get(i).opThroughputs.get(op);
+          throughputs[i] = baseline == null ? 0 : baseline;
+        }
+        metrics.add(new Metric(op, "ops/s", throughputs, mean(throughputs),
+          opThroughput, false, threshold));
+      }
+
+      Histogram latency = candidate.latencies.get(op);
+      if (latency == null) {
+        if (opThroughput == null) {
+          LOGGER.warn("No \"" + op + "\" ops in " + candidate.file
+            + ", not compared.");
+        }
+        continue;
+      }
+      Histogram pooled = null;
+      List<Histogram> runs = new ArrayList<Histogram>();
+      for (Report baseline : baselines) {
+        Histogram run = baseline.latencies.get(op);
+        if (run == null) {
+          continue;
+        }
+        runs.add(run);
+        if (pooled == null) {
+          pooled = run.copy();
+        } else {
+          pooled.add(run);
+        }
+      }
+      if (pooled == null) {
+        continue;
+      }
+      for (double percentile : PERCENTILES) {
+        double[] values = new double[runs.size()];
+        for (int i = 0; i < values.length; i++) {
+          values[i] = valueAt(runs.get(i), percentile);
+        }
+        metrics.add(new Metric(op, percentile == 100 ? "max"
+          : "p" + format(percentile), values,
+          valueAt(pooled, percentile), valueAt(latency, percentile),
+          true, threshold));
+      }
+    }
+    return metrics;
+  }
+
+  private static double valueAt(Histogram histogram, double percentile) {
+    return percentile == 100 ? histogram.getMaxValue()
+      : histogram.getValueAtPercentile(percentile);
+  }
+
+  private static double mean(double[] values) {
+    double sum = 0;
+    for (double value : values) {
+      sum += value;
+    }
+    return sum / values.length;
+  }
+
+  private static String format(double value) {
+    return value == Math.rint(value) ? String.valueOf((long) value)
+      : String.valueOf(value);
+  }
+
+  /**
+   * Run the compare mode and log the comparison.
+   *
+   * @param files The reports of the baseline runs, then the one of the
+   *   candidate run.
+   * @param threshold Change for the worse in % tolerated.
+   * @return whether the candidate regressed.
+   * @throws IOException if a report could not be read.
+   */
+  static boolean run(final List<String> files, final double threshold)
+    throws IOException {
+    if (files.size() < 2) {
+      throw new IllegalArgumentException("Usage: " + COMMAND
+        + " BASELINE.json... CANDIDATE.json");
+    }
+    List<Report> baselines = new ArrayList<Report>();
+    for (String file : files.subList(0, files.size() - 1)) {
+      baselines.add(Report.read(file));
+    }
+    Report candidate = Report.read(files.get(files.size() - 1));
+
+    LOGGER.info("Comparing " + candidate.file + " to " + baselines.size()
+      + " baseline run(s), threshold " + format(threshold) + "%.");
+    int regressions = 0;
+    for (Metric metric : new ReportComparison(baselines, candidate,
+      threshold).compare()) {
+      if (metric.isRegression()) {
+        regressions++;
+        LOGGER.warn(metric.toString());
+      } else {
+        LOGGER.info(metric.toString());
+      }
+    }
+    if (regressions > 0) {
+      LOGGER.warn(regressions + " metric(s) regressed.");
+    } else {
+      LOGGER.info("No regression.");
+    }
+    return regressions > 0;
+  }
+
+  /**
+   * A metric of an op type, compared between the baselines and the
+   * candidate.
+   */
+  static final class Metric {
+
+    private final String op;
+    private final String name;
+    private final double baseline;
+    private final double candidate;
+    private final boolean lowerIsBetter;
+
+    /** Relative change for the worse in %, negative for the better. */
+    private final double change;
+
+    /** Spread of the baseline runs relative to the baseline, in %. */
+    private final double noise;
+
+    private final boolean regression;
+
+    Metric(String op, String name, double[] runs, double baseline,
+      double candidate, boolean lowerIsBetter, double threshold) {
+      this.op = op;
+      this.name = name;
+      this.baseline = baseline;
+      this.candidate = candidate;
+      this.lowerIsBetter = lowerIsBetter;
+      this.change = relative(lowerIsBetter
+        ? candidate - baseline : baseline - candidate, baseline);
+      double min = Double.MAX_VALUE;
+      double max = -Double.MAX_VALUE;
+      for (double run : runs) {
+        min = Math.min(min, run);
+        max = Math.max(max, run);
+      }
+      this.noise = relative(max - min, baseline);
+      this.regression = change > Math.max(threshold, noise);
+    }
+
+    private static double relative(double difference, double baseline) {
+      if (baseline == 0) {
+        return difference == 0 ? 0 : Double.POSITIVE_INFINITY;
+      }
+      return difference * 100 / baseline;
+    }
+
+    public String getOp() {
+      return op;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public double getBaseline() {
+      return baseline;
+    }
+
+    public double getCandidate() {
+      return candidate;
+    }
+
+    /**
+     * @return the change for the worse in %, negative for the better.
+     */
+    public double getChange() {
+      return change;
+    }
+
+    /**
+     * @return the spread of the baseline runs relative to the baseline, in %.
+     */
+    public double getNoise() {
+      return noise;
+    }
+
+    public boolean isRegression() {
+      return regression;
+    }
+
+    @Override
+    public String toString() {
+      double signed = lowerIsBetter ? change : -change;
+      return "\"" + op + "\" " + name + ": " + Math.round(baseline) + " -> "
+        + Math.round(candidate) + (lowerIsBetter ? "us" : "")
+        + String.format(" (%+.1f%%, noise %.1f%%)", signed, noise)
+        + (regression ? " REGRESSION" : "");
+    }
+  }
+
+  /**
+   * The metrics of a run, read from its JSON report.
+   */
+  static final class Report {
+
+    final String file;
+    final double throughput;
+    final Map<String, Double> opThroughputs;
+    final Map<String, Histogram> latencies;
+
+    Report(String file, double throughput, Map<String, Double> opThroughputs,
+      Map<String, Histogram> latencies) {
+      this.file = file;
+      this.throughput = throughput;
+      this.opThroughputs = opThroughputs;
+      this.latencies = latencies;
+    }
+
+    /**
+     * Read a report written by {@link RunReport}.
+     *
+     * @param file The report file.
+     * @return the metrics of the run.
+     * @throws IOException if the report could not be read.
+     */
+    static Report read(final String file) throws IOException {
+      String text = new String(Files.readAllBytes(Paths.get(file)),
+        StandardCharsets.UTF_8);
+      try {
+        return of(file, (Map<?, ?>) Json.parse(text));
+      } catch (ClassCastException | IllegalArgumentException
+        | NullPointerException ex) {
+        throw new IOException("Not a valid report: " + file, ex);
+      }
+    }
+
+    /**
+     * @return the metrics of a parsed report.
+     * @throws IOException if the report is of another version.
+     */
+    static Report of(final String file, final Map<?, ?> report)
+      throws IOException {
+      Number version = (Number) report.get("version");
+      if (version == null || version.intValue() != RunReport.VERSION) {
+        throw new IOException("Unsupported version " + version + " of "
+          + "report " + file);
+      }
+      Map<?, ?> results = (Map<?, ?>) report.get("results");
+      double elapsedSeconds =
+        ((Number) results.get("elapsedMs")).doubleValue() / 1000;
+
+      Map<String, Double> opThroughputs = new TreeMap<String, Double>();
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) report.get("ops")).entrySet()) {
+        Number successes = (Number)
+          ((Map<?, ?>) entry.getValue()).get(Outcome.SUCCESS.id());
+        opThroughputs.put((String) entry.getKey(), elapsedSeconds > 0
+          ? successes.doubleValue() / elapsedSeconds : 0);
+      }
+
+      Map<String, Histogram> latencies = new TreeMap<String, Histogram>();
+      for (Map.Entry<?, ?> entry
+        : ((Map<?, ?>) report.get("latencies")).entrySet()) {
+        latencies.put((String) entry.getKey(), RunReport.decode(
+          (String) ((Map<?, ?>) entry.getValue()).get("histogram")));
+      }
+      return new Report(file,
+        ((Number) results.get("throughput")).doubleValue(), opThroughputs,
+        latencies);
+    }
+  }
+}
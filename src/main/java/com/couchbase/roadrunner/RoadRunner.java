@@ -22,9 +22,10 @@
 
 package com.couchbase.roadrunner;
 
-import java.util.List;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.TreeMap;
 
 import org.HdrHistogram.Histogram;
 import org.apache.commons.cli.CommandLine;
@@ -36,8 +37,11 @@ import org.apache.commons.cli.PosixParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.couchbase.roadrunner.workloads.Engine;
+import com.couchbase.roadrunner.workloads.Measures;
+import com.couchbase.roadrunner.workloads.Outcome;
+import com.couchbase.roadrunner.workloads.WorkloadFactory;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Stopwatch;
 
 /**
  * The RoadRunner project is a load tester for your Couchbase cluster.
@@ -69,6 +73,45 @@ public final class RoadRunner {
   public static final String OPT_SAMPLING = "sampling";
   public static final String OPT_DOC_SIZE = "doc-size";
   public static final String OPT_FILENAME = "data-filename";
+  public static final String OPT_RATE = "rate";
+  public static final String OPT_DURATION = "duration";
+  public static final String OPT_REPORT_INTERVAL = "report-interval";
+  public static final String OPT_HISTOGRAM_LOG = "histogram-log";
+  public static final String OPT_REPORT = "report";
+  public static final String OPT_REPORT_CSV = "report-csv";
+  public static final String OPT_MAX_IN_FLIGHT = "max-in-flight";
+  public static final String OPT_KEY_SPACE = "key-space";
+  public static final String OPT_KEY_DISTRIBUTION = "key-distribution";
+  public static final String OPT_ZIPF_THETA = "zipf-theta";
+  public static final String OPT_HOTSPOT_FRACTION = "hotspot-fraction";
+  public static final String OPT_HOTSPOT_OPS = "hotspot-ops";
+  public static final String OPT_PHASE = "phase";
+  public static final String OPT_MIX = "mix";
+  public static final String OPT_PAYLOAD_POOL = "payload-pool";
+  public static final String OPT_DOCUMENT_MODE = "document-mode";
+  public static final String OPT_OFF_HEAP = "off-heap";
+  public static final String OPT_JSON_TEMPLATE = "json-template";
+  public static final String OPT_JSON_VARIANTS = "json-variants";
+  public static final String OPT_SIZE_DISTRIBUTION = "size-distribution";
+  public static final String OPT_DATASET = "dataset";
+  public static final String OPT_DATASET_ORDER = "dataset-order";
+  public static final String OPT_KEY_PREFIX = "key-prefix";
+  public static final String OPT_KEY_LENGTH = "key-length";
+  public static final String OPT_ERROR_SAMPLES = "error-samples";
+  public static final String OPT_BATCH_SIZE = "batch-size";
+  public static final String OPT_BATCH_CONCURRENCY = "batch-concurrency";
+  public static final String OPT_ENGINE = "engine";
+  public static final String OPT_ENV_PER_CLIENT = "env-per-client";
+  public static final String OPT_IO_POOL_SIZE = "io-pool-size";
+  public static final String OPT_COMPUTATION_POOL_SIZE = "computation-pool-size";
+  public static final String OPT_REQUEST_BUFFER_SIZE = "request-buffer-size";
+  public static final String OPT_CLIENT_SWEEP = "client-sweep";
+  public static final String OPT_PARTITION = "partition";
+  public static final String OPT_OP_TIMEOUT = "op-timeout";
+  public static final String OPT_COORDINATOR = "coordinator";
+  public static final String OPT_AGENTS = "agents";
+  public static final String OPT_AGENT = "agent";
+  public static final String OPT_THRESHOLD = "threshold";
 /** Configure a reusable logger. */
   private static final Logger LOGGER =
     LoggerFactory.getLogger(RoadRunner.class.getName());
@@ -95,15 +138,92 @@ public final class RoadRunner {
 
     if (params.hasOption(OPT_HELP)) {
       HelpFormatter formatter = new HelpFormatter();
-      formatter.printHelp("roadrunner", getCommandLineOptions());
+      formatter.printHelp("roadrunner [" + ReportComparison.COMMAND
+        + " BASELINE.json... CANDIDATE.json]", getCommandLineOptions());
       System.exit(0);
     }
 
-    GlobalConfig config = GlobalConfig.fromCommandLine(params);
-    WorkloadDispatcher dispatcher = new WorkloadDispatcher(config);
+    String[] commandArgs = params.getArgs();
+    if (commandArgs.length > 0
+      && commandArgs[0].equals(ReportComparison.COMMAND)) {
+      try {
+        boolean regressed = ReportComparison.run(
+          Arrays.asList(commandArgs).subList(1, commandArgs.length),
+          Double.parseDouble(params.getOptionValue(OPT_THRESHOLD,
+            ReportComparison.DEFAULT_THRESHOLD)));
+        System.exit(regressed ? 1 : 0);
+      } catch (Exception ex) {
+        LOGGER.error("Error while comparing the reports: ", ex);
+        System.exit(-1);
+      }
+    }
+
+    if (params.hasOption(OPT_AGENT)) {
+      try {
+        new Agent(params.getOptionValue(OPT_AGENT)).run();
+      } catch (Exception ex) {
+        LOGGER.error("Error while running the Workload: ", ex);
+        System.exit(-1);
+      }
+      return;
+    }
 
+    GlobalConfig config = GlobalConfig.fromCommandLine(params);
     LOGGER.info("Running with Config: " + config.toString());
 
+    CsvTimeSeries csv = null;
+    if (config.getReportCsv() != null) {
+      if (config.getReportInterval() <= 0) {
+        LOGGER.warn("Interval reports are disabled, not writing the CSV "
+          + "time series " + config.getReportCsv());
+      } else {
+        try {
+          csv = new CsvTimeSeries(config.getReportCsv());
+        } catch (IOException ex) {
+          LOGGER.error("Could not create the CSV time series: ", ex);
+          System.exit(-1);
+        }
+      }
+    }
+
+    RunSummary summary;
+    int agents = 0;
+    if (params.hasOption(OPT_COORDINATOR)) {
+      agents = Integer.parseInt(params.getOptionValue(OPT_AGENTS,
+        Coordinator.DEFAULT_AGENTS));
+      summary = coordinate(params, config, agents, csv);
+    } else {
+      summary = run(config, csv);
+    }
+    if (csv != null) {
+      csv.close();
+    }
+    printResults(config, summary);
+
+    if (config.getReport() != null) {
+      try {
+        RunReport.write(config.getReport(),
+          RunReport.build(config, summary, summary.getStartTime(), agents));
+        LOGGER.info("Report written to " + config.getReport());
+      } catch (IOException ex) {
+        LOGGER.error("Could not write the report: ", ex);
+        System.exit(-1);
+      }
+    }
+  }
+
+  /**
+   * Run the workload in this JVM.
+   *
+   * @param config The global configuration object with all settings.
+   * @param csv The CSV time series to write the intervals to, or null.
+   * @return the results of the run.
+   */
+  private static RunSummary run(final GlobalConfig config,
+    final CsvTimeSeries csv) {
+    WorkloadDispatcher dispatcher = new WorkloadDispatcher(config);
+    dispatcher.setIntervalListener(csv);
+
     try {
       LOGGER.debug("Initializing ClientHandlers.");
       dispatcher.init();
@@ -112,7 +232,6 @@ public final class RoadRunner {
       System.exit(-1);
     }
 
-    Stopwatch workloadStopwatch = new Stopwatch().start();
     try {
       LOGGER.info("Running Workload.");
       dispatcher.dispatchWorkload();
@@ -120,51 +239,118 @@ public final class RoadRunner {
       LOGGER.error("Error while running the Workload: ", ex);
       System.exit(-1);
     }
-    workloadStopwatch.stop();
-
     LOGGER.debug("Finished Workload.");
 
-    LOGGER.info("==== RESULTS ====");
-
     dispatcher.prepareMeasures();
+    return RunSummary.of(dispatcher);
+  }
 
-    long totalOps = dispatcher.getTotalOps();
-    long measuredOps = dispatcher.getMeasuredOps();
+  /**
+   * Run the workload on the agents connecting to this coordinator. The
+   * coordinator writes the histogram log of the merged intervals itself.
+   *
+   * @param params The parsed command line options.
+   * @param config The global configuration object with all settings.
+   * @param agents Number of agents to wait for.
+   * @param csv The CSV time series to write the merged intervals to, or null.
+   * @return the results of all agents, merged.
+   */
+  private static RunSummary coordinate(final CommandLine params,
+    final GlobalConfig config, final int agents, final CsvTimeSeries csv) {
+    HistogramLog histogramLog = null;
+    try {
+      IntervalReporter.Listener listener = csv;
+      if (config.getHistogramLog() != null) {
+        if (config.getReportInterval() <= 0) {
+          LOGGER.warn("Interval reports are disabled, not writing the "
+            + "histogram log " + config.getHistogramLog());
+        } else {
+          histogramLog = new HistogramLog(config.getHistogramLog());
+          listener = listener == null
+            ? histogramLog : listener.andThen(histogramLog);
+        }
+      }
+      Coordinator coordinator = new Coordinator(
+        Integer.parseInt(params.getOptionValue(OPT_COORDINATOR)), agents,
+        params, listener);
+      return coordinator.run();
+    } catch (Exception ex) {
+      LOGGER.error("Error while running the Workload on the agents: ", ex);
+      System.exit(-1);
+      return null;
+    } finally {
+      if (histogramLog != null) {
+        histogramLog.close();
+      }
+    }
+  }
+
+  /**
+   * Print the results of a run.
+   *
+   * @param config The global configuration object with all settings.
+   * @param summary The results of the run.
+   */
+  private static void printResults(final GlobalConfig config,
+    final RunSummary summary) {
+    LOGGER.info("==== RESULTS ====");
+
+    long totalOps = summary.getTotalOps();
+    long measuredOps = summary.getMeasuredOps();
 
     LOGGER.info("Operations: measured " + measuredOps + " ops out of total "
       + totalOps + "ops.");
+    if (config.getDuration() > 0) {
+      LOGGER.info("Ran " + totalOps + " ops in the " + config.getDuration()
+        + "s duration.");
+    }
+    if (config.getRate() > 0) {
+      LOGGER.info("Open-loop run at " + config.getRate() + " ops/s, \"*"
+        + Measures.CORRECTED_SUFFIX + "\" latencies are measured from the "
+        + "intended start of each op.");
+    }
 
-    Map<String, List<Stopwatch>> measures = dispatcher.getMeasures();
-    for (Map.Entry<String, List<Stopwatch>> entry : measures.entrySet()) {
-      Histogram h = new Histogram(10*60*1000*1000, 5);
-      for (Stopwatch watch : entry.getValue()) {
-        h.recordValue(watch.elapsed(TimeUnit.MICROSECONDS));
+    for (Map.Entry<String, long[]> entry
+      : new TreeMap<String, long[]>(summary.getOpCounts()).entrySet()) {
+      StringBuilder outcomes = new StringBuilder();
+      for (Outcome outcome : Outcome.values()) {
+        long count = entry.getValue()[outcome.ordinal()];
+        if (count > 0 || outcome == Outcome.SUCCESS) {
+          outcomes.append("   ").append(outcome.id()).append(':').append(count);
+        }
       }
+      LOGGER.info("Outcomes for \"" + entry.getKey() + "\" ops:" + outcomes);
+    }
 
-      LOGGER.info("Percentile (microseconds) for \""+entry.getKey()+"\" Workload:");
-      LOGGER.info("   50%:" + (Math.round(h.getValueAtPercentile(0.5) * 100)/100)
-        + "   75%:" + (Math.round(h.getValueAtPercentile(0.75) * 100)/100)
-        + "   95%:" + (Math.round(h.getValueAtPercentile(0.95) * 100)/100)
-        + "   99%:" + (Math.round(h.getValueAtPercentile(0.99) * 100)/100));
+    for (Map.Entry<String, Long> entry : summary.getErrors().entrySet()) {
+      LOGGER.info("Errors \"" + entry.getKey() + "\": " + entry.getValue());
     }
 
-    LOGGER.info("Elapsed: " + workloadStopwatch.elapsed(TimeUnit.MILLISECONDS) + "ms");
+    Map<String, Histogram> measures = summary.getMeasures();
+    for (Map.Entry<String, Histogram> entry : measures.entrySet()) {
+      Histogram h = entry.getValue();
+      LOGGER.info("Percentile (microseconds) for \""+entry.getKey()+"\" Workload:");
+      LOGGER.info("   ops:" + h.getTotalCount()
+        + "   50%:" + h.getValueAtPercentile(50)
+        + "   75%:" + h.getValueAtPercentile(75)
+        + "   95%:" + h.getValueAtPercentile(95)
+        + "   99%:" + h.getValueAtPercentile(99)
+        + "   99.9%:" + h.getValueAtPercentile(99.9)
+        + "   max:" + h.getMaxValue());
+    }
 
-    List<Stopwatch> elapsedThreads = dispatcher.getThreadElapsed();
-    long shortestThread = 0;
-    long longestThread = 0;
-    for(Stopwatch threadWatch : elapsedThreads) {
-      long threadMs = threadWatch.elapsed(TimeUnit.MILLISECONDS);
-      if (longestThread == 0 || threadMs > longestThread) {
-        longestThread = threadMs;
-      }
-      if(shortestThread == 0 || threadMs < shortestThread) {
-        shortestThread = threadMs;
+    long elapsedMs = summary.getElapsedMs();
+    LOGGER.info("Elapsed: " + elapsedMs + "ms");
+    if (elapsedMs > 0) {
+      String throughput = "Throughput: " + (totalOps * 1000 / elapsedMs) + " ops/s";
+      if (config.getRate() > 0) {
+        throughput += " (requested " + config.getRate() + " ops/s)";
       }
+      LOGGER.info(throughput);
     }
 
-    LOGGER.info("Shortest Thread: " + shortestThread + "ms");
-    LOGGER.info("Longest Thread: " + longestThread + "ms");
+    LOGGER.info("Shortest Thread: " + summary.getShortestThreadMs() + "ms");
+    LOGGER.info("Longest Thread: " + summary.getLongestThreadMs() + "ms");
 
   }
 
@@ -215,8 +401,9 @@ public final class RoadRunner {
     options.addOption("s", OPT_SAMPLING, true, "% Sample Rate (default \""
                     + GlobalConfig.DEFAULT_SAMPLING + "%\")");
     options.addOption("w", OPT_WORKLOAD, true,
-      "Workload - name of the workload (default: \""
-        + GlobalConfig.DEFAULT_WORKLOAD + "\".");
+      "Workload - name of the workload, out of "
+        + WorkloadFactory.getWorkloadNames() + " (default: \""
+        + GlobalConfig.DEFAULT_WORKLOAD + "\").");
     options.addOption("r", OPT_RAMP, true,
       "Ramp-Up time in seconds - ignored ops (default: \""
         + GlobalConfig.DEFAULT_RAMP + "\".");
@@ -225,6 +412,149 @@ public final class RoadRunner {
     options.addOption("h", OPT_HELP, false,
       "Print this help message.");
     options.addOption("f", OPT_FILENAME, true, "filename containing the data to use in the test");
+    options.addOption(null, OPT_RATE, true,
+      "Target throughput in ops/s across all clients and threads, runs "
+        + "open-loop on a fixed schedule (default: \"" + GlobalConfig.DEFAULT_RATE + "\", no target).");
+    options.addOption(null, OPT_DURATION, true,
+      "Duration of the run in seconds, overrides the number of documents "
+        + "(default: \"" + GlobalConfig.DEFAULT_DURATION + "\", no limit).");
+    options.addOption(null, OPT_REPORT_INTERVAL, true,
+      "Seconds between interval reports, 0 to disable (default: \""
+        + GlobalConfig.DEFAULT_REPORT_INTERVAL + "\").");
+    options.addOption(null, OPT_HISTOGRAM_LOG, true,
+      "File to write the interval histograms to, in HdrHistogram log format.");
+    options.addOption(null, OPT_REPORT, true,
+      "File to write the report of the run to, as JSON: configuration, "
+        + "environment, op counts, throughput, and the percentiles and "
+        + "encoded histogram of each op type.");
+    options.addOption(null, OPT_REPORT_CSV, true,
+      "File to write the throughput and percentiles of each interval to, as "
+        + "CSV. Needs --" + OPT_REPORT_INTERVAL + ".");
+    options.addOption(null, OPT_MAX_IN_FLIGHT, true,
+      "Maximum number of in-flight ops per worker thread, 0 for no limit "
+        + "(default: \"" + GlobalConfig.DEFAULT_MAX_IN_FLIGHT + "\").");
+    options.addOption(null, OPT_KEY_SPACE, true,
+      "Number of keys to work with, 0 for a new random key per op "
+        + "(default: \"" + GlobalConfig.DEFAULT_KEY_SPACE + "\").");
+    options.addOption(null, OPT_KEY_DISTRIBUTION, true,
+      "Distribution of the keys in the key space: uniform, zipfian, hotspot, "
+        + "sequential or latest (default: \""
+        + GlobalConfig.DEFAULT_KEY_DISTRIBUTION + "\").");
+    options.addOption(null, OPT_ZIPF_THETA, true,
+      "Skew of the zipfian and latest key distributions (default: \""
+        + GlobalConfig.DEFAULT_ZIPF_THETA + "\").");
+    options.addOption(null, OPT_HOTSPOT_FRACTION, true,
+      "Fraction of the keys in the hot set of the hotspot distribution "
+        + "(default: \"" + GlobalConfig.DEFAULT_HOTSPOT_FRACTION + "\").");
+    options.addOption(null, OPT_HOTSPOT_OPS, true,
+      "Fraction of the ops going to the hot set of the hotspot distribution "
+        + "(default: \"" + GlobalConfig.DEFAULT_HOTSPOT_OPS + "\").");
+    options.addOption(null, OPT_PHASE, true,
+      "Phases to run: \"load\" fills the key space with documents, \"run\" "
+        + "runs the workload, \"both\" does one then the other (default: \""
+        + GlobalConfig.DEFAULT_PHASE + "\").");
+    options.addOption(null, OPT_MIX, true,
+      "Ops of the \"mix\" workload and their weights, out of get, upsert, "
+        + "insert, replace, remove, touch, counter and append (default: \""
+        + GlobalConfig.DEFAULT_MIX + "\").");
+    options.addOption(null, OPT_PAYLOAD_POOL, true,
+      "Number of distinct random documents generated up front and reused, "
+        + "0 to generate one per op (default: \""
+        + GlobalConfig.DEFAULT_PAYLOAD_POOL + "\").");
+    options.addOption(null, OPT_DOCUMENT_MODE, true,
+      "How documents are stored: \"legacy\" Java-serializes them, \"binary\" "
+        + "writes the raw bytes and releases fetched ones undecoded (default: \""
+        + GlobalConfig.DEFAULT_DOCUMENT_MODE + "\").");
+    options.addOption(null, OPT_OFF_HEAP, false,
+      "Keep the contents of binary documents in direct buffers.");
+    options.addOption(null, OPT_JSON_TEMPLATE, true,
+      "JSON template file to generate documents from, with placeholders like "
+        + "${int:0:100}, ${bool}, ${timestamp}, ${words:1:5}, ${string:8:16} "
+        + "and ${array:1:5:int:0:9}. Implies --document-mode binary.");
+    options.addOption(null, OPT_JSON_VARIANTS, true,
+      "Number of distinct documents generated from the JSON template up "
+        + "front (default: \"" + GlobalConfig.DEFAULT_JSON_VARIANTS + "\").");
+    options.addOption(null, OPT_SIZE_DISTRIBUTION, true,
+      "Distribution of the sizes of random documents: \"fixed\" (--doc-size), "
+        + "\"uniform:MIN:MAX\", \"normal:MEAN:STDDEV\" or \"histogram:FILE\" "
+        + "with one \"UPPER_BOUND WEIGHT\" line per bin. Writes are then also "
+        + "measured per size bucket (default: \""
+        + GlobalConfig.DEFAULT_SIZE_DISTRIBUTION + "\").");
+    options.addOption(null, OPT_DATASET, true,
+      "Dataset file with one document per line (like JSONL) to write, "
+        + "memory-mapped and indexed into FILE.idx. Implies "
+        + "--document-mode binary.");
+    options.addOption(null, OPT_DATASET_ORDER, true,
+      "Order to write the dataset documents in: \"random\" or \"sequential\" "
+        + "(default: \"" + GlobalConfig.DEFAULT_DATASET_ORDER + "\").");
+    options.addOption(null, OPT_KEY_PREFIX, true,
+      "Prefix of the keys (default: \"" + GlobalConfig.DEFAULT_KEY_PREFIX
+        + "\").");
+    options.addOption(null, OPT_KEY_LENGTH, true,
+      "Length of the keys, prefix included: key space indexes are padded "
+        + "with zeros and random keys get as many random hex digits. 0 keeps "
+        + "indexes unpadded and gives random keys 32 hex digits (default: "
+        + GlobalConfig.DEFAULT_KEY_LENGTH + ").");
+    options.addOption(null, OPT_ERROR_SAMPLES, true,
+      "Number of failed ops to log with their stack trace. The others are "
+        + "only counted by op and error type (default: "
+        + GlobalConfig.DEFAULT_ERROR_SAMPLES + ").");
+    options.addOption(null, OPT_BATCH_SIZE, true,
+      "Number of keys per batch of the \"batch\" workload (default: "
+        + GlobalConfig.DEFAULT_BATCH_SIZE + ").");
+    options.addOption(null, OPT_BATCH_CONCURRENCY, true,
+      "Keys of a batch in flight at once, 0 for all of them (default: "
+        + GlobalConfig.DEFAULT_BATCH_CONCURRENCY + ").");
+    options.addOption(null, OPT_ENGINE, true,
+      "How each thread runs its ops: \"async\" keeps --max-in-flight ops "
+        + "in flight, \"blocking\" waits for each op before the next one, "
+        + "\"virtual\" waits for each op on a virtual thread of its own "
+        + "(Java 21+, " + Engine.DEFAULT_VIRTUAL_IN_FLIGHT + " in flight per "
+        + "thread unless --max-in-flight is given) (default: \""
+        + GlobalConfig.DEFAULT_ENGINE + "\").");
+    options.addOption(null, OPT_ENV_PER_CLIENT, false,
+      "Give each CouchbaseClient its own environment (IO and computation "
+        + "pools, request ring buffer), like separate application instances, "
+        + "instead of sharing one.");
+    options.addOption(null, OPT_IO_POOL_SIZE, true,
+      "Size of the IO pool of each environment, 0 for the SDK default "
+        + "(default: " + GlobalConfig.DEFAULT_IO_POOL_SIZE + ").");
+    options.addOption(null, OPT_COMPUTATION_POOL_SIZE, true,
+      "Size of the computation pool of each environment, 0 for the SDK "
+        + "default (default: " + GlobalConfig.DEFAULT_COMPUTATION_POOL_SIZE
+        + ").");
+    options.addOption(null, OPT_REQUEST_BUFFER_SIZE, true,
+      "Size of the request ring buffer of each environment, a power of two, "
+        + "0 for the SDK default (default: "
+        + GlobalConfig.DEFAULT_REQUEST_BUFFER_SIZE + ").");
+    options.addOption(null, OPT_CLIENT_SWEEP, false,
+      "Run the workload with 1, 2, 4... CouchbaseClients up to --num-clients "
+        + "and report how the throughput scales.");
+    options.addOption(null, OPT_PARTITION, true,
+      "Share of the work this process runs alongside others, as INDEX/COUNT: "
+        + "--num-docs and the documents of the load phase are split across "
+        + "the COUNT processes. Set by the coordinator for each agent "
+        + "(default: \"" + GlobalConfig.DEFAULT_PARTITION + "\").");
+    options.addOption(null, OPT_OP_TIMEOUT, true,
+      "Time after which an op fails as timed out, in milliseconds, 0 for "
+        + "none. The async API the workloads use applies no timeout of its "
+        + "own (default: " + GlobalConfig.DEFAULT_OP_TIMEOUT + ").");
+    options.addOption(null, OPT_COORDINATOR, true,
+      "Run as coordinator: wait for --agents agents on the given port, run "
+        + "the workload given by the other options on all of them at once "
+        + "and merge their histograms.");
+    options.addOption(null, OPT_AGENTS, true,
+      "Number of agents the coordinator waits for (default: "
+        + Coordinator.DEFAULT_AGENTS + ").");
+    options.addOption(null, OPT_AGENT, true,
+      "Run as agent of the coordinator at HOST:PORT, with the options it "
+        + "sends. Other options are ignored.");
+    options.addOption(null, OPT_THRESHOLD, true,
+      "With \"" + ReportComparison.COMMAND + "\": change for the worse in % "
+        + "of the throughput or a latency percentile which fails the "
+        + "comparison, unless within the noise of several baselines. Exits "
+        + "with 1 on a regression (default: "
+        + ReportComparison.DEFAULT_THRESHOLD + ").");
     return options;
   }
 }
@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+
+import com.couchbase.client.java.CouchbaseCluster;
+import com.couchbase.roadrunner.workloads.Outcome;
+
+/**
+ * The RunReport writes the results of a run as a JSON file, for tools like
+ * CI jobs to track them across runs.
+ *
+ * Next to the configuration and the environment of the run (host, JVM and
+ * SDK), it holds the op counts by outcome, the throughput and, for each op
+ * type, the latency percentiles in microseconds, the full percentile
+ * spectrum and the whole histogram, compressed and base64 encoded, so that
+ * other percentiles can still be computed (or runs merged) later on. The
+ * spectrum lists [percentile, value, count up to the value] entries, with
+ * more entries towards the tail, like the HdrHistogram percentile output.
+ */
+final class RunReport {
+
+  /** Version of the report format, bumped on incompatible changes. */
+  static final int VERSION = 1;
+
+  /** The percentiles reported for each op type. */
+  static final List<Double> PERCENTILES = Arrays.asList(50.0, 75.0, 90.0,
+    95.0, 99.0, 99.9, 99.99, 99.999, 100.0);
+
+  /** Reporting ticks per half distance to 100% of the spectrum. */
+  private static final int SPECTRUM_TICKS = 5;
+
+  /** Do not instantiate. */
+  private RunReport() { }
+
+  /**
+   * Build the report of a run.
+   *
+   * @param config The global configuration object with all settings.
+   * @param summary The results of the run.
+   * @param startTime When the run started (epoch millis).
+   * @param agents Number of agents the run was spread over, 0 if it ran in
+   *   this JVM only.
+   * @return the report, as nested maps and lists.
+   */
+  static Map<String, Object> build(final GlobalConfig config,
+    final RunSummary summary, final long startTime, final int agents) {
+    Map<String, Object> report = new LinkedHashMap<String, Object>();
+    report.put("version", VERSION);
+    report.put("start", timestamp(startTime));
+    report.put("config", config.toMap());
+    report.put("environment", environment(agents));
+
+    Map<String, Object> results = new LinkedHashMap<String, Object>();
+    results.put("elapsedMs", summary.getElapsedMs());
+    results.put("totalOps", summary.getTotalOps());
+    results.put("measuredOps", summary.getMeasuredOps());
+    results.put("throughput", summary.getElapsedMs() > 0
+      ? summary.getTotalOps() * 1000.0 / summary.getElapsedMs() : 0.0);
+    results.put("shortestThreadMs", summary.getShortestThreadMs());
+    results.put("longestThreadMs", summary.getLongestThreadMs());
+    report.put("results", results);
+
+    Map<String, Object> ops = new LinkedHashMap<String, Object>();
+    for (Map.Entry<String, long[]> entry : summary.getOpCounts().entrySet()) {
+      Map<String, Object> outcomes = new LinkedHashMap<String, Object>();
+      for (Outcome outcome : Outcome.values()) {
+        outcomes.put(outcome.id(), entry.getValue()[outcome.ordinal()]);
+      }
+      ops.put(entry.getKey(), outcomes);
+    }
+    report.put("ops", ops);
+    report.put("errors", summary.getErrors());
+
+    Map<String, Object> latencies = new LinkedHashMap<String, Object>();
+    for (Map.Entry<String, Histogram> entry
+      : summary.getMeasures().entrySet()) {
+      latencies.put(entry.getKey(), latency(entry.getValue()));
+    }
+    report.put("latencies", latencies);
+    return report;
+  }
+
+  /**
+   * Write a report to a file.
+   *
+   * @param file The file to write to.
+   * @param report The report, as built by {@link #build}.
+   * @throws IOException if the file could not be written.
+   */
+  static void write(final String file, final Map<String, Object> report)
+    throws IOException {
+    try (Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+      StandardCharsets.UTF_8)) {
+      writer.write(Json.write(report));
+    }
+  }
+
+  private static Map<String, Object> latency(Histogram h) {
+    Map<String, Object> latency = new LinkedHashMap<String, Object>();
+    latency.put("count", h.getTotalCount());
+    latency.put("min", h.getMinValue());
+    latency.put("mean", h.getMean());
+    latency.put("stddev", h.getStdDeviation());
+    latency.put("max", h.getMaxValue());
+
+    Map<String, Object> percentiles = new LinkedHashMap<String, Object>();
+    for (double percentile : PERCENTILES) {
+      percentiles.put(String.valueOf(percentile),
+        h.getValueAtPercentile(percentile));
+    }
+    latency.put("percentiles", percentiles);
+
+    List<Object> spectrum = new ArrayList<Object>();
+    for (HistogramIterationValue value : h.percentiles(SPECTRUM_TICKS)) {
+      spectrum.add(Arrays.asList(value.getPercentileLevelIteratedTo(),
+        value.getValueIteratedTo(), value.getTotalCountToThisValue()));
+    }
+    latency.put("spectrum", spectrum);
+    latency.put("histogram", encode(h));
+    return latency;
+  }
+
+  private static Map<String, Object> environment(int agents) {
+    Runtime runtime = Runtime.getRuntime();
+    Map<String, Object> environment = new LinkedHashMap<String, Object>();
+    environment.put("host", hostName());
+    environment.put("os", System.getProperty("os.name") + " "
+      + System.getProperty("os.version") + " " + System.getProperty("os.arch"));
+    environment.put("processors", runtime.availableProcessors());
+    environment.put("maxHeapBytes", runtime.maxMemory());
+    environment.put("javaVersion", System.getProperty("java.version"));
+    environment.put("javaVendor", System.getProperty("java.vendor"));
+    environment.put("jvm", System.getProperty("java.vm.name") + " "
+      + System.getProperty("java.vm.version"));
+    environment.put("jvmArguments",
+      ManagementFactory.getRuntimeMXBean().getInputArguments());
+    environment.put("sdkVersion",
+      CouchbaseCluster.class.getPackage().getImplementationVersion());
+    environment.put("agents", agents);
+    return environment;
+  }
+
+  private static String hostName() {
+    try {
+      return InetAddress.getLocalHost().getHostName();
+    } catch (UnknownHostException ex) {
+      return null;
+    }
+  }
+
+  private static String timestamp(long millis) {
+    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
+    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+    return format.format(new Date(millis));
+  }
+
+  /**
+   * @return the histogram, compressed and base64 encoded.
+   */
+  static String encode(final Histogram histogram) {
+    ByteBuffer buffer =
+      ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+    int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+    return Base64.getEncoder().encodeToString(
+      Arrays.copyOf(buffer.array(), length));
+  }
+
+  /**
+   * @return the histogram encoded by {@link #encode(Histogram)}.
+   * @throws IOException if the histogram could not be decoded.
+   */
+  static Histogram decode(final String encoded) throws IOException {
+    try {
+      return Histogram.decodeFromCompressedByteBuffer(
+        ByteBuffer.wrap(Base64.getDecoder().decode(encoded)), 0);
+    } catch (DataFormatException | IllegalArgumentException ex) {
+      throw new IOException("Could not decode the histogram", ex);
+    }
+  }
+}
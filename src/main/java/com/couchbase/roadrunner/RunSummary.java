@@ -0,0 +1,294 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+import org.HdrHistogram.Histogram;
+
+import com.couchbase.roadrunner.workloads.Measures;
+import com.couchbase.roadrunner.workloads.OpCounters;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
+
+/**
+ * The results of a run: ops, outcome and error counts, and the latency
+ * histograms of each op type.
+ *
+ * Summaries of runs against the same cluster at the same time, for example
+ * by several agents, can be merged into one. Histograms are added up, so the
+ * percentiles of the merged summary are the true percentiles across all runs.
+ */
+final class RunSummary {
+
+  private long startTime;
+  private long totalOps;
+  private long measuredOps;
+  private long elapsedMs;
+  private long shortestThreadMs;
+  private long longestThreadMs;
+  private final Map<String, long[]> opCounts;
+  private final Map<String, Long> errors;
+  private final Map<String, Histogram> measures;
+
+  RunSummary() {
+    this.opCounts = new TreeMap<String, long[]>();
+    this.errors = new TreeMap<String, Long>();
+    this.measures = new TreeMap<String, Histogram>();
+  }
+
+  @VisibleForTesting
+  RunSummary(long startTime, long totalOps, long elapsedMs) {
+    this();
+    this.startTime = startTime;
+    this.totalOps = totalOps;
+    this.measuredOps = totalOps;
+    this.elapsedMs = elapsedMs;
+  }
+
+  /**
+   * Collects the results of a run, once its measures are prepared.
+   *
+   * Ops, errors and time are the ones of the last phase (or client sweep
+   * step), so that the throughput does not mix load and run phases.
+   *
+   * @param dispatcher The dispatcher which ran the workload.
+   * @return the summary of the run.
+   */
+  static RunSummary of(final WorkloadDispatcher dispatcher) {
+    RunSummary summary = new RunSummary();
+    summary.startTime = dispatcher.getPhaseStart();
+    summary.totalOps = dispatcher.getTotalOps();
+    summary.measuredOps = dispatcher.getMeasuredOps();
+    summary.elapsedMs = dispatcher.getPhaseElapsed();
+    summary.opCounts.putAll(dispatcher.getOpCounts());
+    summary.errors.putAll(dispatcher.getErrorTracker().getCounts());
+    summary.measures.putAll(dispatcher.getMeasures());
+    for (Stopwatch threadWatch : dispatcher.getThreadElapsed()) {
+      summary.addThread(threadWatch.elapsed(TimeUnit.MILLISECONDS));
+    }
+    return summary;
+  }
+
+  private void addThread(long threadMs) {
+    if (longestThreadMs == 0 || threadMs > longestThreadMs) {
+      longestThreadMs = threadMs;
+    }
+    if (shortestThreadMs == 0 || threadMs < shortestThreadMs) {
+      shortestThreadMs = threadMs;
+    }
+  }
+
+  /**
+   * Adds the results of a run which ran alongside this one.
+   *
+   * The start is the earliest and the elapsed time the longest of both, as
+   * the runs overlapped.
+   *
+   * @param other The summary to add to this one.
+   */
+  void merge(final RunSummary other) {
+    if (startTime == 0 || (other.startTime > 0 && other.startTime < startTime)) {
+      startTime = other.startTime;
+    }
+    totalOps += other.totalOps;
+    measuredOps += other.measuredOps;
+    elapsedMs = Math.max(elapsedMs, other.elapsedMs);
+    if (other.shortestThreadMs > 0) {
+      addThread(other.shortestThreadMs);
+    }
+    if (other.longestThreadMs > 0) {
+      addThread(other.longestThreadMs);
+    }
+    OpCounters.merge(opCounts, other.opCounts);
+    for (Map.Entry<String, Long> entry : other.errors.entrySet()) {
+      Long count = errors.get(entry.getKey());
+      errors.put(entry.getKey(), entry.getValue()
+        + (count == null ? 0 : count));
+    }
+    Measures.merge(measures, other.measures);
+  }
+
+  /**
+   * Writes this summary, with its histograms in compressed form.
+   *
+   * @param out The output to write to.
+   * @throws IOException if the summary could not be written.
+   */
+  void writeTo(final DataOutput out) throws IOException {
+    out.writeLong(startTime);
+    out.writeLong(totalOps);
+    out.writeLong(measuredOps);
+    out.writeLong(elapsedMs);
+    out.writeLong(shortestThreadMs);
+    out.writeLong(longestThreadMs);
+    out.writeInt(opCounts.size());
+    for (Map.Entry<String, long[]> entry : opCounts.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeInt(entry.getValue().length);
+      for (long count : entry.getValue()) {
+        out.writeLong(count);
+      }
+    }
+    out.writeInt(errors.size());
+    for (Map.Entry<String, Long> entry : errors.entrySet()) {
+      out.writeUTF(entry.getKey());
+      out.writeLong(entry.getValue());
+    }
+    writeHistograms(out, measures);
+  }
+
+  /**
+   * Reads a summary written by {@link #writeTo(DataOutput)}.
+   *
+   * @param in The input to read from.
+   * @return the summary read.
+   * @throws IOException if the summary could not be read.
+   */
+  static RunSummary readFrom(final DataInput in) throws IOException {
+    RunSummary summary = new RunSummary();
+    summary.startTime = in.readLong();
+    summary.totalOps = in.readLong();
+    summary.measuredOps = in.readLong();
+    summary.elapsedMs = in.readLong();
+    summary.shortestThreadMs = in.readLong();
+    summary.longestThreadMs = in.readLong();
+    int ops = in.readInt();
+    for (int i = 0; i < ops; i++) {
+      String identifier = in.readUTF();
+      long[] counts = new long[in.readInt()];
+      for (int j = 0; j < counts.length; j++) {
+        counts[j] = in.readLong();
+      }
+      summary.opCounts.put(identifier, counts);
+    }
+    int errors = in.readInt();
+    for (int i = 0; i < errors; i++) {
+      summary.errors.put(in.readUTF(), in.readLong());
+    }
+    summary.measures.putAll(readHistograms(in));
+    return summary;
+  }
+
+  /**
+   * Writes histograms by identifier, each one in compressed form.
+   *
+   * @param out The output to write to.
+   * @param histograms The histograms to write.
+   * @throws IOException if the histograms could not be written.
+   */
+  static void writeHistograms(final DataOutput out,
+    final Map<String, Histogram> histograms) throws IOException {
+    out.writeInt(histograms.size());
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      Histogram histogram = entry.getValue();
+      ByteBuffer buffer =
+        ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+      int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+      out.writeUTF(entry.getKey());
+      out.writeInt(length);
+      out.write(buffer.array(), 0, length);
+    }
+  }
+
+  /**
+   * Reads histograms written by {@link #writeHistograms}.
+   *
+   * @param in The input to read from.
+   * @return the histograms by identifier.
+   * @throws IOException if the histograms could not be read or decoded.
+   */
+  static Map<String, Histogram> readHistograms(final DataInput in)
+    throws IOException {
+    Map<String, Histogram> histograms = new TreeMap<String, Histogram>();
+    int count = in.readInt();
+    for (int i = 0; i < count; i++) {
+      String identifier = in.readUTF();
+      byte[] encoded = new byte[in.readInt()];
+      in.readFully(encoded);
+      try {
+        histograms.put(identifier, Histogram.decodeFromCompressedByteBuffer(
+          ByteBuffer.wrap(encoded), 0));
+      } catch (DataFormatException ex) {
+        throw new IOException("Could not decode the histogram of \""
+          + identifier + "\"", ex);
+      }
+    }
+    return histograms;
+  }
+
+  /**
+   * @return when the run started (epoch millis).
+   */
+  public long getStartTime() {
+    return startTime;
+  }
+
+  public long getTotalOps() {
+    return totalOps;
+  }
+
+  public long getMeasuredOps() {
+    return measuredOps;
+  }
+
+  public long getElapsedMs() {
+    return elapsedMs;
+  }
+
+  public long getShortestThreadMs() {
+    return shortestThreadMs;
+  }
+
+  public long getLongestThreadMs() {
+    return longestThreadMs;
+  }
+
+  /**
+   * @return the op counts by op identifier, indexed by outcome ordinal.
+   */
+  public Map<String, long[]> getOpCounts() {
+    return opCounts;
+  }
+
+  /**
+   * @return the error counts by op identifier and error type.
+   */
+  public Map<String, Long> getErrors() {
+    return errors;
+  }
+
+  /**
+   * @return the latency histograms by op identifier.
+   */
+  public Map<String, Histogram> getMeasures() {
+    return measures;
+  }
+}
@@ -26,17 +26,36 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
+import org.HdrHistogram.Histogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.couchbase.client.java.Cluster;
 import com.couchbase.client.java.CouchbaseCluster;
-import com.couchbase.roadrunner.workloads.Workload;
+import com.couchbase.client.java.env.CouchbaseEnvironment;
+import com.couchbase.client.java.env.DefaultCouchbaseEnvironment;
+import com.couchbase.roadrunner.workloads.DocumentMode;
+import com.couchbase.roadrunner.workloads.Engine;
+import com.couchbase.roadrunner.workloads.ErrorTracker;
+import com.couchbase.roadrunner.workloads.JsonTemplateDocumentFactory;
+import com.couchbase.roadrunner.workloads.KeySpace;
+import com.couchbase.roadrunner.workloads.LoadWorkload;
+import com.couchbase.roadrunner.workloads.MappedDatasetDocumentFactory;
+import com.couchbase.roadrunner.workloads.Measures;
+import com.couchbase.roadrunner.workloads.OpCounters;
+import com.couchbase.roadrunner.workloads.OperationMix;
+import com.couchbase.roadrunner.workloads.RateLimiter;
+import com.couchbase.roadrunner.workloads.SizeDistribution;
 import com.couchbase.roadrunner.workloads.Workload.DocumentFactory;
 import com.couchbase.roadrunner.workloads.Workload.FixedSizeRandomDocumentFactory;
 import com.couchbase.roadrunner.workloads.Workload.SingleFileDocumentFactory;
+import com.couchbase.roadrunner.workloads.Workload.VariableSizeRandomDocumentFactory;
+import com.couchbase.roadrunner.workloads.WorkloadContext;
 import com.couchbase.roadrunner.workloads.WorkloadFactory;
+import com.couchbase.roadrunner.workloads.WorkloadProvider;
 import com.google.common.base.Stopwatch;
 
 /**
@@ -49,14 +68,36 @@ final class WorkloadDispatcher {
   static final Logger LOGGER =
     LoggerFactory.getLogger(WorkloadDispatcher.class.getName());
 
+  public static final String PHASE_LOAD = "load";
+  public static final String PHASE_RUN = "run";
+  public static final String PHASE_BOTH = "both";
+
   /** The global configuration object. */
   private final GlobalConfig config;
-  private final Cluster cluster;
+
+  /** The cluster references, one per ClientHandler or a shared one. */
+  private final List<Cluster> clusters;
+
+  /** The environments created here, to shut down after disconnecting. */
+  private final List<CouchbaseEnvironment> environments;
 
   /** Links to the clientHandlers for each CouchabaseClient. */
   private List<ClientHandler> clientHandlers;
 
-  Map<String, List<Stopwatch>> mergedMeasures;
+  Map<String, Histogram> mergedMeasures;
+
+  /** Ops of the phases which already completed. */
+  private volatile long completedPhasesOps;
+
+  /** Start (epoch millis) and duration of the last phase run. */
+  private long phaseStart;
+  private long phaseMs;
+
+  /** Errors of the failed ops, shared by all workloads. */
+  private final ErrorTracker errorTracker;
+
+  /** Receives the measures of each reported interval, may be null. */
+  private IntervalReporter.Listener intervalListener;
 
   /**
    * Create the WorkloadDispatcher object.
@@ -65,9 +106,11 @@ final class WorkloadDispatcher {
    */
   public WorkloadDispatcher(final GlobalConfig config) {
     this.config = config;
-    this.cluster = CouchbaseCluster.create(config.getNodes());
+    this.clusters = new ArrayList<Cluster>();
+    this.environments = new ArrayList<CouchbaseEnvironment>();
     this.clientHandlers = new ArrayList<ClientHandler>();
-    this.mergedMeasures = new HashMap<String, List<Stopwatch>>();
+    this.mergedMeasures = new HashMap<String, Histogram>();
+    this.errorTracker = new ErrorTracker(config.getErrorSamples());
   }
 
   /**
@@ -75,42 +118,294 @@ final class WorkloadDispatcher {
    */
   public void init() throws Exception {
     try {
-      long docsPerHandler = (long)Math.floor(
-          config.getNumDocs()/config.getNumClients());
       for (int i=0;i<config.getNumClients();i++) {
-        clientHandlers.add(new ClientHandler(config, cluster, "ClientHandler-"+(i+1),
-            docsPerHandler));
+        if (i == 0 || config.isEnvPerClient()) {
+          clusters.add(connect());
+        }
+        clientHandlers.add(new ClientHandler(config,
+          clusters.get(clusters.size() - 1), i));
       }
     } catch (Exception e) {
-      //fire disconnection and wait for it to be effective
-      cluster.disconnect().toBlocking().single();
+      disconnect();
       throw e;
     }
   }
 
+  /**
+   * Create a cluster reference. It gets an environment of its own when one
+   * per ClientHandler is asked for or when the environment is tuned.
+   *
+   * @return the cluster reference.
+   */
+  private Cluster connect() {
+    if (!config.isEnvPerClient() && config.getIoPoolSize() <= 0
+      && config.getComputationPoolSize() <= 0
+      && config.getRequestBufferSize() <= 0) {
+      return CouchbaseCluster.create(config.getNodes());
+    }
+    DefaultCouchbaseEnvironment.Builder builder =
+      DefaultCouchbaseEnvironment.builder();
+    if (config.getIoPoolSize() > 0) {
+      builder.ioPoolSize(config.getIoPoolSize());
+    }
+    if (config.getComputationPoolSize() > 0) {
+      builder.computationPoolSize(config.getComputationPoolSize());
+    }
+    if (config.getRequestBufferSize() > 0) {
+      builder.requestBufferSize(config.getRequestBufferSize());
+    }
+    CouchbaseEnvironment environment = builder.build();
+    environments.add(environment);
+    return CouchbaseCluster.create(environment, config.getNodes());
+  }
+
+  /**
+   * Disconnect the cluster references and wait for it to be effective, then
+   * shut down the environments they were given.
+   */
+  private void disconnect() {
+    for (Cluster cluster : clusters) {
+      cluster.disconnect().toBlocking().single();
+    }
+    for (CouchbaseEnvironment environment : environments) {
+      environment.shutdown().toBlocking().single();
+    }
+  }
+
   /**
    * Distribute and run the workload against the ClientHandlers.
+   *
+   * Depending on the configured phase, the key space is first loaded with
+   * documents and/or the configured workload is run.
    */
   public void dispatchWorkload() throws Exception {
     try {
+      boolean load = config.getPhase().equals(PHASE_LOAD)
+        || config.getPhase().equals(PHASE_BOTH);
+      boolean run = config.getPhase().equals(PHASE_RUN)
+        || config.getPhase().equals(PHASE_BOTH);
+      if (!load && !run) {
+        throw new IllegalArgumentException("Could not find phase: "
+          + config.getPhase());
+      }
+      if (load && config.getKeySpace() <= 0) {
+        throw new IllegalArgumentException("The load phase needs a key space.");
+      }
+      WorkloadProvider workload = run
+        ? WorkloadFactory.getWorkload(config.getWorkload()) : null;
+
+      boolean variableSizes = !config.getSizeDistribution().equals(
+        SizeDistribution.FIXED);
       DocumentFactory documentFactory;
-      if (config.getFilename() == null)
-        documentFactory = new FixedSizeRandomDocumentFactory(config.getDocumentSize());
+      if (config.getDataset() != null)
+        documentFactory = new MappedDatasetDocumentFactory(config.getDataset(),
+          config.getDatasetOrder());
+      else if (config.getJsonTemplate() != null)
+        documentFactory = new JsonTemplateDocumentFactory(
+          config.getJsonTemplate(), config.getJsonVariants(), config.isOffHeap());
+      else if (config.getFilename() == null && variableSizes)
+        documentFactory = new VariableSizeRandomDocumentFactory(
+          SizeDistribution.fromSpec(config.getSizeDistribution(),
+            config.getDocumentSize()),
+          config.getPayloadPool(), config.isOffHeap());
+      else if (config.getFilename() == null)
+        documentFactory = new FixedSizeRandomDocumentFactory(config.getDocumentSize(),
+          config.getPayloadPool(), config.isOffHeap());
       else
-        documentFactory = new SingleFileDocumentFactory(config.getFilename());
+        documentFactory = new SingleFileDocumentFactory(config.getFilename(),
+          config.isOffHeap());
+      // measure writes per size bucket when documents vary in size
+      boolean measureSizes = documentFactory instanceof MappedDatasetDocumentFactory
+        || documentFactory instanceof JsonTemplateDocumentFactory
+        || documentFactory instanceof VariableSizeRandomDocumentFactory;
 
-      Class<? extends Workload> clazz =
-          WorkloadFactory.getWorkload(config.getWorkload());
-      for(ClientHandler handler : clientHandlers) {
-        handler.executeWorkload(clazz, documentFactory);
+      KeySpace keySpace = null;
+      if (config.getKeySpace() > 0) {
+        keySpace = new KeySpace(config.getKeySpace(),
+          config.getKeyDistribution(), config.getZipfTheta(),
+          config.getHotspotFraction(), config.getHotspotOps(),
+          config.getKeyPrefix(), config.getKeyLength());
+      }
+
+      OperationMix mix = new OperationMix(config.getMix());
+      DocumentMode documentMode = DocumentMode.fromName(config.getDocumentMode());
+
+      IntervalReporter reporter = new IntervalReporter(this,
+        config.getReportInterval(), config.getHistogramLog(),
+        intervalListener);
+      reporter.start();
+      try {
+        if (load) {
+          LOGGER.info("Loading " + config.getKeySpace() + " documents.");
+          phaseStart = System.currentTimeMillis();
+          Stopwatch loadStopwatch = new Stopwatch().start();
+          runPhase(WorkloadFactory.getWorkload(LoadWorkload.NAME),
+            newContext(documentFactory, documentMode, measureSizes,
+              keySpace, mix), config.getKeySpace(), clientHandlers.size());
+          loadStopwatch.stop();
+          reporter.flush();
+
+          long loadedOps = getTotalOps();
+          phaseMs = loadStopwatch.elapsed(TimeUnit.MILLISECONDS);
+          long loadMs = Math.max(phaseMs, 1);
+          LOGGER.info("Loaded " + loadedOps + " documents in " + loadMs
+            + "ms (" + (loadedOps * 1000 / loadMs) + " docs/s).");
+          if (run) {
+            completedPhasesOps += loadedOps;
+            endPhaseErrors("the load phase");
+          }
+        }
+
+        if (run) {
+          WorkloadContext.Builder context = newContext(documentFactory,
+            documentMode, measureSizes, keySpace, mix);
+          if (config.isClientSweep()) {
+            sweepClients(workload, context, reporter);
+          } else {
+            runWorkload(workload, context, clientHandlers.size());
+          }
+        }
+      } finally {
+        reporter.stop();
       }
       for(ClientHandler handler : clientHandlers) {
         handler.cleanup();
       }
     } finally {
-      //fire disconnection and wait for it to be effective
-      cluster.disconnect().toBlocking().single();
+      disconnect();
+    }
+  }
+
+  /**
+   * Run the workload on the first ClientHandlers, against the configured
+   * duration or number of documents and rate.
+   *
+   * @return the throughput of the run, in ops/s.
+   */
+  private long runWorkload(WorkloadProvider workload,
+    WorkloadContext.Builder context, int clients) throws Exception {
+    long deadline = 0;
+    if (config.getDuration() > 0) {
+      deadline = System.nanoTime()
+        + TimeUnit.SECONDS.toNanos(config.getDuration());
+    }
+
+    RateLimiter rateLimiter = null;
+    if (config.getRate() > 0) {
+      rateLimiter = new RateLimiter(config.getRate());
+      rateLimiter.start();
+    }
+
+    phaseStart = System.currentTimeMillis();
+    Stopwatch stopwatch = new Stopwatch().start();
+    runPhase(workload, context.rateLimiter(rateLimiter).deadline(deadline),
+      deadline == 0 ? config.getNumDocs() : Long.MAX_VALUE, clients);
+    stopwatch.stop();
+    phaseMs = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+    return getTotalOps() * 1000 / Math.max(phaseMs, 1);
+  }
+
+  /**
+   * Log the errors of a phase which ended and forget them, so that the
+   * errors reported at the end line up with the ops of the last phase.
+   */
+  private void endPhaseErrors(String phase) {
+    Map<String, Long> errors =
+      new TreeMap<String, Long>(errorTracker.getCounts());
+    for (Map.Entry<String, Long> entry : errors.entrySet()) {
+      LOGGER.info("Errors \"" + entry.getKey() + "\" during " + phase + ": "
+        + entry.getValue());
+    }
+    errorTracker.reset();
+  }
+
+  /**
+   * Run the workload with 1, 2, 4... ClientHandlers, up to all of them, and
+   * report how the throughput scales. The measures, errors and time are the
+   * ones of the last run, with all ClientHandlers.
+   */
+  private void sweepClients(WorkloadProvider workload,
+    WorkloadContext.Builder context, IntervalReporter reporter)
+    throws Exception {
+    List<Integer> steps = new ArrayList<Integer>();
+    List<Long> throughputs = new ArrayList<Long>();
+    for (int clients = 1; ; clients = Math.min(clients * 2, clientHandlers.size())) {
+      LOGGER.info("Running the workload with " + clients + " client(s).");
+      long throughput = runWorkload(workload, context, clients);
+      LOGGER.info("Ran with " + clients + " client(s) at " + throughput
+        + " ops/s.");
+      steps.add(clients);
+      throughputs.add(throughput);
+      if (clients == clientHandlers.size()) {
+        break;
+      }
+      reporter.flush();
+      completedPhasesOps += getTotalOps();
+      endPhaseErrors("the run with " + clients + " client(s)");
     }
+
+    LOGGER.info("Client scaling (" + (config.isEnvPerClient()
+      ? "one environment per client" : "shared environment") + "):");
+    for (int i = 0; i < steps.size(); i++) {
+      long throughput = throughputs.get(i);
+      LOGGER.info("   clients:" + steps.get(i) + "   ops/s:" + throughput
+        + "   ops/s per client:" + throughput / steps.get(i)
+        + "   scaling:" + Math.round(100.0 * throughput
+          / (Math.max(throughputs.get(0), 1) * steps.get(i))) + "%");
+    }
+  }
+
+  /**
+   * @return a context with the settings shared by all workloads.
+   */
+  private WorkloadContext.Builder newContext(DocumentFactory documentFactory,
+    DocumentMode documentMode, boolean measureSizes, KeySpace keySpace,
+    OperationMix mix) {
+    return new WorkloadContext.Builder()
+      .ratio(config.getRatio())
+      .sampling(config.getSampling())
+      .ramp(config.getRamp())
+      .documentFactory(documentFactory)
+      .documentMode(documentMode)
+      .measureSizes(measureSizes)
+      .keySpace(keySpace)
+      .keyPrefix(config.getKeyPrefix())
+      .keyLength(config.getKeyLength())
+      .maxInFlight(config.getMaxInFlight())
+      .opTimeout(config.getOpTimeout())
+      .batchSize(config.getBatchSize())
+      .batchConcurrency(config.getBatchConcurrency())
+      .engine(Engine.fromName(config.getEngine()))
+      .mix(mix)
+      .errorTracker(errorTracker);
+  }
+
+  /**
+   * Run a workload on the first ClientHandlers and wait for it to complete.
+   * The other ones forget their previous workload.
+   */
+  private void runPhase(WorkloadProvider provider,
+    WorkloadContext.Builder context, long docs, int clients) throws Exception {
+    for (int i = 0; i < clientHandlers.size(); i++) {
+      if (i < clients) {
+        clientHandlers.get(i).executeWorkload(provider, context, docs, clients);
+      } else {
+        clientHandlers.get(i).reset();
+      }
+    }
+    for(ClientHandler handler : clientHandlers) {
+      handler.awaitCompletion();
+    }
+  }
+
+  /**
+   * Hand the measures of each reported interval to the given listener as
+   * well, only when --report-interval is set.
+   *
+   * @param listener The listener, or null.
+   */
+  public void setIntervalListener(final IntervalReporter.Listener listener) {
+    this.intervalListener = listener;
   }
 
   public void prepareMeasures() {
@@ -119,21 +414,43 @@ final class WorkloadDispatcher {
 
   private void storeMeasures() {
     for(ClientHandler handler : clientHandlers) {
-      Map<String, List<Stopwatch>> measures = handler.getMeasures();
-      for (Map.Entry<String, List<Stopwatch>> entry : measures.entrySet()) {
-        if(mergedMeasures.containsKey(entry.getKey())) {
-          mergedMeasures.get(entry.getKey()).addAll(entry.getValue());
-        } else {
-          mergedMeasures.put(entry.getKey(), entry.getValue());
-        }
-      }
+      Measures.merge(mergedMeasures, handler.getMeasures());
     }
   }
 
-  public Map<String, List<Stopwatch>> getMeasures() {
+  public Map<String, Histogram> getMeasures() {
     return mergedMeasures;
   }
 
+  /**
+   * Returns the measures stored since the last call, merged across all
+   * ClientHandlers, while the workload keeps running.
+   *
+   * @return the interval measures.
+   */
+  public Map<String, Histogram> getIntervalMeasures() {
+    Map<String, Histogram> merged = new HashMap<String, Histogram>();
+    for (ClientHandler handler : clientHandlers) {
+      Measures.merge(merged, handler.getIntervalMeasures());
+    }
+    return merged;
+  }
+
+  /**
+   * @return the start of the last phase run (epoch millis), the one
+   *   {@link #getTotalOps()} counts the ops of.
+   */
+  public long getPhaseStart() {
+    return phaseStart;
+  }
+
+  /**
+   * @return the duration of the last phase run, in milliseconds.
+   */
+  public long getPhaseElapsed() {
+    return phaseMs;
+  }
+
   public long getTotalOps() {
     long totalOps = 0;
     for (ClientHandler handler : clientHandlers) {
@@ -142,6 +459,33 @@ final class WorkloadDispatcher {
     return totalOps;
   }
 
+  /**
+   * @return the total ops of all phases run so far, including the
+   *   running one.
+   */
+  public long getOpsSinceStart() {
+    return completedPhasesOps + getTotalOps();
+  }
+
+  /**
+   * @return the op counts of the last phase by op identifier, indexed by
+   *   outcome ordinal, merged across all ClientHandlers.
+   */
+  public Map<String, long[]> getOpCounts() {
+    Map<String, long[]> merged = new HashMap<String, long[]>();
+    for (ClientHandler handler : clientHandlers) {
+      OpCounters.merge(merged, handler.getOpCounts());
+    }
+    return merged;
+  }
+
+  /**
+   * @return the errors of the failed ops of all phases.
+   */
+  public ErrorTracker getErrorTracker() {
+    return errorTracker;
+  }
+
   public long getMeasuredOps() {
     long measuredOps = 0;
     for (ClientHandler handler : clientHandlers) {
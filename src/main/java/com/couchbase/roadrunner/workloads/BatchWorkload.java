@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.couchbase.client.java.document.Document;
+
+import rx.Observable;
+import rx.functions.Func1;
+
+/**
+ * The BatchWorkload resembles a service fetching many keys at once, by
+ * fanning them out with flatMap.
+ *
+ * Each batch of keys is upserted, then fetched "ratio" times. The keys of a
+ * batch are sent concurrently, up to the configured batch concurrency.
+ * Next to the latency of each key ("set", "get"), the latency of the whole
+ * batch, until its slowest key returns, is measured under the op identifier
+ * with {@link #BATCH_SUFFIX} appended. Keys failing do not fail the batch.
+ *
+ * A batch takes as many in-flight slots (see --max-in-flight) as it has keys
+ * in flight at once, so the bound counts keys as for the other workloads.
+ */
+public class BatchWorkload extends Workload {
+
+  public static final String NAME = "batch";
+
+  /** Suffix of the measures of whole batches. */
+  public static final String BATCH_SUFFIX = "-batch";
+
+  /** Amount of documents to set/get. */
+  private final long amount;
+
+  /** Ratio between get and set batches. */
+  private final int ratio;
+
+  /** Ratio to sample statistics data. */
+  private final int sampling;
+
+  /** Number of keys per batch. */
+  private final int batchSize;
+
+  /** Keys of a batch in flight at once, 0 for all of them. */
+  private final int batchConcurrency;
+
+  public BatchWorkload(WorkloadContext context) {
+    super(context);
+    this.amount = context.getAmount();
+    this.ratio = context.getRatio();
+    this.sampling = 100/context.getSampling();
+    this.batchSize = context.getBatchSize();
+    this.batchConcurrency = context.getBatchConcurrency();
+  }
+
+  @Override
+  public void run() {
+    Thread.currentThread().setName(getWorkloadName());
+    startTimer();
+
+    int samplingCount = 0;
+    for(long i=0;i<amount && !isDeadlineReached();i+=batchSize) {
+      int size = (int) Math.min(batchSize, amount - i);
+      List<String> keys = new ArrayList<String>(size);
+      for (int k = 0; k < size; k++) {
+        keys.add(nextKey());
+      }
+      int slots = batchConcurrency > 0 ? Math.min(size, batchConcurrency) : size;
+      long lag = awaitTurn(size * (1 + ratio), slots);
+
+      boolean measured = ++samplingCount == sampling;
+      if (measured) {
+        samplingCount = 0;
+      }
+      issue(setBatch(keys, lag, measured)
+        .toList()
+        .flatMap(written -> getBatch(keys, lag, measured).repeat(ratio)), slots);
+    }
+
+    awaitCompleted();
+    endTimer();
+  }
+
+  private Observable<?> setBatch(List<String> keys, long lag, boolean measured) {
+    if (!measured) {
+      return batch(keys, key -> set(newDocument(key)));
+    }
+    return measured("set" + BATCH_SUFFIX, lag, -1, () -> batch(keys, key -> {
+      Document<?> document = newDocument(key);
+      return measured("set", lag, sizeOf(document), () -> set(document));
+    }));
+  }
+
+  private Observable<?> getBatch(List<String> keys, long lag, boolean measured) {
+    if (!measured) {
+      return batch(keys, this::get);
+    }
+    return measured("get" + BATCH_SUFFIX, lag, -1, () -> batch(keys,
+      key -> measured("get", lag, -1, () -> get(key))));
+  }
+
+  /**
+   * Run an op for each key of a batch, up to the batch concurrency at once.
+   * The ops are deferred, so they only start once merged in.
+   *
+   * @param keys The keys of the batch.
+   * @param op Runs the op of a key.
+   * @return the completion of the batch, once all its ops completed or
+   *   failed.
+   */
+  private Observable<Object> batch(List<String> keys,
+    Func1<String, Observable<?>> op) {
+    Observable<Observable<Object>> ops = Observable.from(keys).map(key ->
+      Observable.defer(() -> op.call(key)).cast(Object.class)
+        .onErrorResumeNext(Observable.empty()));
+    return batchConcurrency > 0
+      ? Observable.merge(ops, batchConcurrency) : Observable.merge(ops);
+  }
+
+  private Observable<? extends Document<?>> set(Document<?> document) {
+    return counted("set", getBucket().upsert(document));
+  }
+
+  private Observable<? extends Document<?>> get(String key) {
+    return counted("get", getBucket()
+      .get(key, documentType())
+      .doOnNext(this::release));
+  }
+
+  /**
+   * Provides this workload under {@link #NAME}.
+   */
+  public static final class Provider implements WorkloadProvider {
+
+    @Override
+    public String getName() {
+      return NAME;
+    }
+
+    @Override
+    public Workload create(WorkloadContext context) {
+      return new BatchWorkload(context);
+    }
+  }
+
+}
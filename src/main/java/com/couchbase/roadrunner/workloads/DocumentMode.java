@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.Locale;
+
+import com.couchbase.client.deps.io.netty.buffer.Unpooled;
+import com.couchbase.client.java.document.BinaryDocument;
+import com.couchbase.client.java.document.Document;
+import com.couchbase.client.java.document.LegacyDocument;
+import com.couchbase.roadrunner.workloads.Workload.DocumentFactory;
+import com.google.common.base.Charsets;
+
+/**
+ * How documents are stored and fetched.
+ */
+public enum DocumentMode {
+
+  /**
+   * The documents are Java-serialized objects, in LegacyDocuments.
+   */
+  LEGACY {
+    @Override
+    Document<?> create(String key, DocumentFactory factory) {
+      return LegacyDocument.create(key, 0, factory.getDocument());
+    }
+
+    @Override
+    Document<?> create(String key, DocumentFactory factory, long cas) {
+      return LegacyDocument.create(key, factory.getDocument(), cas);
+    }
+
+    @Override
+    Document<?> create(String key, String content) {
+      return LegacyDocument.create(key, content);
+    }
+
+    @Override
+    Class<? extends Document<?>> type() {
+      return LegacyDocument.class;
+    }
+
+    @Override
+    void release(Document<?> document) {
+    }
+
+    @Override
+    int size(Document<?> document) {
+      Object content = document.content();
+      return content instanceof Workload.SampleDocument
+        ? ((Workload.SampleDocument) content).getPayload().length : -1;
+    }
+  },
+
+  /**
+   * The documents are the raw payload bytes, in BinaryDocuments, with no
+   * serialization step. Fetched documents are released without being
+   * decoded.
+   */
+  BINARY {
+    @Override
+    Document<?> create(String key, DocumentFactory factory) {
+      return BinaryDocument.create(key, factory.getContent());
+    }
+
+    @Override
+    Document<?> create(String key, DocumentFactory factory, long cas) {
+      return BinaryDocument.create(key, factory.getContent(), cas);
+    }
+
+    @Override
+    Document<?> create(String key, String content) {
+      return BinaryDocument.create(key,
+        Unpooled.copiedBuffer(content, Charsets.UTF_8));
+    }
+
+    @Override
+    Class<? extends Document<?>> type() {
+      return BinaryDocument.class;
+    }
+
+    @Override
+    void release(Document<?> document) {
+      BinaryDocument binary = (BinaryDocument) document;
+      if (binary.content() != null) {
+        binary.content().release();
+      }
+    }
+
+    @Override
+    int size(Document<?> document) {
+      return ((BinaryDocument) document).content().readableBytes();
+    }
+  };
+
+  /**
+   * @return a new document with the given key and a payload of the factory.
+   */
+  abstract Document<?> create(String key, DocumentFactory factory);
+
+  /**
+   * @return a new document with the given key, a payload of the factory and
+   *   the CAS value it is expected to replace.
+   */
+  abstract Document<?> create(String key, DocumentFactory factory, long cas);
+
+  /**
+   * @return a new document with the given key and content.
+   */
+  abstract Document<?> create(String key, String content);
+
+  /**
+   * @return the type of the documents to fetch.
+   */
+  abstract Class<? extends Document<?>> type();
+
+  /**
+   * Release a fetched document, which is not used afterwards.
+   */
+  abstract void release(Document<?> document);
+
+  /**
+   * @return the size of the payload of a document to write, -1 if unknown.
+   */
+  abstract int size(Document<?> document);
+
+  /**
+   * @param name The name of the mode, "legacy" or "binary".
+   * @return the mode.
+   */
+  public static DocumentMode fromName(String name) {
+    for (DocumentMode mode : values()) {
+      if (mode.name().toLowerCase(Locale.ENGLISH).equals(name)) {
+        return mode;
+      }
+    }
+    throw new IllegalArgumentException("Could not find document mode: " + name);
+  }
+}
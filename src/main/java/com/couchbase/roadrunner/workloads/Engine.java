@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import rx.Observable;
+import rx.functions.Actions;
+
+/**
+ * How the workloads run their chains of ops, so that client programming
+ * models can be compared against the same cluster with the same metrics.
+ */
+public enum Engine {
+
+  /**
+   * The workload thread subscribes to the chains and moves on, keeping up to
+   * --max-in-flight of them in flight.
+   */
+  ASYNC {
+    @Override
+    void issue(Observable<?> chain) {
+      //errors are tracked by the op which failed
+      chain.subscribe(Actions.empty(), Actions.empty());
+    }
+  },
+
+  /**
+   * The workload thread waits for each chain before issuing the next one,
+   * like a thread of a classic application server.
+   */
+  BLOCKING {
+    @Override
+    void issue(Observable<?> chain) {
+      await(chain);
+    }
+  },
+
+  /**
+   * Each chain is waited for by a thread of its own: a virtual thread when
+   * the JVM has them, a platform thread otherwise.
+   */
+  VIRTUAL {
+    @Override
+    void issue(Observable<?> chain) {
+      VirtualThreads.EXECUTOR.execute(() -> await(chain));
+    }
+  };
+
+  /** Chains in flight per workload with virtual threads, if not given. */
+  public static final int DEFAULT_VIRTUAL_IN_FLIGHT = 1024;
+
+  /**
+   * Run a chain of ops.
+   *
+   * @param chain The chain, whose errors were tracked by the op which failed.
+   */
+  abstract void issue(Observable<?> chain);
+
+  private static void await(Observable<?> chain) {
+    chain.cast(Object.class)
+      .onErrorResumeNext(Observable.empty())
+      .toBlocking()
+      .lastOrDefault(null);
+  }
+
+  /**
+   * @param name The name of the engine, in lower case.
+   * @return the engine.
+   */
+  public static Engine fromName(String name) {
+    for (Engine engine : values()) {
+      if (engine.name().toLowerCase(Locale.ENGLISH).equals(name)) {
+        return engine;
+      }
+    }
+    throw new IllegalArgumentException("Could not find engine: " + name);
+  }
+
+  /**
+   * Holds the executor starting a virtual thread per task, created once
+   * the virtual engine is used.
+   */
+  private static final class VirtualThreads {
+
+    private static final Logger LOGGER =
+      LoggerFactory.getLogger(Engine.class.getName());
+
+    static final Executor EXECUTOR = newExecutor();
+
+    private static Executor newExecutor() {
+      try {
+        // Java 21+, looked up reflectively since RoadRunner targets Java 8
+        return (ExecutorService) Executors.class
+          .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+      } catch (ReflectiveOperationException ex) {
+        LOGGER.warn("Virtual threads need Java 21 or later, running each "
+          + "chain of ops on a platform thread instead.");
+        return Executors.newCachedThreadPool(runnable -> {
+          Thread thread = new Thread(runnable, "VirtualEngine");
+          thread.setDaemon(true);
+          return thread;
+        });
+      }
+    }
+  }
+}
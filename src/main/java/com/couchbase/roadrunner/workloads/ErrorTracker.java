@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the errors ops fail with, shared by all workloads.
+ *
+ * Errors are counted by op identifier and error type rather than logged one
+ * by one, since a node failing over makes thousands of ops fail per second.
+ * Only the first few errors are logged with their stack trace; the counts
+ * are reported per interval and at the end of the run.
+ */
+public class ErrorTracker {
+
+  /** Configure a reusable logger. */
+  private static final Logger LOGGER =
+    LoggerFactory.getLogger(ErrorTracker.class.getName());
+
+  /** Counters by op identifier, then by error type. */
+  private final ConcurrentMap<String, ConcurrentMap<Class<?>, LongAdder>> counters =
+    new ConcurrentHashMap<String, ConcurrentMap<Class<?>, LongAdder>>();
+
+  /** Number of errors to log with their stack trace. */
+  private final int samples;
+
+  /** Number of errors logged with their stack trace so far. */
+  private final AtomicInteger sampled = new AtomicInteger();
+
+  /** Counts at the end of the last interval, see {@link #getIntervalCounts()}. */
+  private Map<String, Long> lastCounts = new HashMap<String, Long>();
+
+  /**
+   * @param samples Number of errors to log with their stack trace.
+   */
+  public ErrorTracker(int samples) {
+    this.samples = samples;
+  }
+
+  /**
+   * Track the error an op failed with.
+   *
+   * @param identifier Identifier of the op.
+   * @param error The error.
+   */
+  public void record(String identifier, Throwable error) {
+    ConcurrentMap<Class<?>, LongAdder> opCounters = counters.get(identifier);
+    if (opCounters == null) {
+      opCounters = counters.computeIfAbsent(identifier,
+        id -> new ConcurrentHashMap<Class<?>, LongAdder>());
+    }
+    LongAdder counter = opCounters.get(error.getClass());
+    if (counter == null) {
+      counter = opCounters.computeIfAbsent(error.getClass(),
+        type -> new LongAdder());
+    }
+    counter.increment();
+
+    if (sampled.get() < samples) {
+      int sample = sampled.incrementAndGet();
+      if (sample <= samples) {
+        LOGGER.warn("Sampled error " + sample + "/" + samples + " of \""
+          + identifier + "\" op: ", error);
+      }
+    }
+  }
+
+  /**
+   * Forget the errors counted so far, for example once a phase ended and its
+   * errors were reported. The errors already logged stay logged.
+   */
+  public synchronized void reset() {
+    counters.clear();
+    lastCounts = new HashMap<String, Long>();
+  }
+
+  /**
+   * @return the counts so far, by "identifier ErrorType".
+   */
+  public Map<String, Long> getCounts() {
+    Map<String, Long> counts = new HashMap<String, Long>();
+    for (Map.Entry<String, ConcurrentMap<Class<?>, LongAdder>> op
+      : counters.entrySet()) {
+      for (Map.Entry<Class<?>, LongAdder> type : op.getValue().entrySet()) {
+        counts.put(op.getKey() + " " + type.getKey().getSimpleName(),
+          type.getValue().sum());
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * @return the counts since the last call, by "identifier ErrorType",
+   *   without the ones which did not change.
+   */
+  public synchronized Map<String, Long> getIntervalCounts() {
+    Map<String, Long> counts = getCounts();
+    Map<String, Long> intervalCounts = new HashMap<String, Long>();
+    for (Map.Entry<String, Long> entry : counts.entrySet()) {
+      Long last = lastCounts.get(entry.getKey());
+      long count = entry.getValue() - (last == null ? 0 : last);
+      if (count > 0) {
+        intervalCounts.put(entry.getKey(), count);
+      }
+    }
+    lastCounts = counts;
+    return intervalCounts;
+  }
+}
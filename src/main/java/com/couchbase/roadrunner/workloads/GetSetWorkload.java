@@ -22,17 +22,15 @@
 
 package com.couchbase.roadrunner.workloads;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
-import com.couchbase.client.java.Bucket;
-import com.couchbase.client.java.document.LegacyDocument;
-import com.google.common.base.Stopwatch;
+import com.couchbase.client.java.document.Document;
 
 import rx.Observable;
 
 public class GetSetWorkload extends Workload {
 
+  public static final String NAME = "getset";
+
   /** Amount of documents to set/get. */
   private final long amount;
 
@@ -43,96 +41,86 @@ public class GetSetWorkload extends Workload {
   private final int sampling;
 
 
-  public GetSetWorkload(Bucket bucket, String name, long amount,
-    int ratio, int sampling, int ramp, DocumentFactory documentFactory) {
-    super(bucket, name, ramp, documentFactory);
-    this.amount = amount;
-    this.ratio = ratio;
-    this.sampling = 100/sampling;
+  public GetSetWorkload(WorkloadContext context) {
+    super(context);
+    this.amount = context.getAmount();
+    this.ratio = context.getRatio();
+    this.sampling = 100/context.getSampling();
   }
 
   @Override
   public void run() {
     Thread.currentThread().setName(getWorkloadName());
     startTimer();
-    CountDownLatch latch = new CountDownLatch(1);
 
     int samplingCount = 0;
-    for(long i=0;i<amount;i++) {
-      boolean last = i == amount-1;
-      String key = randomKey();
+    for(long i=0;i<amount && !isDeadlineReached();i++) {
+      String key = nextKey();
+      long lag = awaitTurn(1 + ratio);
 
         if(++samplingCount == sampling) {
           //launch a measured "set" operation followed by ratio "get" operations, also measured
-          setWorkloadWithMeasurement(key)
-              .flatMap(docInDb -> getWorkloadWithMeasurement(key).repeat(ratio))
-              .doOnError(ex -> getLogger().info("Problem while measured set/get key" + ex))
-              //schedule the ending of the timer at the last iteration
-              .finallyDo(() -> {
-                if (last) latch.countDown();
-              })
-              .subscribe();
+          issue(setWorkloadWithMeasurement(key, lag)
+              .flatMap(docInDb -> getWorkloadWithMeasurement(key, lag).repeat(ratio)));
 
           samplingCount = 0;
         } else {
           //launch a simple "set" operation, followed by ratio "get" operations
-          setWorkload(key)
-              .flatMap(docInDb -> getWorkload(key).repeat(ratio))
-              .doOnError(ex -> getLogger().info("Problem while set/get key" + ex))
-              //schedule the ending of the timer at the last iteration
-              .finallyDo(() -> {
-                if (last) latch.countDown();
-              })
-          .subscribe();
+          issue(setWorkload(key)
+              .flatMap(docInDb -> getWorkload(key).repeat(ratio)));
         }
     }
 
-    try {
-      latch.await(5, TimeUnit.MINUTES);
-    } catch (InterruptedException e) {
-      e.printStackTrace();
-    } finally {
-      endTimer();
-    }
+    awaitCompleted();
+    endTimer();
   }
 
-  private Observable<LegacyDocument> setWorkloadWithMeasurement(String key) {
+  private Observable<? extends Document<?>> setWorkloadWithMeasurement(String key,
+    long lag) {
     return Observable.defer(() -> {
-      Stopwatch watch = new Stopwatch().start();
-      return  setWorkload(key).finallyDo(() -> {
-        watch.stop();
-        addMeasure("set", watch);
-      });
+      Document<?> document = newDocument(key);
+      return measured("set", lag, sizeOf(document), () -> setWorkload(document));
     });
   }
 
-  private Observable<LegacyDocument> setWorkload(String key)  {
-    LegacyDocument value = LegacyDocument.create(key, 0, getDocument());
-    Observable<LegacyDocument> result = Observable.defer(() ->
-        getBucket()
-            .insert(value)
-            .doOnNext(doc -> incrTotalOps())
+  private Observable<? extends Document<?>> setWorkload(String key)  {
+    Observable<? extends Document<?>> result = Observable.defer(() ->
+        setWorkload(newDocument(key))
     );
     return result;
   }
 
-  private Observable<LegacyDocument> getWorkloadWithMeasurement(String key) {
-    return Observable.defer(() -> {
-      Stopwatch watch = new Stopwatch().start();
-      return getWorkload(key)
-            .finallyDo(() -> {
-              watch.stop();
-              addMeasure("get", watch);
-            });
-    });
+  private Observable<? extends Document<?>> setWorkload(Document<?> document)  {
+    return counted("set", getBucket().upsert(document));
+  }
+
+  private Observable<? extends Document<?>> getWorkloadWithMeasurement(String key,
+    long lag) {
+    return measured("get", lag, -1, () -> getWorkload(key));
   }
 
-  private Observable<LegacyDocument> getWorkload(String key) {
+  private Observable<? extends Document<?>> getWorkload(String key) {
     return Observable.defer(() ->
-            getBucket()
-                .get(key, LegacyDocument.class)
-                .doOnNext(doc -> incrTotalOps())
+            counted("get", getBucket()
+                .get(key, documentType())
+                .doOnNext(this::release))
     );
   }
 
+  /**
+   * Provides this workload under {@link #NAME}.
+   */
+  public static final class Provider implements WorkloadProvider {
+
+    @Override
+    public String getName() {
+      return NAME;
+    }
+
+    @Override
+    public Workload create(WorkloadContext context) {
+      return new GetSetWorkload(context);
+    }
+  }
+
 }
@@ -22,13 +22,8 @@
 
 package com.couchbase.roadrunner.workloads;
 
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
-import com.couchbase.client.java.Bucket;
-import com.couchbase.client.java.document.LegacyDocument;
-import com.couchbase.client.java.error.CASMismatchException;
-import com.google.common.base.Stopwatch;
+import com.couchbase.client.java.document.Document;
 
 import rx.Observable;
 
@@ -41,6 +36,8 @@ import rx.Observable;
  */
 public class GetsCasWorkload extends Workload {
 
+  public static final String NAME = "getscas";
+
   /** Amount of documents to add/gets/cas. */
   private final long amount;
 
@@ -50,50 +47,40 @@ public class GetsCasWorkload extends Workload {
   /** Ratio to sample statistics data. */
   private final int sampling;
 
-  public GetsCasWorkload(Bucket bucket, String name, long amount,
-    int ratio, int sampling, int ramp, DocumentFactory documentFactory) {
-    super(bucket, name, ramp, documentFactory);
-    this.amount = amount;
-    this.ratio = ratio;
-    this.sampling = 100 / sampling;
+  public GetsCasWorkload(WorkloadContext context) {
+    super(context);
+    this.amount = context.getAmount();
+    this.ratio = context.getRatio();
+    this.sampling = 100 / context.getSampling();
   }
 
   @Override
   public void run() {
     Thread.currentThread().setName(getWorkloadName());
     startTimer();
-    CountDownLatch latch = new CountDownLatch(1);
 
     int samplingCount = 0;
-    for (long i=0;i < amount;i++) {
-      String key = randomKey();
-      boolean last = i == amount-1;
+    for (long i=0;i < amount && !isDeadlineReached();i++) {
+      String key = nextKey();
+      long lag = awaitTurn(1 + 2 * ratio);
 
+      // a failed cas, already counted and measured, does not end the chain
       if(++samplingCount == sampling) {
-        addWorkload(key, getDocument())
-            .flatMap(d -> getsWorkloadWithMeasurement(key).repeat(ratio))
-            .flatMap(cas -> casWorkloadWithMeasurement(key, cas, getDocument()))
-            .doOnError(ex -> getLogger().info("Problem while measured gets/cas key: " + ex))
-            .finallyDo(() -> { if (last) latch.countDown(); })
-        .subscribe();
+        issue(addWorkload(key)
+            .flatMap(d -> getsWorkloadWithMeasurement(key, lag).repeat(ratio))
+            .flatMap(cas -> casWorkloadWithMeasurement(key, cas, lag)
+              .onErrorResumeNext(Observable.empty())));
         samplingCount = 0;
       } else {
-        addWorkload(key, getDocument())
+        issue(addWorkload(key)
             .flatMap(d -> getsWorkload(key).repeat(ratio))
-            .flatMap(cas -> casWorkload(key, cas, getDocument()))
-            .doOnError(ex -> getLogger().info("Problem while gets/cas key: " + ex))
-            .finallyDo(() -> { if (last) latch.countDown(); })
-        .subscribe();
+            .flatMap(cas -> casWorkload(key, cas)
+              .onErrorResumeNext(Observable.empty())));
       }
     }
 
-    try {
-      latch.await(5, TimeUnit.MINUTES);
-    } catch (InterruptedException e) {
-      e.printStackTrace();
-    } finally {
-      endTimer();
-    }
+    awaitCompleted();
+    endTimer();
   }
 
   private String randomString() {
@@ -105,60 +92,60 @@ public class GetsCasWorkload extends Workload {
     return outputBuffer.toString();
   }
 
-  private Observable<LegacyDocument> addWorkload(String key, SampleDocument payload) {
-    LegacyDocument doc = LegacyDocument.create(key, 0, payload);
+  private Observable<? extends Document<?>> addWorkload(String key) {
     return Observable.defer(() ->
-            getBucket()
-                .upsert(doc)
-                .doOnNext(item -> incrTotalOps())
+            counted("add", getBucket().upsert(newDocument(key)))
     );
   }
 
-  private Observable<Long> getsWorkloadWithMeasurement(String key) {
-    return Observable.defer(() -> {
-      Stopwatch watch = new Stopwatch().start();
-      return getsWorkload(key)
-          .finallyDo(() -> {
-            watch.stop();
-            addMeasure("gets", watch);
-          });
-    });
+  private Observable<? extends Long> getsWorkloadWithMeasurement(String key,
+    long lag) {
+    return measured("gets", lag, -1, () -> getsWorkload(key));
   }
 
-  private Observable<LegacyDocument> casWorkloadWithMeasurement(String key, long cas, SampleDocument doc) {
+  private Observable<? extends Document<?>> casWorkloadWithMeasurement(String key, long cas,
+    long lag) {
     return Observable.defer(() -> {
-      Stopwatch watch = new Stopwatch().start();
-      return casWorkload(key, cas, doc)
-          .finallyDo(() -> {
-            watch.stop();
-            addMeasure("cas", watch);
-          });
+      Document<?> doc = newDocument(key, cas);
+      return measured("cas", lag, sizeOf(doc), () -> casWorkload(key, doc));
     });
   }
 
   private Observable<Long> getsWorkload(String key) {
     return Observable.defer(() ->
-      getBucket()
-        .get(key, LegacyDocument.class)
-        .map(doc -> doc.cas())
-        .doOnNext(item -> incrTotalOps())
+      counted("gets", getBucket()
+        .get(key, documentType())
+        .map(doc -> {
+          release(doc);
+          return doc.cas();
+        }))
     );
   }
 
-  private Observable<LegacyDocument> casWorkload(String key, long cas, SampleDocument payload) {
-    LegacyDocument doc = LegacyDocument.create(key, payload, cas);
+  private Observable<Document<?>> casWorkload(String key, long cas) {
+    return casWorkload(key, newDocument(key, cas));
+  }
+
+  private Observable<Document<?>> casWorkload(String key, Document<?> doc) {
     return Observable.defer(() ->
-      getBucket()
-        .replace(doc)
-        .doOnNext(item -> incrTotalOps())
-          .doOnError(ex -> {
-            if (ex instanceof CASMismatchException)
-              getLogger().info("Could not store with cas for key: " + key);
-            else
-              getLogger().info("Unexpected error while storing cas for key " + key + " : " + ex);
-          })
-        .onErrorReturn(ex -> doc)
+      counted("cas", getBucket().<Document<?>>replace(doc))
     );
   }
 
-}
\ No newline at end of file
+  /**
+   * Provides this workload under {@link #NAME}.
+   */
+  public static final class Provider implements WorkloadProvider {
+
+    @Override
+    public String getName() {
+      return NAME;
+    }
+
+    @Override
+    public Workload create(WorkloadContext context) {
+      return new GetsCasWorkload(context);
+    }
+  }
+
+}
@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.couchbase.client.deps.io.netty.buffer.ByteBuf;
+import com.couchbase.roadrunner.workloads.Workload.DocumentFactory;
+import com.couchbase.roadrunner.workloads.Workload.SampleDocument;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Generates JSON documents out of a template with field generators.
+ *
+ * The template is a JSON document in which placeholders are replaced by
+ * generated values:
+ * <ul>
+ *   <li>${int:MIN:MAX} an integer between MIN and MAX, inclusive.</li>
+ *   <li>${bool} true or false.</li>
+ *   <li>${timestamp} epoch milliseconds within the last year.</li>
+ *   <li>${words:MIN:MAX} between MIN and MAX words, separated by spaces.</li>
+ *   <li>${string:MIN:MAX} between MIN and MAX alphanumeric characters.</li>
+ *   <li>${array:MIN:MAX:GENERATOR} a JSON array of MIN to MAX values of the
+ *     given generator, like ${array:1:5:words:1:2}. Words and strings are
+ *     quoted.</li>
+ * </ul>
+ * Other placeholders are quoted in the template where needed, like
+ * "name": "${words:1:3}".
+ *
+ * The variants are all generated and serialized up front, so getting a
+ * document only picks one of them.
+ */
+public class JsonTemplateDocumentFactory implements DocumentFactory {
+
+  /** Number of variants generated when not configured. */
+  public static final int DEFAULT_VARIANTS = 4096;
+
+  private static final String[] WORDS = ("lorem ipsum dolor sit amet "
+    + "consectetur adipiscing elit sed do eiusmod tempor incididunt ut labore "
+    + "et dolore magna aliqua enim ad minim veniam quis nostrud exercitation "
+    + "ullamco laboris nisi aliquip ex ea commodo consequat duis aute irure "
+    + "in reprehenderit voluptate velit esse cillum fugiat nulla pariatur "
+    + "excepteur sint occaecat cupidatat non proident sunt culpa qui officia "
+    + "deserunt mollit anim id est laborum").split(" ");
+
+  private static final String ALPHANUMERIC =
+    "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+  private final JsonDocument[] variants;
+  private final ByteBuf[] contents;
+
+  /**
+   * @param filename The file to read the template from.
+   * @param variants The number of distinct documents to generate.
+   * @param offHeap Whether to keep the contents in direct buffers.
+   * @throws IOException if the template cannot be read.
+   */
+  public JsonTemplateDocumentFactory(String filename, int variants,
+    boolean offHeap) throws IOException {
+    this(Files.toString(new File(filename), Charsets.UTF_8), variants,
+      offHeap, new Random());
+    logger.info("Factory using {} documents generated from {}", variants,
+      filename);
+  }
+
+  /**
+   * @param template The template.
+   * @param variants The number of distinct documents to generate.
+   * @param offHeap Whether to keep the contents in direct buffers.
+   * @param random The source of the generated values.
+   */
+  JsonTemplateDocumentFactory(String template, int variants, boolean offHeap,
+    Random random) {
+    if (variants <= 0) {
+      throw new IllegalArgumentException("At least one variant is needed.");
+    }
+    List<Object> parts = parse(template);
+    this.variants = new JsonDocument[variants];
+    this.contents = new ByteBuf[variants];
+    StringBuilder builder = new StringBuilder(template.length() * 2);
+    for (int i = 0; i < variants; i++) {
+      builder.setLength(0);
+      for (Object part : parts) {
+        if (part instanceof Generator) {
+          ((Generator) part).append(builder, random);
+        } else {
+          builder.append((String) part);
+        }
+      }
+      this.variants[i] = new JsonDocument(
+        builder.toString().getBytes(Charsets.UTF_8));
+      this.contents[i] = Workload.sharedContent(this.variants[i].payload, offHeap);
+    }
+  }
+
+  @Override
+  public SampleDocument getDocument() {
+    return variants[ThreadLocalRandom.current().nextInt(variants.length)];
+  }
+
+  @Override
+  public ByteBuf getContent() {
+    return contents[ThreadLocalRandom.current().nextInt(contents.length)]
+      .duplicate();
+  }
+
+  /**
+   * Split the template into literal Strings and Generators.
+   */
+  private static List<Object> parse(String template) {
+    List<Object> parts = new ArrayList<Object>();
+    int from = 0;
+    while (true) {
+      int start = template.indexOf("${", from);
+      if (start < 0) {
+        parts.add(template.substring(from));
+        return parts;
+      }
+      int end = template.indexOf('}', start);
+      if (end < 0) {
+        throw new IllegalArgumentException("Unterminated placeholder at "
+          + start + " in template.");
+      }
+      parts.add(template.substring(from, start));
+      String[] spec = template.substring(start + 2, end).split(":");
+      parts.add(generator(spec, 0, false));
+      from = end + 1;
+    }
+  }
+
+  /**
+   * @param spec The placeholder, split on colons.
+   * @param at Where the generator starts in the spec.
+   * @param quoted Whether to quote text values.
+   * @return the generator.
+   */
+  private static Generator generator(String[] spec, int at, boolean quoted) {
+    String type = spec[at];
+    switch (type) {
+      case "int": {
+        long min = Long.parseLong(arg(spec, at + 1));
+        long max = Long.parseLong(arg(spec, at + 2));
+        return (builder, random) -> builder.append(between(random, min, max));
+      }
+      case "bool":
+        return (builder, random) -> builder.append(random.nextBoolean());
+      case "timestamp": {
+        long now = System.currentTimeMillis();
+        long year = TimeUnit.DAYS.toMillis(365);
+        return (builder, random) -> builder.append(
+          between(random, now - year, now));
+      }
+      case "words": {
+        int min = Integer.parseInt(arg(spec, at + 1));
+        int max = Integer.parseInt(arg(spec, at + 2));
+        return (builder, random) -> {
+          if (quoted) builder.append('"');
+          long count = between(random, min, max);
+          for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(' ');
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+          }
+          if (quoted) builder.append('"');
+        };
+      }
+      case "string": {
+        int min = Integer.parseInt(arg(spec, at + 1));
+        int max = Integer.parseInt(arg(spec, at + 2));
+        return (builder, random) -> {
+          if (quoted) builder.append('"');
+          long length = between(random, min, max);
+          for (int i = 0; i < length; i++) {
+            builder.append(ALPHANUMERIC.charAt(
+              random.nextInt(ALPHANUMERIC.length())));
+          }
+          if (quoted) builder.append('"');
+        };
+      }
+      case "array": {
+        int min = Integer.parseInt(arg(spec, at + 1));
+        int max = Integer.parseInt(arg(spec, at + 2));
+        Generator element = generator(spec, at + 3, true);
+        return (builder, random) -> {
+          builder.append('[');
+          long count = between(random, min, max);
+          for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(',');
+            element.append(builder, random);
+          }
+          builder.append(']');
+        };
+      }
+      default:
+        throw new IllegalArgumentException("Could not find generator: " + type);
+    }
+  }
+
+  private static String arg(String[] spec, int at) {
+    if (at >= spec.length) {
+      throw new IllegalArgumentException("Missing argument for generator: "
+        + spec[0]);
+    }
+    return spec[at];
+  }
+
+  private static long between(Random random, long min, long max) {
+    if (max < min) {
+      throw new IllegalArgumentException("Max " + max + " is below min " + min);
+    }
+    return min + (long) (random.nextDouble() * (max - min + 1));
+  }
+
+  /**
+   * Appends a generated value to the document being built.
+   */
+  private interface Generator {
+    void append(StringBuilder builder, Random random);
+  }
+
+  /**
+   * A generated JSON document.
+   */
+  static class JsonDocument implements Serializable, SampleDocument {
+
+    private static final long serialVersionUID = -3087393472391021947L;
+    public final byte[] payload;
+
+    JsonDocument(byte[] payload) {
+      this.payload = payload;
+    }
+
+    @Override
+    public byte[] getPayload() {
+      return payload;
+    }
+  }
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the index of the next key out of a key space of a fixed size.
+ *
+ * All distributions draw their random numbers from ThreadLocalRandom and keep
+ * no shared mutable state, so any number of workload threads can pick keys
+ * without coordinating with each other. Distributions which keep a position
+ * ({@link Sequential} and {@link Latest}) are created once per thread.
+ */
+public abstract class KeyDistribution {
+
+  /** Number of keys in the key space. */
+  protected final long size;
+
+  protected KeyDistribution(long size) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Key space must not be empty: "
+        + size);
+    }
+    this.size = size;
+  }
+
+  /**
+   * @return the index of the next key, between 0 (inclusive) and the size of
+   *   the key space (exclusive).
+   */
+  public abstract long nextIndex();
+
+  /**
+   * Every key is equally likely to be picked.
+   */
+  public static class Uniform extends KeyDistribution {
+
+    public Uniform(long size) {
+      super(size);
+    }
+
+    @Override
+    public long nextIndex() {
+      return ThreadLocalRandom.current().nextLong(size);
+    }
+  }
+
+  /**
+   * Keys are picked following a zipfian distribution: the key of rank r is
+   * picked with a probability proportional to 1/r^theta.
+   *
+   * The ranks are scrambled through a hash, so that the popular keys are
+   * spread over the key space instead of being its first keys. Uses the
+   * algorithm from "Quickly Generating Billion-Record Synthetic Databases"
+   * (Gray et al., SIGMOD 1994), as YCSB does.
+   */
+  public static class Zipfian extends KeyDistribution {
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 1099511628211L;
+
+    private final double theta;
+    private final double zetan;
+    private final double alpha;
+    private final double eta;
+    private final double halfPowTheta;
+    private final boolean scrambled;
+
+    /**
+     * Create the distribution.
+     *
+     * Computing its constants takes time linear to the size of the key space,
+     * so a single instance should be shared by all threads.
+     *
+     * @param size Number of keys.
+     * @param theta Skew of the distribution, between 0 and 1 (exclusive).
+     * @param scrambled Whether to spread the popular keys over the key space.
+     */
+    public Zipfian(long size, double theta, boolean scrambled) {
+      super(size);
+      if (theta <= 0 || theta >= 1) {
+        throw new IllegalArgumentException("Zipfian theta must be between 0 "
+          + "and 1: " + theta);
+      }
+      this.theta = theta;
+      this.scrambled = scrambled;
+      this.zetan = zeta(size, theta);
+      this.alpha = 1.0 / (1.0 - theta);
+      this.eta = (1 - Math.pow(2.0 / size, 1 - theta))
+        / (1 - zeta(2, theta) / zetan);
+      this.halfPowTheta = 1 + Math.pow(0.5, theta);
+    }
+
+    @Override
+    public long nextIndex() {
+      long rank = nextRank();
+      return scrambled ? Long.remainderUnsigned(fnv(rank), size) : rank;
+    }
+
+    /**
+     * @return the rank of the next key, 0 being the most popular one.
+     */
+    long nextRank() {
+      double u = ThreadLocalRandom.current().nextDouble();
+      double uz = u * zetan;
+      if (uz < 1.0) {
+        return 0;
+      }
+      if (uz < halfPowTheta) {
+        return Math.min(1, size - 1);
+      }
+      long rank = (long) (size * Math.pow(eta * u - eta + 1, alpha));
+      return Math.min(rank, size - 1);
+    }
+
+    private static double zeta(long n, double theta) {
+      double sum = 0;
+      for (long i = 1; i <= n; i++) {
+        sum += 1 / Math.pow(i, theta);
+      }
+      return sum;
+    }
+
+    private static long fnv(long value) {
+      long hash = FNV_OFFSET_BASIS;
+      for (int i = 0; i < 8; i++) {
+        hash ^= value & 0xFF;
+        hash *= FNV_PRIME;
+        value >>>= 8;
+      }
+      return hash;
+    }
+  }
+
+  /**
+   * A fraction of the ops goes to a hot set of keys, the others to the rest
+   * of the key space. Keys are picked uniformly within each set.
+   */
+  public static class Hotspot extends KeyDistribution {
+
+    private final long hotSize;
+    private final double hotOps;
+
+    /**
+     * @param size Number of keys.
+     * @param hotFraction Fraction of the key space in the hot set.
+     * @param hotOps Fraction of the ops going to the hot set.
+     */
+    public Hotspot(long size, double hotFraction, double hotOps) {
+      super(size);
+      if (hotFraction < 0 || hotFraction > 1 || hotOps < 0 || hotOps > 1) {
+        throw new IllegalArgumentException("Hotspot fractions must be "
+          + "between 0 and 1: " + hotFraction + ", " + hotOps);
+      }
+      this.hotSize = Math.max(1, Math.min(size, (long) (size * hotFraction)));
+      this.hotOps = hotOps;
+    }
+
+    @Override
+    public long nextIndex() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      if (hotSize == size || random.nextDouble() < hotOps) {
+        return random.nextLong(hotSize);
+      }
+      return hotSize + random.nextLong(size - hotSize);
+    }
+  }
+
+  /**
+   * Walks through the key space in order, wrapping around at its end.
+   *
+   * Each thread starts at its own offset and strides over the keys of the
+   * others, so that together they cover every key once per round.
+   */
+  public static class Sequential extends KeyDistribution {
+
+    private final long stride;
+    private long next;
+
+    /**
+     * @param size Number of keys.
+     * @param thread Index of the thread using this instance.
+     * @param threads Number of threads walking the key space together.
+     */
+    public Sequential(long size, int thread, int threads) {
+      super(size);
+      this.stride = threads;
+      this.next = thread % size;
+    }
+
+    @Override
+    public long nextIndex() {
+      long index = next;
+      next = (next + stride) % size;
+      return index;
+    }
+  }
+
+  /**
+   * Favors the keys most recently reached by a sequential walk through the
+   * key space: the distance back from the current position follows a
+   * zipfian distribution.
+   */
+  public static class Latest extends KeyDistribution {
+
+    private final Zipfian recency;
+    private final Sequential head;
+
+    /**
+     * @param recency Unscrambled zipfian distribution over the key space.
+     * @param thread Index of the thread using this instance.
+     * @param threads Number of threads walking the key space together.
+     */
+    public Latest(Zipfian recency, int thread, int threads) {
+      super(recency.size);
+      this.recency = recency;
+      this.head = new Sequential(recency.size, thread, threads);
+    }
+
+    @Override
+    public long nextIndex() {
+      long index = head.nextIndex() - recency.nextRank();
+      return index < 0 ? index + size : index;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+/**
+ * A key space of a fixed number of keys, and the distribution used to pick
+ * keys out of it.
+ *
+ * The key space is shared by all workload threads, which each get their own
+ * {@link KeyGenerator} from it.
+ */
+public class KeySpace {
+
+  /** Default prefix of the generated keys. */
+  public static final String KEY_PREFIX = "key_";
+
+  /** Largest key space whose keys are cached once built. */
+  static final long KEY_CACHE_LIMIT = 1 << 20;
+
+  public static final String UNIFORM = "uniform";
+  public static final String ZIPFIAN = "zipfian";
+  public static final String HOTSPOT = "hotspot";
+  public static final String SEQUENTIAL = "sequential";
+  public static final String LATEST = "latest";
+
+  /** Number of keys. */
+  private final long size;
+
+  /** Name of the distribution. */
+  private final String distribution;
+
+  /** The distribution shared by all threads, if it keeps no position. */
+  private final KeyDistribution shared;
+
+  /** Unscrambled zipfian distribution for the "latest" distribution. */
+  private final KeyDistribution.Zipfian recency;
+
+  /** Prefix of the keys. */
+  private final String prefix;
+
+  /** Length the key indexes are padded to with zeros, prefix included. */
+  private final int keyLength;
+
+  /** Keys built so far by index, null if the key space is too large. */
+  private final String[] cache;
+
+  /**
+   * Create the key space.
+   *
+   * @param size Number of keys.
+   * @param distribution Name of the distribution.
+   * @param theta Skew of the zipfian and latest distributions.
+   * @param hotFraction Fraction of the keys in the hot set of the hotspot
+   *   distribution.
+   * @param hotOps Fraction of the ops going to the hot set of the hotspot
+   *   distribution.
+   */
+  public KeySpace(long size, String distribution, double theta,
+    double hotFraction, double hotOps) {
+    this(size, distribution, theta, hotFraction, hotOps, KEY_PREFIX, 0);
+  }
+
+  /**
+   * Create the key space.
+   *
+   * @param size Number of keys.
+   * @param distribution Name of the distribution.
+   * @param theta Skew of the zipfian and latest distributions.
+   * @param hotFraction Fraction of the keys in the hot set of the hotspot
+   *   distribution.
+   * @param hotOps Fraction of the ops going to the hot set of the hotspot
+   *   distribution.
+   * @param prefix Prefix of the keys.
+   * @param keyLength Length the key indexes are padded to with zeros, prefix
+   *   included, 0 not to pad them.
+   */
+  public KeySpace(long size, String distribution, double theta,
+    double hotFraction, double hotOps, String prefix, int keyLength) {
+    this.size = size;
+    this.distribution = distribution;
+    this.prefix = prefix;
+    this.keyLength = keyLength;
+    this.cache = size <= KEY_CACHE_LIMIT ? new String[(int) size] : null;
+
+    KeyDistribution shared = null;
+    KeyDistribution.Zipfian recency = null;
+    if (distribution.equals(UNIFORM)) {
+      shared = new KeyDistribution.Uniform(size);
+    } else if (distribution.equals(ZIPFIAN)) {
+      shared = new KeyDistribution.Zipfian(size, theta, true);
+    } else if (distribution.equals(HOTSPOT)) {
+      shared = new KeyDistribution.Hotspot(size, hotFraction, hotOps);
+    } else if (distribution.equals(LATEST)) {
+      recency = new KeyDistribution.Zipfian(size, theta, false);
+    } else if (!distribution.equals(SEQUENTIAL)) {
+      throw new IllegalArgumentException("Could not find key distribution: "
+        + distribution);
+    }
+    this.shared = shared;
+    this.recency = recency;
+  }
+
+  /**
+   * @return the number of keys
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * @return the name of the distribution
+   */
+  public String getDistribution() {
+    return distribution;
+  }
+
+  /**
+   * Create the key generator of a workload thread.
+   *
+   * @param thread Index of the thread, across all ClientHandlers.
+   * @param threads Number of threads, across all ClientHandlers.
+   * @return the key generator.
+   */
+  public KeyGenerator newGenerator(int thread, int threads) {
+    final KeyDistribution keys;
+    if (shared != null) {
+      keys = shared;
+    } else if (recency != null) {
+      keys = new KeyDistribution.Latest(recency, thread, threads);
+    } else {
+      keys = new KeyDistribution.Sequential(size, thread, threads);
+    }
+    return () -> keyFor(keys.nextIndex());
+  }
+
+  /**
+   * Create a key generator which walks through the key space in order,
+   * whatever the configured distribution. Together, the generators of all
+   * threads return every key once.
+   *
+   * @param thread Index of the thread, across all ClientHandlers.
+   * @param threads Number of threads, across all ClientHandlers.
+   * @return the key generator.
+   */
+  public KeyGenerator newSequentialGenerator(int thread, int threads) {
+    KeyDistribution keys = new KeyDistribution.Sequential(size, thread, threads);
+    return () -> keyFor(keys.nextIndex());
+  }
+
+  /**
+   * Returns the key of an index. Keys of small key spaces are cached once
+   * built, so picking them again does not allocate. Threads racing to build
+   * the same key build equal Strings, so the cache needs no locking.
+   *
+   * @param index Index of the key in the key space.
+   * @return the key.
+   */
+  public String keyFor(long index) {
+    if (cache == null) {
+      return buildKey(index);
+    }
+    String key = cache[(int) index];
+    if (key == null) {
+      key = buildKey(index);
+      cache[(int) index] = key;
+    }
+    return key;
+  }
+
+  private String buildKey(long index) {
+    String digits = Long.toString(index);
+    int padding = keyLength - prefix.length() - digits.length();
+    if (padding <= 0) {
+      return prefix.concat(digits);
+    }
+    char[] key = new char[keyLength];
+    prefix.getChars(0, prefix.length(), key, 0);
+    for (int i = prefix.length(); i < prefix.length() + padding; i++) {
+      key[i] = '0';
+    }
+    digits.getChars(0, digits.length(), key, prefix.length() + padding);
+    return new String(key);
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+
+import com.couchbase.client.java.document.Document;
+
+import rx.Observable;
+
+/**
+ * Fills the key space with documents before a workload is run against it.
+ *
+ * Each key is written once, in order, and the workloads of all threads
+ * together cover the whole key space.
+ */
+public class LoadWorkload extends Workload {
+
+  public static final String NAME = "load";
+
+  /** Ops kept in flight when --max-in-flight is not given. */
+  public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+  /** Amount of documents to load. */
+  private final long amount;
+
+  /** Ratio to sample statistics data. */
+  private final int sampling;
+
+  public LoadWorkload(WorkloadContext context) {
+    super(context);
+    this.amount = context.getAmount();
+    this.sampling = 100/context.getSampling();
+    if (context.getMaxInFlight() == 0) {
+      setMaxInFlight(DEFAULT_MAX_IN_FLIGHT);
+    }
+    setKeyGenerator(context.getKeySpace().newSequentialGenerator(
+      context.getThread(), context.getThreads()));
+  }
+
+  @Override
+  public void run() {
+    Thread.currentThread().setName(getWorkloadName());
+    startTimer();
+
+    int samplingCount = 0;
+    for(long i=0;i<amount;i++) {
+      String key = nextKey();
+      long lag = awaitTurn(1);
+
+      Observable<? extends Document<?>> load;
+      if(++samplingCount == sampling) {
+        load = loadWithMeasurement(key, lag);
+        samplingCount = 0;
+      } else {
+        load = load(key);
+      }
+      issue(load);
+    }
+
+    awaitCompleted();
+    endTimer();
+  }
+
+  private Observable<? extends Document<?>> loadWithMeasurement(String key,
+    long lag) {
+    return Observable.defer(() -> {
+      Document<?> document = newDocument(key);
+      return measured(NAME, lag, sizeOf(document), () -> load(document));
+    });
+  }
+
+  private Observable<? extends Document<?>> load(String key) {
+    return Observable.defer(() -> load(newDocument(key)));
+  }
+
+  private Observable<? extends Document<?>> load(Document<?> document) {
+    return counted(NAME, getBucket().upsert(document));
+  }
+
+  /**
+   * Provides this workload under {@link #NAME}.
+   */
+  public static final class Provider implements WorkloadProvider {
+
+    @Override
+    public String getName() {
+      return NAME;
+    }
+
+    @Override
+    public Workload create(WorkloadContext context) {
+      return new LoadWorkload(context);
+    }
+  }
+
+}
@@ -0,0 +1,358 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.couchbase.client.deps.io.netty.buffer.ByteBuf;
+import com.couchbase.client.deps.io.netty.buffer.Unpooled;
+import com.couchbase.roadrunner.workloads.Workload.DocumentFactory;
+import com.couchbase.roadrunner.workloads.Workload.SampleDocument;
+import com.google.common.base.Stopwatch;
+
+/**
+ * Serves the documents of a dataset file with one document per line, like a
+ * JSONL export.
+ *
+ * The dataset is memory-mapped, in segments which end on a line boundary,
+ * and the offsets of its documents are indexed once into a file next to it
+ * (FILE.idx), which is memory-mapped as well and reused by later runs. The
+ * heap used and, once indexed, the startup time do not depend on the size
+ * of the dataset.
+ *
+ * In binary mode documents are served as slices of the mapped dataset,
+ * without copying them. Legacy documents are copied to the heap to be
+ * serialized.
+ */
+public class MappedDatasetDocumentFactory implements DocumentFactory {
+
+  public static final String ORDER_RANDOM = "random";
+  public static final String ORDER_SEQUENTIAL = "sequential";
+
+  /** Marks index files, followed by the format version. */
+  private static final long INDEX_MAGIC = 0x52524944580001L;
+
+  /** Bytes in the index header: magic, dataset length, dataset timestamp, count. */
+  private static final int INDEX_HEADER = 32;
+
+  /** Bytes per index entry: offset (long) and length (int). */
+  private static final int INDEX_ENTRY = 12;
+
+  /** Index entries per mapped index segment. */
+  private static final int ENTRIES_PER_SEGMENT = 1 << 27;
+
+  /** Largest mapped dataset segment. */
+  private static final long MAX_SEGMENT = 1L << 30;
+
+  private final Logger logger = LoggerFactory.getLogger(getClass());
+
+  /** Offsets of the dataset segments in the dataset. */
+  private final long[] segmentOffsets;
+
+  /** The mapped dataset segments. */
+  private final ByteBuf[] segments;
+
+  /** The mapped index segments. */
+  private final ByteBuffer[] index;
+
+  /** Number of documents in the dataset. */
+  private final long count;
+
+  private final boolean sequential;
+
+  /** Position of each thread in the dataset, when sequential. */
+  private final ThreadLocal<long[]> cursors;
+
+  /**
+   * @param filename The dataset, with one document per line.
+   * @param order The order to serve documents in, random or sequential.
+   * @throws IOException if the dataset or its index cannot be read.
+   */
+  public MappedDatasetDocumentFactory(String filename, String order)
+    throws IOException {
+    if (!order.equals(ORDER_RANDOM) && !order.equals(ORDER_SEQUENTIAL)) {
+      throw new IllegalArgumentException("Could not find dataset order: "
+        + order);
+    }
+    this.sequential = order.equals(ORDER_SEQUENTIAL);
+    Stopwatch stopwatch = new Stopwatch().start();
+
+    File dataset = new File(filename);
+    List<Long> offsets = new ArrayList<Long>();
+    List<ByteBuf> mapped = new ArrayList<ByteBuf>();
+    try (RandomAccessFile file = new RandomAccessFile(dataset, "r")) {
+      FileChannel channel = file.getChannel();
+      long length = channel.size();
+      long offset = 0;
+      while (offset < length) {
+        long end = segmentEnd(channel, offset, length);
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY,
+          offset, end - offset);
+        offsets.add(offset);
+        mapped.add(Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(segment)));
+        offset = end;
+      }
+    }
+    this.segmentOffsets = new long[offsets.size()];
+    for (int i = 0; i < segmentOffsets.length; i++) {
+      segmentOffsets[i] = offsets.get(i);
+    }
+    this.segments = mapped.toArray(new ByteBuf[mapped.size()]);
+
+    File indexFile = new File(filename + ".idx");
+    if (!isIndexValid(indexFile, dataset)) {
+      indexFile = writeIndex(indexFile, dataset);
+    }
+    this.index = mapIndex(indexFile);
+    this.count = index.length == 0 ? 0 : index[0].getLong(24);
+    if (count == 0) {
+      throw new IllegalArgumentException("Dataset has no documents: " + filename);
+    }
+    this.cursors = new ThreadLocal<long[]>() {
+      @Override
+      protected long[] initialValue() {
+        return new long[] { ThreadLocalRandom.current().nextLong(count) };
+      }
+    };
+    logger.info("Factory using {} documents from {}, mapped in {}ms", count,
+      filename, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+  }
+
+  /**
+   * @return the number of documents in the dataset.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  @Override
+  public SampleDocument getDocument() {
+    ByteBuf content = getContent();
+    byte[] payload = new byte[content.readableBytes()];
+    content.readBytes(payload);
+    return new DatasetDocument(payload);
+  }
+
+  @Override
+  public ByteBuf getContent() {
+    return content(nextDocument());
+  }
+
+  /**
+   * @param document The index of a document in the dataset.
+   * @return a slice of the mapped dataset holding the document.
+   */
+  ByteBuf content(long document) {
+    ByteBuffer entries = index[(int) (document / ENTRIES_PER_SEGMENT)];
+    int at = (int) (document % ENTRIES_PER_SEGMENT) * INDEX_ENTRY
+      + (document < ENTRIES_PER_SEGMENT ? INDEX_HEADER : 0);
+    long offset = entries.getLong(at);
+    int length = entries.getInt(at + 8);
+    int segment = segmentOf(offset);
+    return segments[segment].slice(
+      (int) (offset - segmentOffsets[segment]), length);
+  }
+
+  private long nextDocument() {
+    if (!sequential) {
+      return ThreadLocalRandom.current().nextLong(count);
+    }
+    long[] cursor = cursors.get();
+    long document = cursor[0];
+    cursor[0] = document + 1 == count ? 0 : document + 1;
+    return document;
+  }
+
+  private int segmentOf(long offset) {
+    int low = 0;
+    int high = segmentOffsets.length - 1;
+    while (low < high) {
+      int middle = (low + high + 1) >>> 1;
+      if (segmentOffsets[middle] <= offset) {
+        low = middle;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return where the segment starting at the given offset ends: after the
+   *   last line feed within {@link #MAX_SEGMENT} bytes, or at the end of the
+   *   dataset.
+   */
+  private static long segmentEnd(FileChannel channel, long offset, long length)
+    throws IOException {
+    if (length - offset <= MAX_SEGMENT) {
+      return length;
+    }
+    ByteBuffer tail = ByteBuffer.allocate(64 * 1024);
+    long position = offset + MAX_SEGMENT;
+    while (position > offset) {
+      long from = Math.max(offset, position - tail.capacity());
+      tail.clear();
+      tail.limit((int) (position - from));
+      channel.read(tail, from);
+      for (int i = tail.position() - 1; i >= 0; i--) {
+        if (tail.get(i) == '\n') {
+          return from + i + 1;
+        }
+      }
+      position = from;
+    }
+    throw new IllegalArgumentException("Dataset has a line longer than "
+      + MAX_SEGMENT + " bytes at offset " + offset);
+  }
+
+  private static boolean isIndexValid(File indexFile, File dataset)
+    throws IOException {
+    if (!indexFile.isFile() || indexFile.length() < INDEX_HEADER) {
+      return false;
+    }
+    try (RandomAccessFile file = new RandomAccessFile(indexFile, "r")) {
+      return file.readLong() == INDEX_MAGIC
+        && file.readLong() == dataset.length()
+        && file.readLong() == dataset.lastModified()
+        && indexFile.length() == INDEX_HEADER + file.readLong() * INDEX_ENTRY;
+    }
+  }
+
+  /**
+   * Scan the mapped dataset for its lines and write their offsets to the
+   * index file, or to a temporary file if it cannot be written.
+   *
+   * @return the index file written.
+   */
+  private File writeIndex(File indexFile, File dataset) throws IOException {
+    File target = indexFile;
+    if (!(indexFile.exists() ? indexFile.canWrite()
+      : indexFile.getAbsoluteFile().getParentFile().canWrite())) {
+      target = File.createTempFile(dataset.getName(), ".idx");
+      target.deleteOnExit();
+    }
+    logger.info("Indexing dataset {} into {}", dataset, target);
+
+    long count = 0;
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+      new FileOutputStream(target), 1 << 16))) {
+      out.writeLong(INDEX_MAGIC);
+      out.writeLong(dataset.length());
+      out.writeLong(dataset.lastModified());
+      out.writeLong(0);
+      byte[] chunk = new byte[1 << 16];
+      for (int s = 0; s < segments.length; s++) {
+        ByteBuf segment = segments[s];
+        int lineStart = 0;
+        for (int from = 0; from < segment.capacity(); from += chunk.length) {
+          int read = Math.min(chunk.length, segment.capacity() - from);
+          segment.getBytes(from, chunk, 0, read);
+          for (int i = 0; i < read; i++) {
+            if (chunk[i] == '\n') {
+              count += writeEntry(out, segment, segmentOffsets[s], lineStart,
+                from + i);
+              lineStart = from + i + 1;
+            }
+          }
+        }
+        count += writeEntry(out, segment, segmentOffsets[s], lineStart,
+          segment.capacity());
+      }
+    }
+    try (RandomAccessFile file = new RandomAccessFile(target, "rw")) {
+      file.seek(24);
+      file.writeLong(count);
+    }
+    return target;
+  }
+
+  /**
+   * Write the entry of a line, without its line ending, unless it is empty.
+   *
+   * @return the number of entries written.
+   */
+  private static int writeEntry(DataOutputStream out, ByteBuf segment,
+    long segmentOffset, int start, int end) throws IOException {
+    if (end > start && segment.getByte(end - 1) == '\r') {
+      end--;
+    }
+    if (end == start) {
+      return 0;
+    }
+    out.writeLong(segmentOffset + start);
+    out.writeInt(end - start);
+    return 1;
+  }
+
+  private static ByteBuffer[] mapIndex(File indexFile) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(indexFile, "r")) {
+      FileChannel channel = file.getChannel();
+      long entries = (channel.size() - INDEX_HEADER) / INDEX_ENTRY;
+      int mappings = (int) Math.max(1,
+        (entries + ENTRIES_PER_SEGMENT - 1) / ENTRIES_PER_SEGMENT);
+      ByteBuffer[] index = new ByteBuffer[mappings];
+      for (int i = 0; i < mappings; i++) {
+        long first = (long) i * ENTRIES_PER_SEGMENT;
+        long start = i == 0 ? 0 : INDEX_HEADER + first * INDEX_ENTRY;
+        long end = INDEX_HEADER
+          + Math.min(entries, first + ENTRIES_PER_SEGMENT) * INDEX_ENTRY;
+        index[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+      }
+      return index;
+    }
+  }
+
+  /**
+   * A document of the dataset, copied to the heap.
+   */
+  static class DatasetDocument implements Serializable, SampleDocument {
+
+    private static final long serialVersionUID = 6204316543337151470L;
+    public final byte[] payload;
+
+    DatasetDocument(byte[] payload) {
+      this.payload = payload;
+    }
+
+    @Override
+    public byte[] getPayload() {
+      return payload;
+    }
+  }
+}
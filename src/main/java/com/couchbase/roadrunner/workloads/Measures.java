@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Collects latency measures per identifier into HdrHistogram Recorders.
+ *
+ * Each identifier gets its own Recorder, so the memory used stays constant
+ * no matter how many operations are measured. Recording is wait-free and
+ * does not allocate, which is important because it is called from the SDK
+ * threads that complete the operations.
+ *
+ * When operations run against a schedule, the latency measured from the
+ * intended start of the operation is recorded as well. It is reported under
+ * the identifier with the {@link #CORRECTED_SUFFIX} appended, next to the
+ * uncorrected one. Closed-loop runs get no Recorders for it.
+ */
+public class Measures implements MetricsSink {
+
+  /** Highest trackable latency, in microseconds (10 minutes). */
+  public static final long HIGHEST_TRACKABLE_VALUE =
+    TimeUnit.MINUTES.toMicros(10);
+
+  /** Number of significant value digits kept by the histograms. */
+  public static final int SIGNIFICANT_DIGITS = 3;
+
+  /** Suffix for measures corrected for coordinated omission. */
+  public static final String CORRECTED_SUFFIX = "-corrected";
+
+  /** Suffix for measures of failed operations. */
+  public static final String FAILED_SUFFIX = "-failed";
+
+  /** Lower bounds of the document size buckets, in bytes. */
+  private static final int[] SIZE_BUCKETS = { 0, 1 << 10, 4 << 10, 16 << 10,
+    64 << 10, 256 << 10, 1 << 20 };
+
+  /** Suffixes of the document size buckets. */
+  private static final String[] SIZE_BUCKET_SUFFIXES = { "[0-1KB)",
+    "[1KB-4KB)", "[4KB-16KB)", "[16KB-64KB)", "[64KB-256KB)", "[256KB-1MB)",
+    "[1MB+]" };
+
+  /** Recorders by identifier. */
+  private final ConcurrentMap<String, Recorders> recorders;
+
+  /** Histograms accumulated from the recorders, by identifier. */
+  private final Map<String, Histogram> accumulated;
+
+  /** Whether corrected latencies are recorded. */
+  private final boolean scheduled;
+
+  /**
+   * Create measures for operations which do not run against a schedule.
+   */
+  public Measures() {
+    this(false);
+  }
+
+  /**
+   * @param scheduled true if the operations run against a schedule, so that
+   *   their corrected latencies are recorded too.
+   */
+  public Measures(boolean scheduled) {
+    this.recorders = new ConcurrentHashMap<String, Recorders>();
+    this.accumulated = new HashMap<String, Histogram>();
+    this.scheduled = scheduled;
+  }
+
+  /**
+   * @param size The size of a document, in bytes.
+   * @return the index of the size bucket of the document.
+   */
+  public static int sizeBucket(int size) {
+    int bucket = SIZE_BUCKETS.length - 1;
+    while (size < SIZE_BUCKETS[bucket]) {
+      bucket--;
+    }
+    return bucket;
+  }
+
+  /**
+   * @return the number of document size buckets.
+   */
+  public static int sizeBuckets() {
+    return SIZE_BUCKETS.length;
+  }
+
+  /**
+   * @param bucket The index of a size bucket.
+   * @return the suffix of the measures of the size bucket, like "[1KB-4KB)".
+   */
+  public static String sizeBucketSuffix(int bucket) {
+    return SIZE_BUCKET_SUFFIXES[bucket];
+  }
+
+  /**
+   * Record a latency for the given identifier.
+   *
+   * @param identifier Identifier of the measure.
+   * @param latencyNanos The latency in nanoseconds.
+   */
+  public void record(String identifier, long latencyNanos) {
+    record(identifier, latencyNanos, -1);
+  }
+
+  /**
+   * Record a latency and its coordinated omission corrected counterpart.
+   *
+   * @param identifier Identifier of the measure.
+   * @param latencyNanos The latency from the actual start, in nanoseconds.
+   * @param correctedNanos The latency from the intended start, in
+   *   nanoseconds, or a negative value if there was no intended start.
+   *   Ignored unless these measures were created as scheduled.
+   */
+  @Override
+  public void record(String identifier, long latencyNanos,
+    long correctedNanos) {
+    Recorders entry = recorders.get(identifier);
+    if (entry == null) {
+      entry = recorders.computeIfAbsent(identifier,
+        id -> new Recorders(scheduled));
+    }
+    entry.latency.recordValue(toMicros(latencyNanos));
+    if (correctedNanos >= 0 && entry.corrected != null) {
+      entry.corrected.recordValue(toMicros(correctedNanos));
+    }
+  }
+
+  /**
+   * Returns a copy of all values recorded so far, by identifier.
+   *
+   * The recorders are sampled without stopping the recording threads.
+   *
+   * @return the histograms.
+   */
+  public synchronized Map<String, Histogram> getHistograms() {
+    getIntervalHistograms();
+
+    Map<String, Histogram> copy = new HashMap<String, Histogram>();
+    for (Map.Entry<String, Histogram> entry : accumulated.entrySet()) {
+      copy.put(entry.getKey(), entry.getValue().copy());
+    }
+    return copy;
+  }
+
+  /**
+   * Returns the values recorded since the last sample, by identifier.
+   *
+   * The recorders are sampled without stopping the recording threads, and
+   * the sampled values are kept for {@link #getHistograms()}.
+   *
+   * @return the interval histograms.
+   */
+  public synchronized Map<String, Histogram> getIntervalHistograms() {
+    Map<String, Histogram> intervals = new HashMap<String, Histogram>();
+    for (Map.Entry<String, Recorders> entry : recorders.entrySet()) {
+      accumulate(intervals, entry.getKey(), entry.getValue().latency);
+      if (entry.getValue().corrected != null) {
+        accumulate(intervals, entry.getKey() + CORRECTED_SUFFIX,
+          entry.getValue().corrected);
+      }
+    }
+    return intervals;
+  }
+
+  /**
+   * Add the values recorded since the last sample to the accumulated ones.
+   *
+   * Recorders which never saw a value are left out.
+   */
+  private void accumulate(Map<String, Histogram> intervals, String identifier,
+    Recorder recorder) {
+    Histogram interval = recorder.getIntervalHistogram();
+    Histogram total = accumulated.get(identifier);
+    if (total != null) {
+      total.add(interval);
+    } else if (interval.getTotalCount() > 0) {
+      accumulated.put(identifier, interval.copy());
+    } else {
+      return;
+    }
+    intervals.put(identifier, interval);
+  }
+
+  private static long toMicros(long nanos) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+    return Math.min(Math.max(micros, 0), HIGHEST_TRACKABLE_VALUE);
+  }
+
+  /**
+   * Merge the given histograms into the target map.
+   *
+   * @param target The map to merge into.
+   * @param source The histograms to merge.
+   */
+  public static void merge(Map<String, Histogram> target,
+    Map<String, Histogram> source) {
+    for (Map.Entry<String, Histogram> entry : source.entrySet()) {
+      Histogram merged = target.get(entry.getKey());
+      if (merged == null) {
+        target.put(entry.getKey(), entry.getValue().copy());
+      } else {
+        merged.add(entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * The recorders kept for a single identifier.
+   */
+  private static final class Recorders {
+    final Recorder latency =
+      new Recorder(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+    /** null unless the operations run against a schedule */
+    final Recorder corrected;
+
+    Recorders(boolean scheduled) {
+      this.corrected = scheduled
+        ? new Recorder(HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS) : null;
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+
+import com.couchbase.client.java.document.Document;
+
+import rx.Observable;
+
+/**
+ * Runs a weighted mix of single ops, as declared by an {@link OperationMix}.
+ *
+ * Each op is measured under its own identifier ("get", "upsert", ...). Ops
+ * failing because the key does (insert) or does not (replace, remove, touch,
+ * append) exist are counted like any other error, so the mix should match
+ * the state the key space is in, for example after a load phase. Counters
+ * live under their own keys (the document key plus {@link #COUNTER_SUFFIX}),
+ * as a counter op on a document holding a JSON body fails, and the other ops
+ * would in turn overwrite or remove the counters.
+ */
+public class MixWorkload extends Workload {
+
+  public static final String NAME = "mix";
+
+  /** Suffix of the keys the "counter" op increments. */
+  public static final String COUNTER_SUFFIX = "-counter";
+
+  /** Content appended to a document by the "append" op. */
+  private static final String APPEND_CONTENT = "-";
+
+  /** Amount of ops to run. */
+  private final long amount;
+
+  /** Ratio to sample statistics data. */
+  private final int sampling;
+
+  /** The ops to run and their weights. */
+  private final OperationMix mix;
+
+  public MixWorkload(WorkloadContext context) {
+    super(context);
+    this.amount = context.getAmount();
+    this.sampling = 100/context.getSampling();
+    this.mix = context.getMix();
+  }
+
+  @Override
+  public void run() {
+    Thread.currentThread().setName(getWorkloadName());
+    startTimer();
+
+    int samplingCount = 0;
+    for(long i=0;i<amount && !isDeadlineReached();i++) {
+      OperationMix.Op op = mix.next();
+      String key = nextKey();
+      long lag = awaitTurn(1);
+
+      Observable<?> result;
+      if(++samplingCount == sampling) {
+        result = opWithMeasurement(op, key, lag);
+        samplingCount = 0;
+      } else {
+        result = op(op, key);
+      }
+      issue(result);
+    }
+
+    awaitCompleted();
+    endTimer();
+  }
+
+  private Observable<?> opWithMeasurement(OperationMix.Op op, String key,
+    long lag) {
+    return Observable.defer(() -> {
+      Document<?> document = documentFor(op, key);
+      int size = document == null ? -1 : sizeOf(document);
+      return measured(op.id(), lag, size, () -> op(op, key, document));
+    });
+  }
+
+  private Observable<?> op(OperationMix.Op op, String key) {
+    return Observable.defer(() -> op(op, key, documentFor(op, key)));
+  }
+
+  /**
+   * @return the document written by the op, null if it writes none.
+   */
+  private Document<?> documentFor(OperationMix.Op op, String key) {
+    switch (op) {
+      case UPSERT:
+      case INSERT:
+      case REPLACE:
+        return newDocument(key);
+      case APPEND:
+        return newDocument(key, APPEND_CONTENT);
+      default:
+        return null;
+    }
+  }
+
+  private Observable<?> op(OperationMix.Op op, String key, Document<?> document) {
+    Observable<?> result;
+    switch (op) {
+      case GET:
+        result = getBucket().get(key, documentType()).doOnNext(this::release);
+        break;
+      case UPSERT:
+        result = getBucket().upsert(document);
+        break;
+      case INSERT:
+        result = getBucket().insert(document);
+        break;
+      case REPLACE:
+        result = getBucket().replace(document);
+        break;
+      case REMOVE:
+        result = getBucket().remove(key, documentType());
+        break;
+      case TOUCH:
+        result = getBucket().touch(key, 0);
+        break;
+      case COUNTER:
+        result = getBucket().counter(key + COUNTER_SUFFIX, 1, 0);
+        break;
+      case APPEND:
+        result = getBucket().append(document);
+        break;
+      default:
+        throw new IllegalStateException("Unknown op: " + op);
+    }
+    return counted(op.id(), result);
+  }
+
+  /**
+   * Provides this workload under {@link #NAME}.
+   */
+  public static final class Provider implements WorkloadProvider {
+
+    @Override
+    public String getName() {
+      return NAME;
+    }
+
+    @Override
+    public Workload create(WorkloadContext context) {
+      return new MixWorkload(context);
+    }
+  }
+
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts ops by identifier ("get", "upsert", ...) and {@link Outcome}.
+ *
+ * Ops complete on the SDK threads, so the counts are kept in LongAdders,
+ * which spread concurrent increments over cells instead of contending on
+ * a single value.
+ */
+public class OpCounters {
+
+  private static final int OUTCOMES = Outcome.values().length;
+
+  /** Counters by identifier, one per outcome. */
+  private final ConcurrentMap<String, LongAdder[]> counters =
+    new ConcurrentHashMap<String, LongAdder[]>();
+
+  /**
+   * Count an op.
+   *
+   * @param identifier Identifier of the op.
+   * @param outcome How the op ended.
+   */
+  public void increment(String identifier, Outcome outcome) {
+    LongAdder[] opCounters = counters.get(identifier);
+    if (opCounters == null) {
+      opCounters = counters.computeIfAbsent(identifier, id -> {
+        LongAdder[] adders = new LongAdder[OUTCOMES];
+        for (int i = 0; i < adders.length; i++) {
+          adders[i] = new LongAdder();
+        }
+        return adders;
+      });
+    }
+    opCounters[outcome.ordinal()].increment();
+  }
+
+  /**
+   * @param identifier Identifier of the op.
+   * @param outcome How the ops ended.
+   * @return the number of ops counted so far.
+   */
+  public long get(String identifier, Outcome outcome) {
+    LongAdder[] opCounters = counters.get(identifier);
+    return opCounters == null ? 0 : opCounters[outcome.ordinal()].sum();
+  }
+
+  /**
+   * @return the counts so far by identifier, indexed by outcome ordinal.
+   */
+  public Map<String, long[]> getCounts() {
+    Map<String, long[]> counts = new HashMap<String, long[]>();
+    for (Map.Entry<String, LongAdder[]> entry : counters.entrySet()) {
+      long[] opCounts = new long[OUTCOMES];
+      for (int i = 0; i < opCounts.length; i++) {
+        opCounts[i] = entry.getValue()[i].sum();
+      }
+      counts.put(entry.getKey(), opCounts);
+    }
+    return counts;
+  }
+
+  /**
+   * Add counts to others, by identifier.
+   *
+   * @param merged The counts to add to.
+   * @param counts The counts to add, as returned by {@link #getCounts()}.
+   */
+  public static void merge(Map<String, long[]> merged,
+    Map<String, long[]> counts) {
+    for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+      long[] mergedCounts = merged.get(entry.getKey());
+      if (mergedCounts == null) {
+        merged.put(entry.getKey(), entry.getValue().clone());
+      } else {
+        for (int i = 0; i < mergedCounts.length; i++) {
+          mergedCounts[i] += entry.getValue()[i];
+        }
+      }
+    }
+  }
+}
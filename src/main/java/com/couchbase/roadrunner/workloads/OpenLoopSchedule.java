@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The schedule of a single workload, which hands out the intended start time
+ * of its operations out of the slots of a shared {@link RateLimiter}.
+ *
+ * The schedule does not care about how long operations take: if the workload
+ * falls behind, the intended start times stay in the past and the workload
+ * issues operations back to back until it has caught up. Measuring latency
+ * from the intended start time therefore includes the time an operation
+ * spent waiting for a stalled cluster (coordinated omission correction).
+ *
+ * A schedule is owned by a single workload thread and is not thread-safe.
+ */
+public class OpenLoopSchedule {
+
+  /** The limiter the slots are claimed from. */
+  private final RateLimiter limiter;
+
+  /** Next slot of the current allotment. */
+  private long next;
+
+  /** End (exclusive) of the current allotment. */
+  private long end;
+
+  OpenLoopSchedule(RateLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  /**
+   * Wait for the intended start of the next operations.
+   *
+   * @param ops The number of operations that will be issued together.
+   * @return The intended start time (System.nanoTime) of the first of them.
+   */
+  public long next(int ops) {
+    if (end - next < ops) {
+      int slots = limiter.allotmentFor(ops);
+      next = limiter.claim(slots);
+      end = next + slots;
+    }
+    long intended = limiter.dueAt(next);
+    next += ops;
+
+    long now;
+    while ((now = System.nanoTime()) < intended) {
+      LockSupport.parkNanos(intended - now);
+    }
+    return intended;
+  }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The operations of a {@link MixWorkload} and their share of all ops.
+ *
+ * A mix is declared as a comma separated list of operations and their
+ * weights, like "get:70,upsert:20,counter:5,touch:5". Weights need not add
+ * up to 100. Operations are picked with an alias table, which takes one
+ * random int and one random double whatever the number of operations.
+ *
+ * A mix is immutable and can be shared by all workloads.
+ */
+public final class OperationMix {
+
+  /** The operations a mix may hold. */
+  public enum Op {
+    GET, UPSERT, INSERT, REPLACE, REMOVE, TOUCH, COUNTER, APPEND;
+
+    /** Identifier of the op, used in the mix and for its measures. */
+    private final String id = name().toLowerCase(Locale.ENGLISH);
+
+    /**
+     * @return the identifier of the op.
+     */
+    public String id() {
+      return id;
+    }
+  }
+
+  private final Op[] ops;
+  private final double[] weights;
+
+  /** Probability to keep the op of a slot instead of its alias. */
+  private final double[] probability;
+
+  /** Index of the op picked when the one of a slot is not kept. */
+  private final int[] alias;
+
+  /**
+   * Create a mix out of its declaration.
+   *
+   * @param mix The mix, like "get:70,upsert:20,counter:5,touch:5".
+   * @throws IllegalArgumentException if the mix cannot be parsed.
+   */
+  public OperationMix(String mix) {
+    String[] entries = mix.split(",");
+    ops = new Op[entries.length];
+    weights = new double[entries.length];
+    double total = 0;
+    for (int i = 0; i < entries.length; i++) {
+      String[] entry = entries[i].trim().split(":");
+      if (entry.length != 2) {
+        throw new IllegalArgumentException("Could not parse mix entry \""
+          + entries[i] + "\", expected op:weight.");
+      }
+      ops[i] = parseOp(entry[0].trim());
+      for (int j = 0; j < i; j++) {
+        if (ops[j] == ops[i]) {
+          throw new IllegalArgumentException("Op \"" + ops[i].id()
+            + "\" appears twice in the mix.");
+        }
+      }
+      weights[i] = Double.parseDouble(entry[1].trim());
+      if (weights[i] < 0 || Double.isNaN(weights[i])) {
+        throw new IllegalArgumentException("Weight of op \"" + ops[i].id()
+          + "\" must not be negative.");
+      }
+      total += weights[i];
+    }
+    if (total <= 0) {
+      throw new IllegalArgumentException("The mix needs a positive weight.");
+    }
+
+    probability = new double[ops.length];
+    alias = new int[ops.length];
+    buildAliasTable(total);
+  }
+
+  private static Op parseOp(String id) {
+    for (Op op : Op.values()) {
+      if (op.id().equals(id)) {
+        return op;
+      }
+    }
+    throw new IllegalArgumentException("Could not find op: " + id);
+  }
+
+  /**
+   * Build the alias table with Vose's method: each slot gets the share of
+   * one op which is below average, topped up by one which is above it.
+   */
+  private void buildAliasTable(double total) {
+    int n = ops.length;
+    double[] scaled = new double[n];
+    Deque<Integer> small = new ArrayDeque<Integer>();
+    Deque<Integer> large = new ArrayDeque<Integer>();
+    for (int i = 0; i < n; i++) {
+      scaled[i] = weights[i] * n / total;
+      if (scaled[i] < 1) {
+        small.push(i);
+      } else {
+        large.push(i);
+      }
+    }
+    while (!small.isEmpty() && !large.isEmpty()) {
+      int less = small.pop();
+      int more = large.pop();
+      probability[less] = scaled[less];
+      alias[less] = more;
+      scaled[more] = scaled[more] + scaled[less] - 1;
+      if (scaled[more] < 1) {
+        small.push(more);
+      } else {
+        large.push(more);
+      }
+    }
+    // What is left is at 1, give or take rounding errors.
+    while (!large.isEmpty()) {
+      probability[large.pop()] = 1;
+    }
+    while (!small.isEmpty()) {
+      probability[small.pop()] = 1;
+    }
+  }
+
+  /**
+   * @return the next op, picked according to the weights of the mix.
+   */
+  public Op next() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int slot = random.nextInt(ops.length);
+    return random.nextDouble() < probability[slot] ? ops[slot] : ops[alias[slot]];
+  }
+
+  /**
+   * @return the ops of the mix, in declaration order.
+   */
+  public Op[] getOps() {
+    return ops.clone();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < ops.length; i++) {
+      if (i > 0) {
+        builder.append(',');
+      }
+      builder.append(ops[i].id()).append(':').append(weights[i]);
+    }
+    return builder.toString();
+  }
+}
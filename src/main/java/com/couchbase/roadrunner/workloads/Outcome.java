@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.concurrent.TimeoutException;
+
+import com.couchbase.client.core.BackpressureException;
+import com.couchbase.client.java.error.CASMismatchException;
+import com.couchbase.client.java.error.DocumentAlreadyExistsException;
+import com.couchbase.client.java.error.DocumentDoesNotExistException;
+
+/**
+ * How an op ended, as counted by {@link OpCounters}.
+ */
+public enum Outcome {
+
+  SUCCESS("success"),
+  NOT_FOUND("not-found"),
+  EXISTS("exists"),
+  CAS_MISMATCH("cas-mismatch"),
+  TIMEOUT("timeout"),
+  BACKPRESSURE("backpressure"),
+  OTHER("other");
+
+  private final String id;
+
+  private Outcome(String id) {
+    this.id = id;
+  }
+
+  /**
+   * @return the identifier of the outcome in reports.
+   */
+  public String id() {
+    return id;
+  }
+
+  /**
+   * Classifies the error an op failed with, looking through the causes of
+   * wrapped errors.
+   *
+   * @param error The error.
+   * @return the outcome of the op.
+   */
+  public static Outcome of(Throwable error) {
+    for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+      if (cause instanceof DocumentDoesNotExistException) {
+        return NOT_FOUND;
+      } else if (cause instanceof DocumentAlreadyExistsException) {
+        return EXISTS;
+      } else if (cause instanceof CASMismatchException) {
+        return CAS_MISMATCH;
+      } else if (cause instanceof TimeoutException) {
+        return TIMEOUT;
+      } else if (cause instanceof BackpressureException) {
+        return BACKPRESSURE;
+      }
+    }
+    return OTHER;
+  }
+}
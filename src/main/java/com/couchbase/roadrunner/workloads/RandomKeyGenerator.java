@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates random keys: a prefix followed by random hex digits.
+ *
+ * Random numbers come from ThreadLocalRandom, so generators on different
+ * threads never contend, and a key costs a single String allocation. The
+ * default of 32 hex digits carries 128 random bits, like a random UUID.
+ */
+public class RandomKeyGenerator implements KeyGenerator {
+
+  /** Number of random digits when no key length is given. */
+  public static final int DEFAULT_RANDOM_DIGITS = 32;
+
+  /** Fewest random digits a key may have. */
+  public static final int MIN_RANDOM_DIGITS = 8;
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  /** The next key, starting with the prefix. */
+  private final char[] key;
+
+  /** Where the random digits start in the key. */
+  private final int randomStart;
+
+  /**
+   * @param prefix The prefix of the keys.
+   * @param keyLength The length of the keys, prefix included, or 0 for
+   *   {@link #DEFAULT_RANDOM_DIGITS} random digits after the prefix.
+   */
+  public RandomKeyGenerator(String prefix, int keyLength) {
+    int length = keyLength == 0 ? prefix.length() + DEFAULT_RANDOM_DIGITS : keyLength;
+    if (length - prefix.length() < MIN_RANDOM_DIGITS) {
+      throw new IllegalArgumentException("Key length " + keyLength
+        + " leaves less than " + MIN_RANDOM_DIGITS + " random digits after "
+        + "the prefix \"" + prefix + "\".");
+    }
+    this.key = new char[length];
+    prefix.getChars(0, prefix.length(), key, 0);
+    this.randomStart = prefix.length();
+  }
+
+  @Override
+  public String nextKey() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long bits = 0;
+    for (int i = randomStart, digit = 0; i < key.length; i++, digit++) {
+      if ((digit & 15) == 0) {
+        bits = random.nextLong();
+      }
+      key[i] = HEX[(int) bits & 15];
+      bits >>>= 4;
+    }
+    return new String(key);
+  }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A target throughput shared by all workloads of a run.
+ *
+ * The limiter hands out numbered slots, slot n being due n intervals after
+ * the start of the run. Workloads do not take their slots one by one from the
+ * shared counter: each of them claims an allotment of consecutive slots worth
+ * about {@link #ALLOTMENT_SPAN} of ops and serves its ops out of it. The
+ * shared counter is therefore touched a few thousand times per second at
+ * most, no matter how many clients and threads are running.
+ *
+ * Since the slots are handed out in order, a thread which falls behind does
+ * not lower the achieved rate as long as the others can keep up.
+ */
+public class RateLimiter {
+
+  /** Time covered by the allotment a workload claims at once. */
+  static final long ALLOTMENT_SPAN = TimeUnit.MICROSECONDS.toNanos(100);
+
+  /** The target throughput in ops/s. */
+  private final long opsPerSecond;
+
+  /** Nanoseconds between two slots. */
+  private final double intervalNanos;
+
+  /** Minimum number of slots claimed at once. */
+  private final int allotment;
+
+  /** The next slot which has not been claimed yet. */
+  private final AtomicLong nextSlot;
+
+  /** When slot 0 is due (System.nanoTime). */
+  private volatile long start;
+
+  /**
+   * Create a new rate limiter.
+   *
+   * @param opsPerSecond The target throughput, across all workloads.
+   */
+  public RateLimiter(long opsPerSecond) {
+    if (opsPerSecond <= 0) {
+      throw new IllegalArgumentException("Target rate must be positive: "
+        + opsPerSecond);
+    }
+    this.opsPerSecond = opsPerSecond;
+    this.intervalNanos = (double) TimeUnit.SECONDS.toNanos(1) / opsPerSecond;
+    this.allotment = (int) Math.max(1, ALLOTMENT_SPAN / intervalNanos);
+    this.nextSlot = new AtomicLong();
+    this.start = System.nanoTime();
+  }
+
+  /**
+   * Start handing out slots from now.
+   */
+  public void start() {
+    nextSlot.set(0);
+    start = System.nanoTime();
+  }
+
+  /**
+   * @return the target throughput in ops/s
+   */
+  public long getRate() {
+    return opsPerSecond;
+  }
+
+  /**
+   * Create the schedule a single workload uses to take its slots.
+   *
+   * @return a new schedule.
+   */
+  public OpenLoopSchedule newSchedule() {
+    return new OpenLoopSchedule(this);
+  }
+
+  /**
+   * Returns how many slots a workload issuing the given number of ops at
+   * once should claim. It is a multiple of the ops, so no slot goes unused.
+   *
+   * @param ops Number of ops issued at once.
+   * @return the size of the allotment.
+   */
+  int allotmentFor(int ops) {
+    return ((allotment + ops - 1) / ops) * ops;
+  }
+
+  /**
+   * Claim consecutive slots.
+   *
+   * @param slots Number of slots to claim.
+   * @return the first claimed slot.
+   */
+  long claim(int slots) {
+    return nextSlot.getAndAdd(slots);
+  }
+
+  /**
+   * @param slot The slot.
+   * @return when the slot is due (System.nanoTime).
+   */
+  long dueAt(long slot) {
+    return start + (long) (slot * intervalNanos);
+  }
+}
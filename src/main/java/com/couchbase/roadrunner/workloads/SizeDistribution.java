@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * Picks the size of the next document to write.
+ *
+ * Like the {@link KeyDistribution}s, all distributions draw their random
+ * numbers from ThreadLocalRandom and keep no shared mutable state.
+ */
+public abstract class SizeDistribution {
+
+  public static final String FIXED = "fixed";
+  public static final String UNIFORM = "uniform";
+  public static final String NORMAL = "normal";
+  public static final String HISTOGRAM = "histogram";
+
+  /**
+   * @return the size of the next document, in bytes, at least 1.
+   */
+  public abstract int nextSize();
+
+  /**
+   * @return the largest size which can be picked.
+   */
+  public abstract int getMaxSize();
+
+  /**
+   * Create a distribution out of its declaration: "fixed", "uniform:MIN:MAX",
+   * "normal:MEAN:STDDEV" or "histogram:FILE".
+   *
+   * @param spec The declaration of the distribution.
+   * @param fixedSize The size of the "fixed" distribution.
+   * @return the distribution.
+   * @throws IOException if the histogram file cannot be read.
+   */
+  public static SizeDistribution fromSpec(String spec, int fixedSize)
+    throws IOException {
+    String[] parts = spec.split(":", 2);
+    String[] args = parts.length > 1 ? parts[1].split(":") : new String[0];
+    switch (parts[0]) {
+      case FIXED:
+        return new Fixed(fixedSize);
+      case UNIFORM:
+        expectArgs(spec, args, 2);
+        return new Uniform(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+      case NORMAL:
+        expectArgs(spec, args, 2);
+        return new Normal(Double.parseDouble(args[0]),
+          Double.parseDouble(args[1]));
+      case HISTOGRAM:
+        return Histogram.fromFile(parts.length > 1 ? parts[1] : "");
+      default:
+        throw new IllegalArgumentException("Could not find size distribution: "
+          + spec);
+    }
+  }
+
+  private static void expectArgs(String spec, String[] args, int count) {
+    if (args.length != count) {
+      throw new IllegalArgumentException("Size distribution \"" + spec
+        + "\" needs " + count + " arguments.");
+    }
+  }
+
+  /**
+   * Every document has the same size.
+   */
+  public static class Fixed extends SizeDistribution {
+
+    private final int size;
+
+    public Fixed(int size) {
+      if (size <= 0) {
+        throw new IllegalArgumentException("Size must be positive: " + size);
+      }
+      this.size = size;
+    }
+
+    @Override
+    public int nextSize() {
+      return size;
+    }
+
+    @Override
+    public int getMaxSize() {
+      return size;
+    }
+  }
+
+  /**
+   * Every size between min and max (inclusive) is equally likely.
+   */
+  public static class Uniform extends SizeDistribution {
+
+    private final int min;
+    private final int max;
+
+    public Uniform(int min, int max) {
+      if (min <= 0 || max < min) {
+        throw new IllegalArgumentException("Invalid size range: " + min
+          + "-" + max);
+      }
+      this.min = min;
+      this.max = max;
+    }
+
+    @Override
+    public int nextSize() {
+      return min + ThreadLocalRandom.current().nextInt(max - min + 1);
+    }
+
+    @Override
+    public int getMaxSize() {
+      return max;
+    }
+  }
+
+  /**
+   * Sizes follow a normal distribution, cut at 1 byte and at six standard
+   * deviations above the mean.
+   */
+  public static class Normal extends SizeDistribution {
+
+    private final double mean;
+    private final double stddev;
+    private final int max;
+
+    public Normal(double mean, double stddev) {
+      if (mean < 1 || stddev < 0) {
+        throw new IllegalArgumentException("Invalid normal distribution: "
+          + mean + ", " + stddev);
+      }
+      this.mean = mean;
+      this.stddev = stddev;
+      this.max = (int) Math.min(Integer.MAX_VALUE - 8, Math.ceil(mean + 6 * stddev));
+    }
+
+    @Override
+    public int nextSize() {
+      double size = mean + stddev * ThreadLocalRandom.current().nextGaussian();
+      return (int) Math.max(1, Math.min(max, Math.round(size)));
+    }
+
+    @Override
+    public int getMaxSize() {
+      return max;
+    }
+  }
+
+  /**
+   * Sizes follow an empirical histogram. Each bin is given by its upper
+   * bound and its weight, its lower bound being the upper bound of the
+   * previous bin (or 1). A size is picked uniformly within its bin.
+   */
+  public static class Histogram extends SizeDistribution {
+
+    private final int[] upperBounds;
+    private final double[] cumulative;
+
+    /**
+     * @param upperBounds The upper bounds of the bins, increasing.
+     * @param weights The weights of the bins.
+     */
+    public Histogram(int[] upperBounds, double[] weights) {
+      if (upperBounds.length == 0 || upperBounds.length != weights.length) {
+        throw new IllegalArgumentException("Histogram needs one weight per bin.");
+      }
+      this.upperBounds = upperBounds.clone();
+      this.cumulative = new double[weights.length];
+      double total = 0;
+      for (int i = 0; i < weights.length; i++) {
+        if (upperBounds[i] <= 0 || (i > 0 && upperBounds[i] <= upperBounds[i - 1])) {
+          throw new IllegalArgumentException("Histogram bounds must be positive "
+            + "and increasing: " + Arrays.toString(upperBounds));
+        }
+        if (weights[i] < 0) {
+          throw new IllegalArgumentException("Histogram weights must not be "
+            + "negative: " + Arrays.toString(weights));
+        }
+        total += weights[i];
+        cumulative[i] = total;
+      }
+      if (total <= 0) {
+        throw new IllegalArgumentException("Histogram needs a positive weight.");
+      }
+    }
+
+    /**
+     * Read a histogram from a file with one "UPPER_BOUND WEIGHT" bin per
+     * line. Empty lines and lines starting with # are skipped.
+     *
+     * @param filename The file.
+     * @return the distribution.
+     * @throws IOException if the file cannot be read.
+     */
+    public static Histogram fromFile(String filename) throws IOException {
+      List<String> lines = Files.readLines(new File(filename), Charsets.UTF_8);
+      List<Integer> bounds = new ArrayList<Integer>();
+      List<Double> weights = new ArrayList<Double>();
+      for (String line : lines) {
+        line = line.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] fields = line.split("[\\s,]+");
+        if (fields.length != 2) {
+          throw new IllegalArgumentException("Could not parse histogram line \""
+            + line + "\" in " + filename + ", expected UPPER_BOUND WEIGHT.");
+        }
+        bounds.add(Integer.parseInt(fields[0]));
+        weights.add(Double.parseDouble(fields[1]));
+      }
+      int[] upperBounds = new int[bounds.size()];
+      double[] binWeights = new double[weights.size()];
+      for (int i = 0; i < upperBounds.length; i++) {
+        upperBounds[i] = bounds.get(i);
+        binWeights[i] = weights.get(i);
+      }
+      return new Histogram(upperBounds, binWeights);
+    }
+
+    @Override
+    public int nextSize() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      double target = random.nextDouble() * cumulative[cumulative.length - 1];
+      int bin = Arrays.binarySearch(cumulative, target);
+      bin = bin < 0 ? -bin - 1 : bin + 1;
+      bin = Math.min(bin, cumulative.length - 1);
+      int lower = bin == 0 ? 1 : upperBounds[bin - 1] + 1;
+      return lower + random.nextInt(upperBounds[bin] - lower + 1);
+    }
+
+    @Override
+    public int getMaxSize() {
+      return upperBounds[upperBounds.length - 1];
+    }
+  }
+}
@@ -25,22 +25,37 @@ package com.couchbase.roadrunner.workloads;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
-import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.couchbase.client.deps.io.netty.buffer.ByteBuf;
+import com.couchbase.client.deps.io.netty.buffer.Unpooled;
 import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.document.Document;
 import com.google.common.base.Charsets;
 import com.google.common.base.Stopwatch;
 import com.google.common.io.Files;
 
+import rx.Observable;
+import rx.functions.Func0;
+
+/**
+ * Base class of the workloads, each run by a single thread.
+ *
+ * Workloads are created by their {@link WorkloadProvider} out of a
+ * {@link WorkloadContext}, which this class takes its settings from.
+ */
 public abstract class Workload implements Runnable {
 
   /** Configure a reusable logger. */
@@ -53,11 +68,17 @@ public abstract class Workload implements Runnable {
   /** Name of the Workload */
   private final String workloadName;
 
-  /** Counter of total measured ops */
-  private long measuredOps;
+  /** Counter of total measured ops, updated from the SDK threads */
+  private final LongAdder measuredOps;
 
-  /** Counter of total ops */
-  private long totalOps;
+  /** Counter of total successful ops, updated from the SDK threads */
+  private final LongAdder totalOps;
+
+  /** Counters of ops by identifier and outcome */
+  private final OpCounters opCounters;
+
+  /** Where the errors of failed ops go */
+  private final ErrorTracker errorTracker;
 
   /** Ramp time */
   private long ramp;
@@ -65,33 +86,301 @@ public abstract class Workload implements Runnable {
   /** Total runtime of this workload thread */
   private Stopwatch elapsed;
 
-  /** Measures */
-  private Map<String, List<Stopwatch>> measures;
+  /** Point in time (System.nanoTime) after which ops are measured */
+  private volatile long measureAfter;
+
+  /** Where the measures go */
+  private final MetricsSink metricsSink;
+
+  /** Schedule of intended start times, null when running closed-loop */
+  private final OpenLoopSchedule schedule;
+
+  /** Generator of keys */
+  private KeyGenerator keyGenerator;
+
+  /** Time after which an op fails, in milliseconds, 0 for none */
+  private final long opTimeout;
+
+  /** Permits for in-flight ops, null when they are not bounded */
+  private Semaphore inFlight;
+
+  /** Number of permits for in-flight ops */
+  private int maxInFlight;
+
+  /** Ops issued and not done yet, plus one until all ops are issued */
+  private final AtomicLong pending;
+
+  /** Released once all ops are issued and done */
+  private final CountDownLatch allCompleted;
+
+  /** How the chains of ops are run */
+  private final Engine engine;
+
+  /** Whether the workload stops at the deadline */
+  private final boolean hasDeadline;
+
+  /** When to stop issuing ops (System.nanoTime) */
+  private final long deadline;
 
   private final DocumentFactory documentFactory;
 
-  public Workload(final Bucket bucket, final String name,
-    final int ramp, final DocumentFactory documentFactory) {
-    this.bucket = bucket;
-    this.workloadName = name;
-    this.measures = new HashMap<String, List<Stopwatch>>();
-    this.measuredOps = 0;
-    this.totalOps = 0;
-    this.ramp = ramp;
+  /** How documents are stored and fetched */
+  private final DocumentMode documentMode;
+
+  /** Whether writes are also measured per document size bucket */
+  private final boolean measureSizes;
+
+  /** Identifiers of the measures per size bucket, by identifier */
+  private final ConcurrentMap<String, String[]> sizeIdentifiers;
+
+  /** Identifiers of the measures of failed ops, by identifier */
+  private final ConcurrentMap<String, String> failedIdentifiers;
+
+  public Workload(final WorkloadContext context) {
+    this.bucket = context.getBucket();
+    this.workloadName = context.getName();
+    this.metricsSink = context.getMetricsSink();
+    this.measuredOps = new LongAdder();
+    this.totalOps = new LongAdder();
+    this.opCounters = new OpCounters();
+    this.errorTracker = context.getErrorTracker();
+    this.ramp = context.getRamp();
     this.elapsed = new Stopwatch();
-    this.documentFactory = documentFactory;
+    this.documentFactory = context.getDocumentFactory();
+    this.documentMode = context.getDocumentMode();
+    this.measureSizes = context.isMeasureSizes();
+    this.sizeIdentifiers = new ConcurrentHashMap<String, String[]>();
+    this.failedIdentifiers = new ConcurrentHashMap<String, String>();
+    this.schedule = context.getSchedule();
+    this.hasDeadline = context.getDeadline() != 0;
+    this.deadline = context.getDeadline();
+    this.pending = new AtomicLong(1);
+    this.allCompleted = new CountDownLatch(1);
+    this.engine = context.getEngine();
+    this.opTimeout = context.getOpTimeout();
+    if (engine == Engine.VIRTUAL && context.getMaxInFlight() == 0) {
+      setMaxInFlight(Engine.DEFAULT_VIRTUAL_IN_FLIGHT);
+    }
+    if (context.getMaxInFlight() > 0) {
+      setMaxInFlight(context.getMaxInFlight());
+    }
+    if (context.getKeySpace() != null) {
+      setKeyGenerator(context.getKeySpace().newGenerator(
+        context.getThread(), context.getThreads()));
+    } else {
+      setKeyGenerator(new RandomKeyGenerator(context.getKeyPrefix(),
+        context.getKeyLength()));
+    }
   }
 
   public long getTotalOps() {
-    return totalOps;
+    return totalOps.sum();
   }
 
-  public void incrTotalOps() {
-    totalOps++;
+  /**
+   * @return the counters of the ops by identifier and outcome.
+   */
+  public OpCounters getOpCounters() {
+    return opCounters;
+  }
+
+  /**
+   * Count an op. Successful ops are counted in the total ops as well.
+   *
+   * @param identifier Identifier of the op.
+   * @param outcome How the op ended.
+   */
+  protected void countOp(String identifier, Outcome outcome) {
+    opCounters.increment(identifier, outcome);
+    if (outcome == Outcome.SUCCESS) {
+      totalOps.increment();
+    }
+  }
+
+  /**
+   * Count the op run when subscribing to the given result. Gets completing
+   * without a document are counted as not found, failures by the outcome
+   * of their error, which also goes to the {@link ErrorTracker}. The errors
+   * are still passed on, but do not need to be logged.
+   *
+   * The async bucket applies no timeout, so the op is failed with a
+   * {@link java.util.concurrent.TimeoutException} here once the configured
+   * op timeout elapsed.
+   *
+   * @param identifier Identifier of the op.
+   * @param result The result of a single op.
+   * @return the result, counted once it completes.
+   */
+  protected <T> Observable<T> counted(String identifier, Observable<T> result) {
+    Observable<T> bounded = opTimeout > 0
+      ? result.timeout(opTimeout, TimeUnit.MILLISECONDS) : result;
+    return Observable.defer(() -> {
+      boolean[] emitted = new boolean[1];
+      return bounded
+        .doOnNext(item -> emitted[0] = true)
+        .doOnCompleted(() -> countOp(identifier,
+          emitted[0] ? Outcome.SUCCESS : Outcome.NOT_FOUND))
+        .doOnError(ex -> {
+          countOp(identifier, Outcome.of(ex));
+          errorTracker.record(identifier, ex);
+        });
+    });
+  }
+
+  /**
+   * Measure the op run by the given function, from the time it is called.
+   *
+   * Ops which fail are measured under the identifier with
+   * {@link Measures#FAILED_SUFFIX} appended, so timeouts do not end up in
+   * the latencies of successful ops.
+   *
+   * @param identifier Identifier of the measure.
+   * @param lag How far behind schedule the op was issued.
+   * @param size The size of the written document, see
+   *   {@link #sizeOf(Document)}.
+   * @param op Runs the op.
+   * @return the result of the op, measured once it completes.
+   */
+  protected <T> Observable<? extends T> measured(String identifier, long lag,
+    int size, Func0<Observable<? extends T>> op) {
+    return Observable.defer(() -> {
+      long start = System.nanoTime();
+      return op.call()
+        .doOnCompleted(() -> addMeasure(identifier, start, lag, size))
+        .doOnError(ex -> addMeasure(failedIdentifier(identifier), start, lag));
+    });
   }
 
   public void startTimer() {
     elapsed.start();
+    measureAfter = System.nanoTime() + TimeUnit.SECONDS.toNanos(ramp);
+  }
+
+  /**
+   * Pick keys with the given generator instead of the one of the context.
+   *
+   * @param keyGenerator The key generator, owned by this workload.
+   */
+  protected void setKeyGenerator(KeyGenerator keyGenerator) {
+    this.keyGenerator = keyGenerator;
+  }
+
+  /**
+   * Bound the number of ops this workload keeps in flight.
+   *
+   * @param maxInFlight The maximum number of outstanding ops.
+   */
+  protected void setMaxInFlight(int maxInFlight) {
+    this.inFlight = new Semaphore(maxInFlight);
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * @return true if the deadline has been reached and no more ops should be
+   *   issued after the current one.
+   */
+  protected boolean isDeadlineReached() {
+    return hasDeadline && System.nanoTime() - deadline >= 0;
+  }
+
+  /**
+   * Wait until the next ops may be issued.
+   *
+   * When running against a schedule, this waits for their intended start.
+   * When in-flight ops are bounded, this then waits for a free slot, which
+   * {@link #completed()} gives back once the ops are done. Only the workload
+   * thread waits here, never the threads completing the ops.
+   *
+   * The ops are issued one after the other, so they only take a single
+   * in-flight slot. They must be followed by a call to {@link #completed()}
+   * once they are done.
+   *
+   * @param ops Number of ops which will be issued from this point on.
+   * @return How far behind schedule (in nanoseconds) the ops are issued.
+   */
+  protected long awaitTurn(int ops) {
+    return awaitTurn(ops, 1);
+  }
+
+  /**
+   * Wait until the next ops may be issued, like {@link #awaitTurn(int)},
+   * for ops of which up to the given number are in flight at once. They take
+   * as many in-flight slots, at most all of them, and must be followed by a
+   * call to {@link #completed(int)} with the same number once they are done.
+   *
+   * @param ops Number of ops which will be issued from this point on.
+   * @param slots Number of these ops in flight at once.
+   * @return How far behind schedule (in nanoseconds) the ops are issued.
+   */
+  protected long awaitTurn(int ops, int slots) {
+    pending.incrementAndGet();
+    long intendedStart = schedule == null ? 0 : schedule.next(ops);
+    if (inFlight != null) {
+      inFlight.acquireUninterruptibly(Math.min(slots, maxInFlight));
+    }
+    return schedule == null ? 0 : System.nanoTime() - intendedStart;
+  }
+
+  /**
+   * Signal that the ops issued after {@link #awaitTurn(int)} are done,
+   * whether they succeeded or failed.
+   */
+  protected void completed() {
+    completed(1);
+  }
+
+  /**
+   * Signal that the ops issued after {@link #awaitTurn(int, int)} are done,
+   * whether they succeeded or failed.
+   *
+   * @param slots Number of in-flight slots the ops were issued with.
+   */
+  protected void completed(int slots) {
+    if (inFlight != null) {
+      inFlight.release(Math.min(slots, maxInFlight));
+    }
+    if (pending.decrementAndGet() == 0) {
+      allCompleted.countDown();
+    }
+  }
+
+  /**
+   * Run a chain of ops, issued after {@link #awaitTurn(int)}, with the
+   * configured {@link Engine}. The chain is marked as completed once done.
+   *
+   * @param chain The chain, whose errors were tracked by the op which failed,
+   *   see {@link #counted(String, Observable)}.
+   */
+  protected void issue(Observable<?> chain) {
+    issue(chain, 1);
+  }
+
+  /**
+   * Run a chain of ops, issued after {@link #awaitTurn(int, int)}, like
+   * {@link #issue(Observable)}.
+   *
+   * @param chain The chain of ops.
+   * @param slots Number of in-flight slots the ops were issued with.
+   */
+  protected void issue(Observable<?> chain, int slots) {
+    engine.issue(chain.finallyDo(() -> completed(slots)));
+  }
+
+  /**
+   * Wait until all the ops issued by this workload are done, once it has
+   * issued the last one. Ops end at the latest when the op timeout applied
+   * by {@link #counted(String, Observable)} elapses, so there is no need for
+   * a timeout of its own here.
+   */
+  protected void awaitCompleted() {
+    if (pending.decrementAndGet() == 0) {
+      allCompleted.countDown();
+    }
+    try {
+      allCompleted.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
   }
 
   public void endTimer() {
@@ -104,27 +393,80 @@ public abstract class Workload implements Runnable {
    * If the ramp-up time is not yet through, don't measure the
    * operation.
    *
-   * @param identifier Identifier of the stopwatch.
-   * @param watch The stopwatch.
+   * @param identifier Identifier of the measure.
+   * @param start When the operation started (System.nanoTime).
+   */
+  public void addMeasure(String identifier, long start) {
+    addMeasure(identifier, start, 0);
+  }
+
+  /**
+   * Store a measure for an operation which was issued behind schedule.
+   *
+   * When running against a schedule, the latency from the intended start
+   * (the measured latency plus the lag) is stored as well, so it is
+   * corrected for coordinated omission.
+   *
+   * @param identifier Identifier of the measure.
+   * @param start When the operation started (System.nanoTime).
+   * @param lag How far behind schedule the operation was issued.
+   */
+  public void addMeasure(String identifier, long start, long lag) {
+    addMeasure(identifier, start, lag, -1);
+  }
+
+  /**
+   * Store a measure for an operation which wrote a document of the given
+   * size.
+   *
+   * When sizes are measured, the latency is stored under the size bucket of
+   * the document as well, like "set[4KB-16KB)".
+   *
+   * @param identifier Identifier of the measure.
+   * @param start When the operation started (System.nanoTime).
+   * @param lag How far behind schedule the operation was issued.
+   * @param size The size of the document, see {@link #sizeOf(Document)}.
    */
-  public void addMeasure(String identifier, Stopwatch watch) {
-    if (elapsed.elapsed(TimeUnit.SECONDS) < ramp) {
+  public void addMeasure(String identifier, long start, long lag, int size) {
+    long now = System.nanoTime();
+    if (now - measureAfter < 0) {
       return;
     }
 
-    if(!measures.containsKey(identifier)) {
-      measures.put(identifier, new ArrayList<Stopwatch>());
+    long latency = now - start;
+    long corrected = schedule == null ? -1 : latency + lag;
+    metricsSink.record(identifier, latency, corrected);
+    if (size >= 0) {
+      metricsSink.record(sizeIdentifier(identifier, size), latency, corrected);
     }
-    measures.get(identifier).add(watch);
-    measuredOps++;
+    measuredOps.increment();
   }
 
-  public Map<String, List<Stopwatch>> getMeasures() {
-    return measures;
+  private String sizeIdentifier(String identifier, int size) {
+    String[] identifiers = sizeIdentifiers.get(identifier);
+    if (identifiers == null) {
+      identifiers = sizeIdentifiers.computeIfAbsent(identifier, id -> {
+        String[] bucketIdentifiers = new String[Measures.sizeBuckets()];
+        for (int i = 0; i < bucketIdentifiers.length; i++) {
+          bucketIdentifiers[i] = id + Measures.sizeBucketSuffix(i);
+        }
+        return bucketIdentifiers;
+      });
+    }
+    return identifiers[Measures.sizeBucket(size)];
+  }
+
+  private String failedIdentifier(String identifier) {
+    String failed = failedIdentifiers.get(identifier);
+    if (failed == null) {
+      failed = failedIdentifiers.computeIfAbsent(identifier,
+        id -> id + Measures.FAILED_SUFFIX);
+    }
+    return failed;
   }
 
   public long getMeasuredOps() {
-    return measuredOps;
+    return measuredOps.sum();
   }
 
   public Stopwatch totalElapsed() {
@@ -155,15 +497,74 @@ public abstract class Workload implements Runnable {
     return logger;
   }
 
-  public String randomKey() {
-    return UUID.randomUUID().toString();
+  /**
+   * @return the key for the next operation.
+   */
+  public String nextKey() {
+    return keyGenerator.nextKey();
   }
 
   protected SampleDocument getDocument() {
     return documentFactory.getDocument();
   }
 
-  static interface SampleDocument{}
+  /**
+   * @param key The key of the document.
+   * @return a new document to store, in the configured document mode.
+   */
+  protected Document<?> newDocument(String key) {
+    return documentMode.create(key, documentFactory);
+  }
+
+  /**
+   * @param key The key of the document.
+   * @param cas The CAS value of the document to replace.
+   * @return a new document to store, in the configured document mode.
+   */
+  protected Document<?> newDocument(String key, long cas) {
+    return documentMode.create(key, documentFactory, cas);
+  }
+
+  /**
+   * @param key The key of the document.
+   * @param content The content of the document.
+   * @return a new document with the given content, in the configured
+   *   document mode.
+   */
+  protected Document<?> newDocument(String key, String content) {
+    return documentMode.create(key, content);
+  }
+
+  /**
+   * @param document A document to write.
+   * @return the size of its payload when sizes are measured, -1 otherwise.
+   */
+  protected int sizeOf(Document<?> document) {
+    return measureSizes ? documentMode.size(document) : -1;
+  }
+
+  /**
+   * @return the type of the documents to fetch.
+   */
+  protected Class<? extends Document<?>> documentType() {
+    return documentMode.type();
+  }
+
+  /**
+   * Release a fetched document once done with it.
+   *
+   * @param document The document, not used afterwards.
+   */
+  protected void release(Document<?> document) {
+    documentMode.release(document);
+  }
+
+  static interface SampleDocument{
+    /**
+     * @return the bytes of the document.
+     */
+    byte[] getPayload();
+  }
 
   /**
    * This document consists entirely of random bytes.
@@ -174,10 +575,19 @@ public abstract class Workload implements Runnable {
     public final byte[] payload;
 
     public RandomDocument(int payloadSize) {
+      this(payloadSize, new Random());
+    }
+
+    public RandomDocument(int payloadSize, Random random) {
       byte[] bytes = new byte[payloadSize];
-      new Random().nextBytes(bytes);
+      random.nextBytes(bytes);
       this.payload = bytes;
     }
+
+    @Override
+    public byte[] getPayload() {
+      return payload;
+    }
   }
 
   /**
@@ -204,32 +614,160 @@ public abstract class Workload implements Runnable {
       }
       payload = sb.toString().getBytes();
     }
+
+    @Override
+    public byte[] getPayload() {
+      return payload;
+    }
   }
 
   public static interface DocumentFactory{
     SampleDocument getDocument();
+
+    /**
+     * Returns the bytes of a document, to be stored as they are.
+     *
+     * The buffer is handed over to the SDK, which releases it once written.
+     *
+     * @return the content.
+     */
+    default ByteBuf getContent() {
+      return Unpooled.wrappedBuffer(getDocument().getPayload());
+    }
+  }
+
+  /**
+   * Wraps a payload into a buffer which can be handed out any number of
+   * times, through {@link ByteBuf#duplicate()}: releasing the duplicates does
+   * not free it.
+   *
+   * @param payload The payload.
+   * @param offHeap Whether to copy the payload to a direct buffer.
+   * @return the buffer.
+   */
+  static ByteBuf sharedContent(byte[] payload, boolean offHeap) {
+    ByteBuf content;
+    if (offHeap) {
+      content = Unpooled.directBuffer(payload.length);
+      content.writeBytes(payload);
+    } else {
+      content = Unpooled.wrappedBuffer(payload);
+    }
+    return Unpooled.unreleasableBuffer(content);
   }
 
   /**
    * Generates documents of a fixed size but each document has a random sequence
    * of bytes.
    *
+   * The documents are generated once, into a pool they are then picked from
+   * at random, so getting a document neither allocates nor contends. With a
+   * pool size of 0, a new document is generated for every call instead.
+   *
    * @author bvesco, May 21, 2013
    */
   public static class FixedSizeRandomDocumentFactory implements DocumentFactory {
 
+    /** Number of distinct documents generated when not configured. */
+    public static final int DEFAULT_POOL_SIZE = 64;
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final int sizeInBytes;
+    private final RandomDocument[] pool;
+    private final ByteBuf[] contents;
 
     public FixedSizeRandomDocumentFactory(int sizeInBytes){
+      this(sizeInBytes, DEFAULT_POOL_SIZE, false);
+    }
+
+    /**
+     * @param sizeInBytes The size of the documents.
+     * @param poolSize The number of distinct documents to generate.
+     * @param offHeap Whether to keep the contents in direct buffers.
+     */
+    public FixedSizeRandomDocumentFactory(int sizeInBytes, int poolSize,
+      boolean offHeap){
       this.sizeInBytes = sizeInBytes;
-      logger.info("Factory using document size of {} bytes", this.sizeInBytes);
+      this.pool = new RandomDocument[poolSize];
+      this.contents = new ByteBuf[poolSize];
+      Random random = new Random();
+      for (int i = 0; i < poolSize; i++) {
+        pool[i] = new RandomDocument(sizeInBytes, random);
+        contents[i] = sharedContent(pool[i].payload, offHeap);
+      }
+      logger.info("Factory using document size of {} bytes, pool of {} documents{}",
+        this.sizeInBytes, poolSize, offHeap ? " off-heap" : "");
     }
 
     @Override
     public SampleDocument getDocument()
     {
+      if (pool.length == 0) {
         return new RandomDocument(sizeInBytes);
+      }
+      return pool[ThreadLocalRandom.current().nextInt(pool.length)];
+    }
+
+    @Override
+    public ByteBuf getContent()
+    {
+      if (contents.length == 0) {
+        return Unpooled.wrappedBuffer(getDocument().getPayload());
+      }
+      return contents[ThreadLocalRandom.current().nextInt(contents.length)]
+        .duplicate();
+    }
+  }
+
+  /**
+   * Generates documents with sizes picked from a {@link SizeDistribution}, out
+   * of random bytes.
+   *
+   * Binary contents are slices of a single buffer of random bytes, so each
+   * one gets a newly picked size without allocating a payload. Legacy
+   * documents are picked from a pool generated up front, so they only take
+   * as many distinct sizes as the pool holds.
+   */
+  public static class VariableSizeRandomDocumentFactory implements DocumentFactory {
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final SizeDistribution sizes;
+    private final RandomDocument[] pool;
+    private final ByteBuf content;
+
+    /**
+     * @param sizes The distribution of the document sizes.
+     * @param poolSize The number of legacy documents to generate.
+     * @param offHeap Whether to keep the contents in a direct buffer.
+     */
+    public VariableSizeRandomDocumentFactory(SizeDistribution sizes,
+      int poolSize, boolean offHeap) {
+      this.sizes = sizes;
+      Random random = new Random();
+      byte[] bytes = new byte[sizes.getMaxSize()];
+      random.nextBytes(bytes);
+      this.content = sharedContent(bytes, offHeap);
+      this.pool = new RandomDocument[poolSize];
+      for (int i = 0; i < poolSize; i++) {
+        pool[i] = new RandomDocument(sizes.nextSize(), random);
+      }
+      logger.info("Factory using document sizes up to {} bytes, pool of {} documents{}",
+        sizes.getMaxSize(), poolSize, offHeap ? " off-heap" : "");
+    }
+
+    @Override
+    public SampleDocument getDocument()
+    {
+      if (pool.length == 0) {
+        return new RandomDocument(sizes.nextSize());
+      }
+      return pool[ThreadLocalRandom.current().nextInt(pool.length)];
+    }
+
+    @Override
+    public ByteBuf getContent()
+    {
+      return content.slice(0, sizes.nextSize());
     }
   }
 
@@ -243,9 +781,19 @@ public abstract class Workload implements Runnable {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final FileReaderDocument document;
+    private final ByteBuf content;
 
     public SingleFileDocumentFactory(String filename) throws IOException{
+      this(filename, false);
+    }
+
+    /**
+     * @param filename The file to read the document from.
+     * @param offHeap Whether to keep the content in a direct buffer.
+     */
+    public SingleFileDocumentFactory(String filename, boolean offHeap) throws IOException{
       this.document = new FileReaderDocument(filename);
+      this.content = sharedContent(document.payload, offHeap);
       logger.info("Factory using document size of {} bytes from {}", document.payload.length, filename);
     }
 
@@ -254,5 +802,11 @@ public abstract class Workload implements Runnable {
     {
       return document;
     }
+
+    @Override
+    public ByteBuf getContent()
+    {
+      return content.duplicate();
+    }
   }
 }
@@ -0,0 +1,420 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.roadrunner.workloads.Workload.DocumentFactory;
+
+/**
+ * Everything a {@link Workload} runs with.
+ *
+ * Contexts are created with a {@link Builder}, which can be reused: the
+ * settings shared by all workloads are set once, then the ones of each
+ * workload before each {@link Builder#build()}.
+ */
+public final class WorkloadContext {
+
+  private final Bucket bucket;
+  private final String name;
+  private final long amount;
+  private final int ratio;
+  private final int sampling;
+  private final int ramp;
+  private final DocumentFactory documentFactory;
+  private final DocumentMode documentMode;
+  private final boolean measureSizes;
+  private final KeySpace keySpace;
+  private final String keyPrefix;
+  private final int keyLength;
+  private final int thread;
+  private final int threads;
+  private final OpenLoopSchedule schedule;
+  private final long deadline;
+  private final int maxInFlight;
+  private final long opTimeout;
+  private final int batchSize;
+  private final int batchConcurrency;
+  private final OperationMix mix;
+  private final MetricsSink metricsSink;
+  private final ErrorTracker errorTracker;
+  private final Engine engine;
+
+  private WorkloadContext(Builder builder) {
+    this.bucket = builder.bucket;
+    this.name = builder.name;
+    this.amount = builder.amount;
+    this.ratio = builder.ratio;
+    this.sampling = builder.sampling;
+    this.ramp = builder.ramp;
+    this.documentFactory = builder.documentFactory;
+    this.documentMode = builder.documentMode;
+    this.measureSizes = builder.measureSizes;
+    this.keySpace = builder.keySpace;
+    this.keyPrefix = builder.keyPrefix;
+    this.keyLength = builder.keyLength;
+    this.thread = builder.thread;
+    this.threads = builder.threads;
+    this.schedule = builder.rateLimiter == null
+      ? null : builder.rateLimiter.newSchedule();
+    this.deadline = builder.deadline;
+    this.maxInFlight = builder.maxInFlight;
+    this.opTimeout = builder.opTimeout;
+    this.batchSize = builder.batchSize;
+    this.batchConcurrency = builder.batchConcurrency;
+    this.mix = builder.mix;
+    this.metricsSink = builder.metricsSink;
+    this.errorTracker = builder.errorTracker;
+    this.engine = builder.engine;
+  }
+
+  /**
+   * @return the bucket to run against.
+   */
+  public Bucket getBucket() {
+    return bucket;
+  }
+
+  /**
+   * @return the name of the workload, also used for its thread.
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the number of iterations to run, Long.MAX_VALUE to run until
+   *   the deadline.
+   */
+  public long getAmount() {
+    return amount;
+  }
+
+  /**
+   * @return the ratio of reads per write.
+   */
+  public int getRatio() {
+    return ratio;
+  }
+
+  /**
+   * @return the percentage of ops to measure.
+   */
+  public int getSampling() {
+    return sampling;
+  }
+
+  /**
+   * @return the seconds to run before measuring.
+   */
+  public int getRamp() {
+    return ramp;
+  }
+
+  /**
+   * @return the source of the documents to write.
+   */
+  public DocumentFactory getDocumentFactory() {
+    return documentFactory;
+  }
+
+  /**
+   * @return how documents are stored and fetched.
+   */
+  public DocumentMode getDocumentMode() {
+    return documentMode;
+  }
+
+  /**
+   * @return whether writes are also measured per document size bucket.
+   */
+  public boolean isMeasureSizes() {
+    return measureSizes;
+  }
+
+  /**
+   * @return the key space shared by all workloads, null to use random keys.
+   */
+  public KeySpace getKeySpace() {
+    return keySpace;
+  }
+
+  /**
+   * @return the prefix of random keys.
+   */
+  public String getKeyPrefix() {
+    return keyPrefix;
+  }
+
+  /**
+   * @return the length of random keys, prefix included, 0 for the default.
+   */
+  public int getKeyLength() {
+    return keyLength;
+  }
+
+  /**
+   * @return the index of this workload, across all ClientHandlers.
+   */
+  public int getThread() {
+    return thread;
+  }
+
+  /**
+   * @return the number of workloads, across all ClientHandlers.
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * @return the schedule of this workload, null when running closed-loop.
+   */
+  public OpenLoopSchedule getSchedule() {
+    return schedule;
+  }
+
+  /**
+   * @return when to stop issuing ops (System.nanoTime), 0 for no deadline.
+   */
+  public long getDeadline() {
+    return deadline;
+  }
+
+  /**
+   * @return the maximum number of ops in flight, 0 when not bounded.
+   */
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  /**
+   * @return the time after which an op fails, in milliseconds, 0 for none.
+   */
+  public long getOpTimeout() {
+    return opTimeout;
+  }
+
+  /**
+   * @return the number of keys per batch.
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @return the keys of a batch in flight at once, 0 for all of them.
+   */
+  public int getBatchConcurrency() {
+    return batchConcurrency;
+  }
+
+  /**
+   * @return the ops of the mix workload and their weights.
+   */
+  public OperationMix getMix() {
+    return mix;
+  }
+
+  /**
+   * @return where the measured latencies go.
+   */
+  public MetricsSink getMetricsSink() {
+    return metricsSink;
+  }
+
+  /**
+   * @return where the errors of failed ops go.
+   */
+  public ErrorTracker getErrorTracker() {
+    return errorTracker;
+  }
+
+  /**
+   * @return how the chains of ops are run.
+   */
+  public Engine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Builds {@link WorkloadContext}s.
+   */
+  public static final class Builder {
+
+    private Bucket bucket;
+    private String name;
+    private long amount;
+    private int ratio;
+    private int sampling = 100;
+    private int ramp;
+    private DocumentFactory documentFactory;
+    private DocumentMode documentMode = DocumentMode.LEGACY;
+    private boolean measureSizes;
+    private KeySpace keySpace;
+    private String keyPrefix = KeySpace.KEY_PREFIX;
+    private int keyLength;
+    private int thread;
+    private int threads = 1;
+    private RateLimiter rateLimiter;
+    private long deadline;
+    private int maxInFlight;
+    private long opTimeout;
+    private int batchSize = 1;
+    private int batchConcurrency;
+    private OperationMix mix;
+    private MetricsSink metricsSink;
+    private ErrorTracker errorTracker = new ErrorTracker(0);
+    private Engine engine = Engine.ASYNC;
+
+    public Builder bucket(Bucket bucket) {
+      this.bucket = bucket;
+      return this;
+    }
+
+    public Builder name(String name) {
+      this.name = name;
+      return this;
+    }
+
+    public Builder amount(long amount) {
+      this.amount = amount;
+      return this;
+    }
+
+    public Builder ratio(int ratio) {
+      this.ratio = ratio;
+      return this;
+    }
+
+    public Builder sampling(int sampling) {
+      this.sampling = sampling;
+      return this;
+    }
+
+    public Builder ramp(int ramp) {
+      this.ramp = ramp;
+      return this;
+    }
+
+    public Builder documentFactory(DocumentFactory documentFactory) {
+      this.documentFactory = documentFactory;
+      return this;
+    }
+
+    public Builder documentMode(DocumentMode documentMode) {
+      this.documentMode = documentMode;
+      return this;
+    }
+
+    public Builder measureSizes(boolean measureSizes) {
+      this.measureSizes = measureSizes;
+      return this;
+    }
+
+    public Builder keySpace(KeySpace keySpace) {
+      this.keySpace = keySpace;
+      return this;
+    }
+
+    public Builder keyPrefix(String keyPrefix) {
+      this.keyPrefix = keyPrefix;
+      return this;
+    }
+
+    public Builder keyLength(int keyLength) {
+      this.keyLength = keyLength;
+      return this;
+    }
+
+    public Builder thread(int thread, int threads) {
+      this.thread = thread;
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * @param rateLimiter The limiter shared by all workloads, each context
+     *   built gets its own schedule out of it. May be null.
+     */
+    public Builder rateLimiter(RateLimiter rateLimiter) {
+      this.rateLimiter = rateLimiter;
+      return this;
+    }
+
+    /**
+     * @return true if the contexts built run against a schedule.
+     */
+    public boolean isScheduled() {
+      return rateLimiter != null;
+    }
+
+    public Builder deadline(long deadline) {
+      this.deadline = deadline;
+      return this;
+    }
+
+    public Builder maxInFlight(int maxInFlight) {
+      this.maxInFlight = maxInFlight;
+      return this;
+    }
+
+    public Builder opTimeout(long opTimeout) {
+      this.opTimeout = opTimeout;
+      return this;
+    }
+
+    public Builder batchSize(int batchSize) {
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    public Builder batchConcurrency(int batchConcurrency) {
+      this.batchConcurrency = batchConcurrency;
+      return this;
+    }
+
+    public Builder mix(OperationMix mix) {
+      this.mix = mix;
+      return this;
+    }
+
+    public Builder metricsSink(MetricsSink metricsSink) {
+      this.metricsSink = metricsSink;
+      return this;
+    }
+
+    public Builder errorTracker(ErrorTracker errorTracker) {
+      this.errorTracker = errorTracker;
+      return this;
+    }
+
+    public Builder engine(Engine engine) {
+      this.engine = engine;
+      return this;
+    }
+
+    public WorkloadContext build() {
+      return new WorkloadContext(this);
+    }
+  }
+}
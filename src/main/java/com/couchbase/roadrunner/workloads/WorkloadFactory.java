@@ -22,25 +22,43 @@
 
 package com.couchbase.roadrunner.workloads;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
 /**
  * Returns workloads based on their string representation.
+ *
+ * Workloads are looked up among the {@link WorkloadProvider}s found on the
+ * classpath, which include the ones shipped with RoadRunner.
  */
 public class WorkloadFactory {
 
   /**
-   * Returns a workload based on its identifier.
+   * Returns the provider of a workload based on its identifier.
    *
    * @param identifier
-   * @return the workload
+   * @return the workload provider
    */
-  public static Class<? extends Workload> getWorkload(String identifier) {
-    if(identifier.equals("getset")) {
-      return GetSetWorkload.class;
-    } else if(identifier.equals("getscas")) {
-      return GetsCasWorkload.class;
+  public static WorkloadProvider getWorkload(String identifier) {
+    for (WorkloadProvider provider : ServiceLoader.load(WorkloadProvider.class)) {
+      if (provider.getName().equals(identifier)) {
+        return provider;
+      }
     }
 
     throw new IllegalArgumentException("Could not find Workload: "
-      + identifier);
+      + identifier + ", available: " + getWorkloadNames());
+  }
+
+  /**
+   * @return the identifiers of the workloads found on the classpath.
+   */
+  public static List<String> getWorkloadNames() {
+    List<String> names = new ArrayList<String>();
+    for (WorkloadProvider provider : ServiceLoader.load(WorkloadProvider.class)) {
+      names.add(provider.getName());
+    }
+    return names;
   }
 }
@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2009-2013 Couchbase, Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALING
+ * IN THE SOFTWARE.
+ */
+
+package com.couchbase.roadrunner.workloads;
+
+/**
+ * Builds {@link Workload}s of a given name.
+ *
+ * Providers are found with a {@link java.util.ServiceLoader}, so workloads
+ * shipped in a separate jar are picked up once the jar is on the classpath
+ * and lists its providers in
+ * META-INF/services/com.couchbase.roadrunner.workloads.WorkloadProvider.
+ * Providers need a public no-argument constructor.
+ */
+public interface WorkloadProvider {
+
+  /**
+   * @return the name the workload is selected with (-w).
+   */
+  String getName();
+
+  /**
+   * Create a workload, which is then run by a single thread.
+   *
+   * @param context Everything the workload runs with.
+   * @return the workload.
+   */
+  Workload create(WorkloadContext context);
+
+}
@@ -0,0 +1,201 @@
+package com.couchbase.roadrunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.ParseException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.couchbase.roadrunner.workloads.Measures;
+
+public class CoordinatorTest
+{
+    @Test
+    public void testAgentArguments() throws ParseException
+    {
+        String[] args = Coordinator.agentArguments(RoadRunner.parseCommandLine(new String[] {
+            "--coordinator", "4000", "--agents", "3", "-t", "8", "--off-heap", "--duration", "60",
+            "--report", "run.json", "--report-csv", "run.csv", "--histogram-log", "run.hlog"
+        }), 1, 3);
+        Assert.assertEquals(Arrays.asList(args), Arrays.asList("--num-threads", "8", "--off-heap",
+            "--duration", "60", "--partition", "1/3"));
+    }
+
+    @Test
+    public void testAgentArgumentsSplitRate() throws ParseException
+    {
+        CommandLine params = RoadRunner.parseCommandLine(new String[] {
+            "--coordinator", "4000", "--agents", "3", "--rate", "1000", "--partition", "0/1"
+        });
+        long total = 0;
+        for (int agent = 0; agent < 3; agent++)
+        {
+            String[] args = Coordinator.agentArguments(params, agent, 3);
+            Assert.assertEquals(args.length, 4, Arrays.toString(args));
+            GlobalConfig config = GlobalConfig.fromCommandLine(RoadRunner.parseCommandLine(args));
+            Assert.assertEquals(config.getRate(), agent == 0 ? 334 : 333);
+            Assert.assertEquals(config.getPartitionIndex(), agent);
+            Assert.assertEquals(config.getPartitionCount(), 3);
+            total += config.getRate();
+        }
+        Assert.assertEquals(total, 1000);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAgentArgumentsRateTooLow() throws ParseException
+    {
+        Coordinator.agentArguments(RoadRunner.parseCommandLine(new String[] { "--rate", "2" }), 0, 3);
+    }
+
+    @Test
+    public void testReceiveMergesTruePercentiles() throws IOException
+    {
+        // one agent sees only fast ops, the other only slow ones
+        Histogram fast = newHistogram(100, 9000);
+        Histogram slow = newHistogram(10000, 1000);
+
+        Coordinator coordinator = new Coordinator(0, 2, noArguments(), null);
+        RunSummary merged = new RunSummary();
+        merged.merge(coordinator.receive(0, agentStream(fast, 9000, 2000)));
+        merged.merge(coordinator.receive(1, agentStream(slow, 1000, 3000)));
+
+        Histogram get = merged.getMeasures().get("get");
+        Assert.assertEquals(get.getTotalCount(), 10000L);
+        Assert.assertEquals(get.getValueAtPercentile(50), fast.getValueAtPercentile(50));
+        Assert.assertEquals(get.getValueAtPercentile(99), slow.getValueAtPercentile(50));
+        Assert.assertEquals(merged.getTotalOps(), 10000L);
+        Assert.assertEquals(merged.getElapsedMs(), 3000L);
+        Assert.assertEquals(merged.getOpCounts().get("get")[0], 10000L);
+        Assert.assertEquals(merged.getErrors().get("get TimeoutException"), Long.valueOf(2));
+    }
+
+    @Test
+    public void testMergedIntervalsLogged() throws IOException
+    {
+        File file = File.createTempFile("coordinator", ".hlog");
+        file.deleteOnExit();
+        HistogramLog log = new HistogramLog(file.getPath());
+        Coordinator coordinator = new Coordinator(0, 2, noArguments(), log);
+        coordinator.receive(0, agentStream(newHistogram(100, 9000), 9000, 2000));
+        coordinator.receive(1, agentStream(newHistogram(10000, 1000), 1000, 3000));
+        log.close();
+
+        HistogramLogReader reader = new HistogramLogReader(file);
+        Histogram logged = (Histogram) reader.nextIntervalHistogram();
+        Assert.assertNotNull(logged, "no interval logged");
+        Assert.assertEquals(logged.getTag(), "get");
+        Assert.assertEquals(logged.getTotalCount(), 10000L);
+        Assert.assertNull(reader.nextIntervalHistogram());
+    }
+
+    @Test
+    public void testReceiveMatchesIntervalsByPhase() throws IOException
+    {
+        // the first agent has one more interval in the first phase
+        List<String> merged = new ArrayList<String>();
+        Coordinator coordinator = new Coordinator(0, 2, noArguments(),
+            (phase, start, end, ops, measures) -> merged.add(phase + ":" + ops));
+        coordinator.receive(0, agentStream(newHistogram(100, 10), 10, 1000, 0, 0, 1));
+        Assert.assertEquals(merged, Collections.emptyList(), "reported before the second agent");
+        coordinator.receive(1, agentStream(newHistogram(100, 1), 1, 1000, 0, 1));
+        Assert.assertEquals(merged, Arrays.asList("0:11", "0:10", "1:11"));
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Agent 2 failed: boom")
+    public void testReceiveFailure() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(Agent.FRAME_FAILED);
+        out.writeUTF("boom");
+        new Coordinator(0, 2, noArguments(), null).receive(1,
+            new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    private static CommandLine noArguments() throws IOException
+    {
+        try
+        {
+            return RoadRunner.parseCommandLine(new String[0]);
+        }
+        catch (ParseException ex)
+        {
+            throw new IOException(ex);
+        }
+    }
+
+    private static Histogram newHistogram(long value, long count)
+    {
+        Histogram histogram = new Histogram(Measures.HIGHEST_TRACKABLE_VALUE,
+            Measures.SIGNIFICANT_DIGITS);
+        histogram.recordValueWithCount(value, count);
+        return histogram;
+    }
+
+    /**
+     * The frames of an agent: one interval, then its results.
+     */
+    private static DataInputStream agentStream(Histogram histogram, long ops, long elapsedMs)
+        throws IOException
+    {
+        return agentStream(histogram, ops, elapsedMs, 0);
+    }
+
+    /**
+     * The frames of an agent: an interval in each of the given phases, each
+     * with all the ops, then its results.
+     */
+    private static DataInputStream agentStream(Histogram histogram, long ops, long elapsedMs,
+        int... phases) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        Map<String, Histogram> measures = Collections.singletonMap("get", histogram);
+        for (int phase : phases)
+        {
+            out.writeByte(Agent.FRAME_INTERVAL);
+            out.writeInt(phase);
+            out.writeLong(0);
+            out.writeLong(elapsedMs);
+            out.writeLong(ops);
+            RunSummary.writeHistograms(out, measures);
+        }
+
+        // build the summary the same way an agent reads it back
+        ByteArrayOutputStream summaryBytes = new ByteArrayOutputStream();
+        DataOutputStream summary = new DataOutputStream(summaryBytes);
+        summary.writeLong(1000);
+        summary.writeLong(ops);
+        summary.writeLong(ops);
+        summary.writeLong(elapsedMs);
+        summary.writeLong(elapsedMs);
+        summary.writeLong(elapsedMs);
+        summary.writeInt(1);
+        summary.writeUTF("get");
+        summary.writeInt(1);
+        summary.writeLong(ops);
+        summary.writeInt(1);
+        summary.writeUTF("get TimeoutException");
+        summary.writeLong(1);
+        RunSummary.writeHistograms(summary, measures);
+        RunSummary results = RunSummary.readFrom(new DataInputStream(
+            new ByteArrayInputStream(summaryBytes.toByteArray())));
+
+        out.writeByte(Agent.FRAME_RESULTS);
+        results.writeTo(out);
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}
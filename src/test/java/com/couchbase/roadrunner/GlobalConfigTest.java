@@ -14,6 +14,14 @@ public class GlobalConfigTest
     private static int SAMPLING_RATE = 99;
     private static int RAMP_TIME = 13;
     private static int DOC_SIZE = 5678;
+    private static long RATE_LONG = 50000;
+    private static long DURATION_SECONDS = 1800;
+    private static int REPORT_INTERVAL_SECONDS = 5;
+    private static int MAX_IN_FLIGHT_OPS = 128;
+    private static long KEY_SPACE_SIZE = 1000000;
+    private static double THETA = 0.8;
+    private static double HOT_FRACTION = 0.1;
+    private static double HOT_OPS = 0.9;
 
     private static final String NODE = "1.2.3.4";
     private static final String BUCKET = "testBucket";
@@ -27,6 +35,37 @@ public class GlobalConfigTest
     private static final String RAMP = "" + RAMP_TIME;
     private static final String SIZE = "" + DOC_SIZE;
     private static final String FILENAME = "./file.json";
+    private static final String RATE = "" + RATE_LONG;
+    private static final String DURATION = "" + DURATION_SECONDS;
+    private static final String REPORT_INTERVAL = "" + REPORT_INTERVAL_SECONDS;
+    private static final String HISTOGRAM_LOG = "./run.hlog";
+    private static final String REPORT = "./run.json";
+    private static final String REPORT_CSV = "./run.csv";
+    private static final String MAX_IN_FLIGHT = "" + MAX_IN_FLIGHT_OPS;
+    private static final String KEY_SPACE = "" + KEY_SPACE_SIZE;
+    private static final String KEY_DISTRIBUTION = "hotspot";
+    private static final String ZIPF_THETA = "" + THETA;
+    private static final String HOTSPOT_FRACTION = "" + HOT_FRACTION;
+    private static final String HOTSPOT_OPS = "" + HOT_OPS;
+    private static final String PHASE = "both";
+    private static final String MIX = "get:90,append:10";
+    private static final int PAYLOAD_POOL = 7;
+    private static final String DOCUMENT_MODE = "binary";
+    private static final String JSON_TEMPLATE = "template.json";
+    private static final int JSON_VARIANTS = 11;
+    private static final String SIZE_DISTRIBUTION = "normal:4096:1024";
+    private static final String DATASET = "export.jsonl";
+    private static final String DATASET_ORDER = "sequential";
+    private static final String KEY_PREFIX = "user::";
+    private static final int KEY_LENGTH = 24;
+    private static final int ERROR_SAMPLES = 2;
+    private static final int BATCH_SIZE = 100;
+    private static final int BATCH_CONCURRENCY = 16;
+    private static final String ENGINE = "virtual";
+    private static final int IO_POOL_SIZE = 3;
+    private static final int COMPUTATION_POOL_SIZE = 5;
+    private static final int REQUEST_BUFFER_SIZE = 8192;
+    private static final long OP_TIMEOUT = 750;
 
     private static final String NODE_POOLS = NODE;
 
@@ -65,4 +104,156 @@ public class GlobalConfigTest
         Assert.assertEquals(config.getFilename(), FILENAME, "filename");
         Assert.assertEquals(config.getDocumentSize(), DOC_SIZE, "doc size");
     }
+
+    @Test
+    public void testLongOptions() throws ParseException
+    {
+        String [] args = new String[]{//
+                        "--rate", RATE, //
+                        "--duration", DURATION, //
+                        "--report-interval", REPORT_INTERVAL, //
+                        "--histogram-log", HISTOGRAM_LOG, //
+                        "--report", REPORT, //
+                        "--report-csv", REPORT_CSV, //
+                        "--max-in-flight", MAX_IN_FLIGHT, //
+                        "--key-space", KEY_SPACE, //
+                        "--key-distribution", KEY_DISTRIBUTION, //
+                        "--zipf-theta", ZIPF_THETA, //
+                        "--hotspot-fraction", HOTSPOT_FRACTION, //
+                        "--hotspot-ops", HOTSPOT_OPS, //
+                        "--phase", PHASE, //
+                        "--mix", MIX, //
+                        "--payload-pool", "" + PAYLOAD_POOL, //
+                        "--document-mode", DOCUMENT_MODE, //
+                        "--off-heap", //
+                        "--json-template", JSON_TEMPLATE, //
+                        "--json-variants", "" + JSON_VARIANTS, //
+                        "--size-distribution", SIZE_DISTRIBUTION, //
+                        "--dataset", DATASET, //
+                        "--dataset-order", DATASET_ORDER, //
+                        "--key-prefix", KEY_PREFIX, //
+                        "--key-length", "" + KEY_LENGTH, //
+                        "--error-samples", "" + ERROR_SAMPLES, //
+                        "--batch-size", "" + BATCH_SIZE, //
+                        "--batch-concurrency", "" + BATCH_CONCURRENCY, //
+                        "--engine", ENGINE, //
+                        "--env-per-client", //
+                        "--io-pool-size", "" + IO_POOL_SIZE, //
+                        "--computation-pool-size", "" + COMPUTATION_POOL_SIZE, //
+                        "--request-buffer-size", "" + REQUEST_BUFFER_SIZE, //
+                        "--client-sweep", //
+                        "--partition", "2/5", //
+                        "--op-timeout", "" + OP_TIMEOUT //
+                        };
+        CommandLine parsed = RoadRunner.parseCommandLine(args);
+
+        GlobalConfig config = GlobalConfig.fromCommandLine(parsed);
+        Assert.assertEquals(config.getRate(), RATE_LONG, "rate");
+        Assert.assertEquals(config.getDuration(), DURATION_SECONDS, "duration");
+        Assert.assertEquals(config.getReportInterval(), REPORT_INTERVAL_SECONDS, "report interval");
+        Assert.assertEquals(config.getHistogramLog(), HISTOGRAM_LOG, "histogram log");
+        Assert.assertEquals(config.getReport(), REPORT, "report");
+        Assert.assertEquals(config.getReportCsv(), REPORT_CSV, "report csv");
+        Assert.assertEquals(config.getMaxInFlight(), MAX_IN_FLIGHT_OPS, "max in flight");
+        Assert.assertEquals(config.getKeySpace(), KEY_SPACE_SIZE, "key space");
+        Assert.assertEquals(config.getKeyDistribution(), KEY_DISTRIBUTION, "key distribution");
+        Assert.assertEquals(config.getZipfTheta(), THETA, "zipf theta");
+        Assert.assertEquals(config.getHotspotFraction(), HOT_FRACTION, "hotspot fraction");
+        Assert.assertEquals(config.getHotspotOps(), HOT_OPS, "hotspot ops");
+        Assert.assertEquals(config.getPhase(), PHASE, "phase");
+        Assert.assertEquals(config.getMix(), MIX, "mix");
+        Assert.assertEquals(config.getPayloadPool(), PAYLOAD_POOL, "payload pool");
+        Assert.assertEquals(config.getDocumentMode(), DOCUMENT_MODE, "document mode");
+        Assert.assertTrue(config.isOffHeap(), "off-heap");
+        Assert.assertEquals(config.getJsonTemplate(), JSON_TEMPLATE, "json template");
+        Assert.assertEquals(config.getJsonVariants(), JSON_VARIANTS, "json variants");
+        Assert.assertEquals(config.getSizeDistribution(), SIZE_DISTRIBUTION, "size distribution");
+        Assert.assertEquals(config.getDataset(), DATASET, "dataset");
+        Assert.assertEquals(config.getDatasetOrder(), DATASET_ORDER, "dataset order");
+        Assert.assertEquals(config.getKeyPrefix(), KEY_PREFIX, "key prefix");
+        Assert.assertEquals(config.getKeyLength(), KEY_LENGTH, "key length");
+        Assert.assertEquals(config.getErrorSamples(), ERROR_SAMPLES, "error samples");
+        Assert.assertEquals(config.getBatchSize(), BATCH_SIZE, "batch size");
+        Assert.assertEquals(config.getBatchConcurrency(), BATCH_CONCURRENCY, "batch concurrency");
+        Assert.assertEquals(config.getEngine(), ENGINE, "engine");
+        Assert.assertTrue(config.isEnvPerClient(), "env per client");
+        Assert.assertEquals(config.getIoPoolSize(), IO_POOL_SIZE, "io pool size");
+        Assert.assertEquals(config.getComputationPoolSize(), COMPUTATION_POOL_SIZE, "computation pool size");
+        Assert.assertEquals(config.getRequestBufferSize(), REQUEST_BUFFER_SIZE, "request buffer size");
+        Assert.assertTrue(config.isClientSweep(), "client sweep");
+        Assert.assertEquals(config.getPartitionIndex(), 2, "partition index");
+        Assert.assertEquals(config.getPartitionCount(), 5, "partition count");
+        Assert.assertEquals(config.getOpTimeout(), OP_TIMEOUT, "op timeout");
+    }
+
+    @Test
+    public void testDefaults() throws ParseException
+    {
+        CommandLine parsed = RoadRunner.parseCommandLine(new String[0]);
+
+        GlobalConfig config = GlobalConfig.fromCommandLine(parsed);
+        Assert.assertEquals(config.getRate(), 0L, "rate");
+        Assert.assertEquals(config.getDuration(), 0L, "duration");
+        Assert.assertEquals(config.getReportInterval(), 10, "report interval");
+        Assert.assertNull(config.getHistogramLog(), "histogram log");
+        Assert.assertNull(config.getReport(), "report");
+        Assert.assertNull(config.getReportCsv(), "report csv");
+        Assert.assertEquals(config.getMaxInFlight(), 0, "max in flight");
+        Assert.assertEquals(config.getKeySpace(), 0L, "key space");
+        Assert.assertEquals(config.getKeyDistribution(), "uniform", "key distribution");
+        Assert.assertEquals(config.getPhase(), "run", "phase");
+        Assert.assertEquals(config.getMix(), GlobalConfig.DEFAULT_MIX, "mix");
+        Assert.assertEquals(config.getPayloadPool(), 64, "payload pool");
+        Assert.assertEquals(config.getDocumentMode(), "legacy", "document mode");
+        Assert.assertFalse(config.isOffHeap(), "off-heap");
+        Assert.assertNull(config.getJsonTemplate(), "json template");
+        Assert.assertEquals(config.getJsonVariants(), 4096, "json variants");
+        Assert.assertEquals(config.getSizeDistribution(), "fixed", "size distribution");
+        Assert.assertNull(config.getDataset(), "dataset");
+        Assert.assertEquals(config.getDatasetOrder(), "random", "dataset order");
+        Assert.assertEquals(config.getKeyPrefix(), "key_", "key prefix");
+        Assert.assertEquals(config.getKeyLength(), 0, "key length");
+        Assert.assertEquals(config.getErrorSamples(), 5, "error samples");
+        Assert.assertEquals(config.getBatchSize(), 20, "batch size");
+        Assert.assertEquals(config.getBatchConcurrency(), 0, "batch concurrency");
+        Assert.assertEquals(config.getEngine(), "async", "engine");
+        Assert.assertFalse(config.isEnvPerClient(), "env per client");
+        Assert.assertEquals(config.getIoPoolSize(), 0, "io pool size");
+        Assert.assertEquals(config.getComputationPoolSize(), 0, "computation pool size");
+        Assert.assertEquals(config.getRequestBufferSize(), 0, "request buffer size");
+        Assert.assertFalse(config.isClientSweep(), "client sweep");
+        Assert.assertEquals(config.getPartitionIndex(), 0, "partition index");
+        Assert.assertEquals(config.getPartitionCount(), 1, "partition count");
+        Assert.assertEquals(config.getOpTimeout(), 2500L, "op timeout");
+    }
+
+    @Test
+    public void testJsonTemplateImpliesBinary() throws ParseException
+    {
+        GlobalConfig config = GlobalConfig.fromCommandLine(RoadRunner.parseCommandLine(
+            new String[] { "--json-template", JSON_TEMPLATE }));
+        Assert.assertEquals(config.getDocumentMode(), "binary", "document mode");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testJsonTemplateRejectsLegacy() throws ParseException
+    {
+        GlobalConfig.fromCommandLine(RoadRunner.parseCommandLine(
+            new String[] { "--json-template", JSON_TEMPLATE, "--document-mode", "legacy" }));
+    }
+
+    @Test
+    public void testDatasetImpliesBinary() throws ParseException
+    {
+        GlobalConfig config = GlobalConfig.fromCommandLine(RoadRunner.parseCommandLine(
+            new String[] { "--dataset", DATASET }));
+        Assert.assertEquals(config.getDocumentMode(), "binary", "document mode");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDatasetRejectsLegacy() throws ParseException
+    {
+        GlobalConfig.fromCommandLine(RoadRunner.parseCommandLine(
+            new String[] { "--dataset", DATASET, "--document-mode", "legacy" }));
+    }
 }
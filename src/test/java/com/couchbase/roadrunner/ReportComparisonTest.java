@@ -0,0 +1,104 @@
+package com.couchbase.roadrunner;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+import org.apache.commons.cli.ParseException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.couchbase.roadrunner.workloads.Measures;
+import com.couchbase.roadrunner.workloads.Outcome;
+
+public class ReportComparisonTest
+{
+    @Test
+    public void testSameRunDoesNotRegress() throws Exception
+    {
+        ReportComparison.Report run = report(10000, 500);
+        List<ReportComparison.Metric> metrics = new ReportComparison(
+            Collections.singletonList(run), run, 10).compare();
+        // overall and per op throughput, then p50 through max
+        Assert.assertEquals(metrics.size(), 2 + ReportComparison.PERCENTILES.length);
+        for (ReportComparison.Metric metric : metrics)
+        {
+            Assert.assertFalse(metric.isRegression(), metric.toString());
+            Assert.assertEquals(metric.getChange(), 0.0, 0.001);
+        }
+    }
+
+    @Test
+    public void testSlowerCandidateRegresses() throws Exception
+    {
+        List<ReportComparison.Metric> metrics = new ReportComparison(
+            Collections.singletonList(report(10000, 500)), report(8000, 600), 10).compare();
+        ReportComparison.Metric throughput = find(metrics, ReportComparison.ALL_OPS, "ops/s");
+        Assert.assertTrue(throughput.isRegression());
+        Assert.assertEquals(throughput.getChange(), 20.0, 0.001);
+        ReportComparison.Metric p99 = find(metrics, "get", "p99");
+        Assert.assertTrue(p99.isRegression());
+        Assert.assertEquals(p99.getChange(), 20.0, 0.5);
+    }
+
+    @Test
+    public void testChangeWithinNoiseDoesNotRegress() throws Exception
+    {
+        List<ReportComparison.Report> baselines = Arrays.asList(report(10000, 500),
+            report(8500, 560), report(9200, 530));
+        List<ReportComparison.Metric> metrics = new ReportComparison(baselines,
+            report(8000, 570), 10).compare();
+        ReportComparison.Metric throughput = find(metrics, ReportComparison.ALL_OPS, "ops/s");
+        Assert.assertTrue(throughput.getChange() > 10, "worse than the threshold");
+        Assert.assertFalse(throughput.isRegression(), "but within the noise");
+        Assert.assertFalse(find(metrics, "get", "p50").isRegression());
+
+        Assert.assertTrue(find(new ReportComparison(baselines, report(6000, 900), 10).compare(),
+            "get", "p50").isRegression(), "beyond the noise");
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testUnsupportedVersion() throws IOException
+    {
+        ReportComparison.Report.of("old.json", Collections.singletonMap("version", 0L));
+    }
+
+    private static ReportComparison.Metric find(List<ReportComparison.Metric> metrics, String op,
+        String name)
+    {
+        for (ReportComparison.Metric metric : metrics)
+        {
+            if (metric.getOp().equals(op) && metric.getName().equals(name))
+            {
+                return metric;
+            }
+        }
+        throw new AssertionError("No " + name + " of " + op);
+    }
+
+    /**
+     * A report of a 10s run of gets, written as JSON and read back.
+     */
+    private static ReportComparison.Report report(long opsPerSecond, long latency)
+        throws IOException, ParseException
+    {
+        RunSummary summary = new RunSummary(1000, opsPerSecond * 10, 10000);
+        Histogram histogram = new Histogram(Measures.HIGHEST_TRACKABLE_VALUE,
+            Measures.SIGNIFICANT_DIGITS);
+        for (long i = 0; i < 1000; i++)
+        {
+            histogram.recordValue(latency + i * latency / 1000);
+        }
+        summary.getMeasures().put("get", histogram);
+        long[] counts = new long[Outcome.values().length];
+        counts[Outcome.SUCCESS.ordinal()] = opsPerSecond * 10;
+        summary.getOpCounts().put("get", counts);
+
+        GlobalConfig config = GlobalConfig.fromCommandLine(RoadRunner.parseCommandLine(new String[0]));
+        String json = Json.write(RunReport.build(config, summary, summary.getStartTime(), 0));
+        return ReportComparison.Report.of("run.json", (Map<?, ?>) Json.parse(json));
+    }
+}
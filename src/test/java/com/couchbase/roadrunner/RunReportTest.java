@@ -0,0 +1,53 @@
+package com.couchbase.roadrunner;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.couchbase.roadrunner.workloads.Measures;
+
+public class RunReportTest
+{
+    @Test
+    public void testHistogramRoundTrip() throws IOException
+    {
+        Histogram histogram = new Histogram(Measures.HIGHEST_TRACKABLE_VALUE,
+            Measures.SIGNIFICANT_DIGITS);
+        for (long value = 1; value <= 100000; value++)
+        {
+            histogram.recordValue(value);
+        }
+        Histogram decoded = RunReport.decode(RunReport.encode(histogram));
+        Assert.assertEquals(decoded.getTotalCount(), histogram.getTotalCount());
+        Assert.assertEquals(decoded.getValueAtPercentile(99.9), histogram.getValueAtPercentile(99.9));
+        Assert.assertEquals(decoded.getMaxValue(), histogram.getMaxValue());
+    }
+
+    @Test
+    public void testJson()
+    {
+        Map<String, Object> inner = new LinkedHashMap<String, Object>();
+        inner.put("list", Arrays.asList(1, 2.5, null));
+        inner.put("nan", Double.NaN);
+        Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("text", "a \"quoted\"\nline");
+        map.put("flag", true);
+        map.put("inner", inner);
+        map.put("empty", new LinkedHashMap<String, Object>());
+
+        Assert.assertEquals(Json.write(map), "{\n"
+            + "  \"text\": \"a \\\"quoted\\\"\\nline\",\n"
+            + "  \"flag\": true,\n"
+            + "  \"inner\": {\n"
+            + "    \"list\": [1, 2.5, null],\n"
+            + "    \"nan\": null\n"
+            + "  },\n"
+            + "  \"empty\": {}\n"
+            + "}\n");
+    }
+}
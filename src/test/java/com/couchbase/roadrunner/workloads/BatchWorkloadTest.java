@@ -0,0 +1,87 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.couchbase.client.java.Bucket;
+
+import rx.Observable;
+
+public class BatchWorkloadTest
+{
+    private static final int DOCS = 40;
+    private static final int BATCH_SIZE = 10;
+
+    private static WorkloadContext.Builder context(Bucket bucket, List<String> measures)
+    {
+        return new WorkloadContext.Builder()
+            .name("batch")
+            .bucket(bucket)
+            .amount(DOCS)
+            .ratio(1)
+            .batchSize(BATCH_SIZE)
+            .keySpace(new KeySpace(DOCS, KeySpace.SEQUENTIAL, 0, 0, 0))
+            .documentFactory(new Workload.FixedSizeRandomDocumentFactory(16))
+            .metricsSink((identifier, latency, corrected) -> measures.add(identifier));
+    }
+
+    @Test
+    public void testBatchesMeasured()
+    {
+        List<String> measures = new CopyOnWriteArrayList<String>();
+        new BatchWorkload(context(new FakeBucket().bucket(), measures).build()).run();
+        Assert.assertEquals(Collections.frequency(measures, "set"), DOCS);
+        Assert.assertEquals(Collections.frequency(measures, "get"), DOCS);
+        Assert.assertEquals(Collections.frequency(measures, "set" + BatchWorkload.BATCH_SUFFIX),
+            DOCS / BATCH_SIZE);
+        Assert.assertEquals(Collections.frequency(measures, "get" + BatchWorkload.BATCH_SUFFIX),
+            DOCS / BATCH_SIZE);
+    }
+
+    @Test
+    public void testFailedKeysDoNotFailTheBatch()
+    {
+        FakeBucket bucket = new FakeBucket().fail("get", new RuntimeException("get failed"))
+            .failingKeySuffix("7");
+        List<String> measures = new CopyOnWriteArrayList<String>();
+        new BatchWorkload(context(bucket.bucket(), measures).build()).run();
+        Assert.assertEquals(bucket.count("get"), DOCS, "every key fetched");
+        Assert.assertEquals(Collections.frequency(measures, "get" + Measures.FAILED_SUFFIX), DOCS / 10);
+        Assert.assertEquals(Collections.frequency(measures, "get"), DOCS - DOCS / 10);
+        Assert.assertEquals(Collections.frequency(measures, "get" + BatchWorkload.BATCH_SUFFIX),
+            DOCS / BATCH_SIZE);
+        Assert.assertEquals(Collections.frequency(measures,
+            "get" + BatchWorkload.BATCH_SUFFIX + Measures.FAILED_SUFFIX), 0);
+    }
+
+    @Test
+    public void testMaxInFlightCountsKeys()
+    {
+        FakeBucket fake = new FakeBucket();
+        Bucket delegate = fake.bucket();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Bucket slow = (Bucket) Proxy.newProxyInstance(Bucket.class.getClassLoader(),
+            new Class<?>[] { Bucket.class }, (proxy, method, args) -> {
+                Observable<?> result = (Observable<?>) method.invoke(delegate, args);
+                return result.delay(2, TimeUnit.MILLISECONDS)
+                    .doOnSubscribe(() -> maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max))
+                    .doOnTerminate(inFlight::decrementAndGet);
+            });
+
+        new BatchWorkload(context(slow, new CopyOnWriteArrayList<String>())
+            .batchConcurrency(2)
+            .maxInFlight(4)
+            .build()).run();
+        Assert.assertEquals(fake.count("get"), DOCS, "every key fetched");
+        Assert.assertTrue(maxInFlight.get() > 0);
+        Assert.assertTrue(maxInFlight.get() <= 4, "keys in flight: " + maxInFlight.get());
+    }
+}
@@ -0,0 +1,44 @@
+package com.couchbase.roadrunner.workloads;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.couchbase.client.deps.io.netty.buffer.ByteBuf;
+import com.couchbase.client.java.document.BinaryDocument;
+import com.couchbase.client.java.document.Document;
+import com.couchbase.roadrunner.workloads.Workload.FixedSizeRandomDocumentFactory;
+
+public class DocumentModeTest
+{
+    @Test
+    public void testFromName()
+    {
+        Assert.assertEquals(DocumentMode.fromName("legacy"), DocumentMode.LEGACY);
+        Assert.assertEquals(DocumentMode.fromName("binary"), DocumentMode.BINARY);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownName()
+    {
+        DocumentMode.fromName("json");
+    }
+
+    @Test
+    public void testPooledContentSurvivesRelease()
+    {
+        for (boolean offHeap : new boolean[]{false, true})
+        {
+            FixedSizeRandomDocumentFactory factory = new FixedSizeRandomDocumentFactory(128, 1, offHeap);
+            for (int i = 0; i < 3; i++)
+            {
+                Document<?> document = DocumentMode.BINARY.create("key", factory);
+                ByteBuf content = ((BinaryDocument) document).content();
+                Assert.assertEquals(content.readableBytes(), 128);
+                Assert.assertEquals(content.isDirect(), offHeap);
+                // the SDK releases the content once written
+                content.readerIndex(content.writerIndex());
+                content.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import rx.Observable;
+
+public class EngineTest
+{
+    private static final int CHAINS = 50;
+
+    /**
+     * Issues chains completing after a delay, tracking how many are in
+     * flight at once.
+     */
+    private static class CountingWorkload extends Workload
+    {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        CountingWorkload(Engine engine)
+        {
+            super(new WorkloadContext.Builder().name("counting").engine(engine).build());
+        }
+
+        @Override
+        public void run()
+        {
+            startTimer();
+            for (int i = 0; i < CHAINS; i++)
+            {
+                awaitTurn(1);
+                issue(Observable.defer(() -> {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    return Observable.timer(2, TimeUnit.MILLISECONDS)
+                        .doOnCompleted(inFlight::decrementAndGet);
+                }));
+            }
+            awaitCompleted();
+            endTimer();
+        }
+    }
+
+    @Test
+    public void testFromName()
+    {
+        Assert.assertEquals(Engine.fromName("async"), Engine.ASYNC);
+        Assert.assertEquals(Engine.fromName("blocking"), Engine.BLOCKING);
+        Assert.assertEquals(Engine.fromName("virtual"), Engine.VIRTUAL);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownEngine()
+    {
+        Engine.fromName("unknown");
+    }
+
+    @Test
+    public void testBlockingRunsOneChainAtATime()
+    {
+        CountingWorkload workload = new CountingWorkload(Engine.BLOCKING);
+        workload.run();
+        Assert.assertEquals(workload.maxInFlight.get(), 1);
+        Assert.assertEquals(workload.inFlight.get(), 0, "all chains done");
+    }
+
+    @Test
+    public void testAsyncAndVirtualRunChainsConcurrently()
+    {
+        for (Engine engine : new Engine[] { Engine.ASYNC, Engine.VIRTUAL })
+        {
+            CountingWorkload workload = new CountingWorkload(engine);
+            workload.run();
+            Assert.assertTrue(workload.maxInFlight.get() > 1, engine + " in flight: " + workload.maxInFlight.get());
+            Assert.assertEquals(workload.inFlight.get(), 0, engine + " chains done");
+        }
+    }
+}
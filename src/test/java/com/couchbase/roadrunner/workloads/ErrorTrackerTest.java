@@ -0,0 +1,55 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ErrorTrackerTest
+{
+    @Test
+    public void testCountsByOpAndType()
+    {
+        ErrorTracker tracker = new ErrorTracker(0);
+        tracker.record("get", new TimeoutException());
+        tracker.record("get", new TimeoutException());
+        tracker.record("set", new TimeoutException());
+        tracker.record("get", new IllegalStateException());
+
+        Map<String, Long> counts = tracker.getCounts();
+        Assert.assertEquals(counts.size(), 3);
+        Assert.assertEquals(counts.get("get TimeoutException"), Long.valueOf(2));
+        Assert.assertEquals(counts.get("set TimeoutException"), Long.valueOf(1));
+        Assert.assertEquals(counts.get("get IllegalStateException"), Long.valueOf(1));
+    }
+
+    @Test
+    public void testIntervalCounts()
+    {
+        ErrorTracker tracker = new ErrorTracker(0);
+        tracker.record("get", new TimeoutException());
+        tracker.record("set", new TimeoutException());
+        Assert.assertEquals(tracker.getIntervalCounts().size(), 2);
+
+        tracker.record("get", new TimeoutException());
+        Map<String, Long> interval = tracker.getIntervalCounts();
+        Assert.assertEquals(interval.size(), 1, "unchanged counts left out");
+        Assert.assertEquals(interval.get("get TimeoutException"), Long.valueOf(1));
+        Assert.assertTrue(tracker.getIntervalCounts().isEmpty());
+    }
+
+    @Test
+    public void testReset()
+    {
+        ErrorTracker tracker = new ErrorTracker(0);
+        tracker.record("load", new TimeoutException());
+        tracker.getIntervalCounts();
+        tracker.reset();
+        Assert.assertTrue(tracker.getCounts().isEmpty());
+
+        tracker.record("get", new TimeoutException());
+        Assert.assertEquals(tracker.getCounts().size(), 1);
+        Assert.assertEquals(tracker.getIntervalCounts().get("get TimeoutException"), Long.valueOf(1));
+    }
+}
@@ -0,0 +1,120 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import com.couchbase.client.java.Bucket;
+import com.couchbase.client.java.document.Document;
+import com.couchbase.client.java.document.JsonLongDocument;
+
+import rx.Observable;
+
+/**
+ * A bucket answering ops right away out of an in-memory map.
+ *
+ * It is a dynamic proxy, so that it does not depend on the exact methods of
+ * the Bucket interface. Ops can be made to fail or to never answer by op
+ * name, for all keys or for keys ending with a given suffix.
+ */
+class FakeBucket implements InvocationHandler
+{
+    final Map<String, Document<?>> documents = new ConcurrentHashMap<String, Document<?>>();
+
+    /** The ops run, as "op key". */
+    final List<String> calls = new CopyOnWriteArrayList<String>();
+
+    private final Map<String, Throwable> failures = new ConcurrentHashMap<String, Throwable>();
+    private final Set<String> hanging = new CopyOnWriteArraySet<String>();
+    private volatile String failingKeySuffix = "";
+
+    /**
+     * Make an op fail with the given error, for the keys ending with the
+     * failing key suffix (all keys by default).
+     */
+    FakeBucket fail(String op, Throwable error)
+    {
+        failures.put(op, error);
+        return this;
+    }
+
+    /**
+     * Make an op never answer, like an op sent to an unreachable node, for
+     * the keys ending with the failing key suffix (all keys by default).
+     */
+    FakeBucket hang(String op)
+    {
+        hanging.add(op);
+        return this;
+    }
+
+    FakeBucket failingKeySuffix(String suffix)
+    {
+        failingKeySuffix = suffix;
+        return this;
+    }
+
+    Bucket bucket()
+    {
+        return (Bucket) Proxy.newProxyInstance(Bucket.class.getClassLoader(),
+            new Class<?>[] { Bucket.class }, this);
+    }
+
+    int count(String op)
+    {
+        int count = 0;
+        for (String call : calls)
+        {
+            if (call.startsWith(op + " "))
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args)
+    {
+        String op = method.getName();
+        if (args == null || args.length == 0)
+        {
+            return Observable.just(true);
+        }
+        Document<?> document = args[0] instanceof Document ? (Document<?>) args[0] : null;
+        String key = document == null ? (String) args[0] : document.id();
+        calls.add(op + " " + key);
+
+        Throwable failure = failures.get(op);
+        if (failure != null && key.endsWith(failingKeySuffix))
+        {
+            return Observable.error(failure);
+        }
+        if (hanging.contains(op) && key.endsWith(failingKeySuffix))
+        {
+            return Observable.never();
+        }
+        switch (op)
+        {
+            case "get":
+                Document<?> found = documents.get(key);
+                return found == null ? Observable.empty() : Observable.just(found);
+            case "remove":
+                Document<?> removed = documents.remove(key);
+                return removed == null ? Observable.empty() : Observable.just(removed);
+            case "touch":
+                return Observable.just(true);
+            case "counter":
+                return Observable.just(JsonLongDocument.create(key, 1L));
+            default:
+                documents.put(key, document);
+                return Observable.just(document);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.couchbase.client.java.error.CASMismatchException;
+
+public class GetsCasWorkloadTest
+{
+    private static final int DOCS = 10;
+
+    private static List<String> run(FakeBucket bucket)
+    {
+        List<String> measures = new CopyOnWriteArrayList<String>();
+        run(bucket, measures, 0);
+        return measures;
+    }
+
+    private static GetsCasWorkload run(FakeBucket bucket, List<String> measures, long opTimeout)
+    {
+        GetsCasWorkload workload = new GetsCasWorkload(new WorkloadContext.Builder()
+            .name("getscas")
+            .bucket(bucket.bucket())
+            .amount(DOCS)
+            .ratio(2)
+            .opTimeout(opTimeout)
+            .documentFactory(new Workload.FixedSizeRandomDocumentFactory(16))
+            .metricsSink((identifier, latency, corrected) -> measures.add(identifier))
+            .build());
+        workload.run();
+        return workload;
+    }
+
+    @Test
+    public void testCasMeasured()
+    {
+        List<String> measures = run(new FakeBucket());
+        Assert.assertEquals(Collections.frequency(measures, "cas"), DOCS * 2);
+        Assert.assertEquals(Collections.frequency(measures, "cas" + Measures.FAILED_SUFFIX), 0);
+    }
+
+    @Test
+    public void testFailedCasMeasuredApart()
+    {
+        FakeBucket bucket = new FakeBucket().fail("replace", new CASMismatchException());
+        List<String> measures = run(bucket);
+        Assert.assertEquals(Collections.frequency(measures, "cas"), 0, "failed cas in the success histogram");
+        Assert.assertEquals(Collections.frequency(measures, "cas" + Measures.FAILED_SUFFIX), DOCS * 2);
+        Assert.assertEquals(bucket.count("replace"), DOCS * 2, "every cas issued");
+        Assert.assertEquals(Collections.frequency(measures, "gets"), DOCS * 2);
+    }
+
+    @Test(timeOut = 10000)
+    public void testHangingCasTimesOut()
+    {
+        FakeBucket bucket = new FakeBucket().hang("replace");
+        List<String> measures = new CopyOnWriteArrayList<String>();
+        GetsCasWorkload workload = run(bucket, measures, 50);
+        Assert.assertEquals(workload.getOpCounters().get("cas", Outcome.TIMEOUT), DOCS * 2);
+        Assert.assertEquals(workload.getOpCounters().get("cas", Outcome.SUCCESS), 0);
+        Assert.assertEquals(Collections.frequency(measures, "cas" + Measures.FAILED_SUFFIX), DOCS * 2);
+        Assert.assertEquals(Collections.frequency(measures, "cas"), 0);
+    }
+}
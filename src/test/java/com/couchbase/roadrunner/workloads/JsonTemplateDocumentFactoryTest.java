@@ -0,0 +1,52 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.couchbase.client.deps.com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+
+public class JsonTemplateDocumentFactoryTest
+{
+    private static final String TEMPLATE = "{\"id\": ${int:1:1000}, \"active\": ${bool}, "
+                    + "\"created\": ${timestamp}, \"name\": \"${words:1:3}\", \"code\": \"${string:4:8}\", "
+                    + "\"address\": {\"city\": \"${words:1:1}\"}, \"tags\": ${array:0:4:words:1:2}, "
+                    + "\"scores\": ${array:1:3:int:0:9}}";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testVariantsAreValidJson() throws Exception
+    {
+        JsonTemplateDocumentFactory factory = new JsonTemplateDocumentFactory(TEMPLATE, 100, false, new Random(42));
+        ObjectMapper mapper = new ObjectMapper();
+        for (int i = 0; i < 100; i++)
+        {
+            String json = new String(factory.getDocument().getPayload(), Charsets.UTF_8);
+            Map<String, Object> document = mapper.readValue(json, Map.class);
+            long id = ((Number) document.get("id")).longValue();
+            Assert.assertTrue(id >= 1 && id <= 1000, "id " + id);
+            String code = (String) document.get("code");
+            Assert.assertTrue(code.length() >= 4 && code.length() <= 8, "code " + code);
+            Assert.assertTrue(((List<Object>) document.get("tags")).size() <= 4, json);
+            Assert.assertFalse(((List<Object>) document.get("scores")).isEmpty(), json);
+        }
+    }
+
+    @Test
+    public void testContentMatchesDocuments()
+    {
+        JsonTemplateDocumentFactory factory = new JsonTemplateDocumentFactory("{\"a\": ${int:5:5}}", 1, true,
+                        new Random());
+        Assert.assertEquals(factory.getContent().toString(Charsets.UTF_8), "{\"a\": 5}");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownGenerator()
+    {
+        new JsonTemplateDocumentFactory("{\"a\": ${float:0:1}}", 1, false, new Random());
+    }
+}
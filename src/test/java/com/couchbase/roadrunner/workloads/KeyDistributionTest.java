@@ -0,0 +1,79 @@
+package com.couchbase.roadrunner.workloads;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class KeyDistributionTest
+{
+    private static final long SIZE = 1000;
+    private static final int SAMPLES = 100000;
+
+    @Test
+    public void testIndexesStayInKeySpace()
+    {
+        KeyDistribution.Zipfian recency = new KeyDistribution.Zipfian(SIZE, 0.99, false);
+        KeyDistribution[] distributions = new KeyDistribution[]{//
+                        new KeyDistribution.Uniform(SIZE), //
+                        new KeyDistribution.Zipfian(SIZE, 0.99, true), //
+                        recency, //
+                        new KeyDistribution.Hotspot(SIZE, 0.2, 0.8), //
+                        new KeyDistribution.Sequential(SIZE, 3, 4), //
+                        new KeyDistribution.Latest(recency, 1, 2) //
+                        };
+        for (KeyDistribution distribution : distributions)
+        {
+            for (int i = 0; i < SAMPLES; i++)
+            {
+                long index = distribution.nextIndex();
+                Assert.assertTrue(index >= 0 && index < SIZE,
+                                distribution.getClass().getSimpleName() + " index " + index);
+            }
+        }
+    }
+
+    @Test
+    public void testSequentialThreadsCoverKeySpace()
+    {
+        int threads = 4;
+        boolean[] seen = new boolean[(int) SIZE];
+        for (int thread = 0; thread < threads; thread++)
+        {
+            KeyDistribution sequential = new KeyDistribution.Sequential(SIZE, thread, threads);
+            for (int i = 0; i < SIZE / threads; i++)
+            {
+                int index = (int) sequential.nextIndex();
+                Assert.assertFalse(seen[index], "index picked twice: " + index);
+                seen[index] = true;
+            }
+        }
+    }
+
+    @Test
+    public void testZipfianFavorsLowRanks()
+    {
+        KeyDistribution.Zipfian zipfian = new KeyDistribution.Zipfian(SIZE, 0.99, false);
+        int[] counts = new int[(int) SIZE];
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            counts[(int) zipfian.nextIndex()]++;
+        }
+        Assert.assertTrue(counts[0] > counts[1], "rank 0 more popular than rank 1");
+        Assert.assertTrue(counts[1] > counts[100], "rank 1 more popular than rank 100");
+        Assert.assertTrue(counts[0] > SAMPLES / 10, "rank 0 share: " + counts[0]);
+    }
+
+    @Test
+    public void testHotspotSendsOpsToHotSet()
+    {
+        KeyDistribution hotspot = new KeyDistribution.Hotspot(SIZE, 0.2, 0.8);
+        int hot = 0;
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            if (hotspot.nextIndex() < SIZE / 5)
+            {
+                hot++;
+            }
+        }
+        Assert.assertEquals(hot / (double) SAMPLES, 0.8, 0.02, "ops to hot set");
+    }
+}
@@ -0,0 +1,77 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the keys generated per second per thread by random UUIDs, which
+ * workloads used before, and by the {@link RandomKeyGenerator}.
+ *
+ * Run with the test classpath, optionally giving the number of threads:
+ * java com.couchbase.roadrunner.workloads.KeyGeneratorBenchmark 4
+ */
+public class KeyGeneratorBenchmark
+{
+    private static final long DURATION_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    public static void main(String[] args) throws Exception
+    {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        for (int round = 0; round < 2; round++)
+        {
+            for (int t : new int[] { 1, threads })
+            {
+                report("uuid", t, () -> () -> UUID.randomUUID().toString());
+                report("random", t, () -> new RandomKeyGenerator(KeySpace.KEY_PREFIX, 0));
+            }
+        }
+    }
+
+    private interface GeneratorFactory
+    {
+        KeyGenerator create();
+    }
+
+    private static void report(String name, int threads, GeneratorFactory factory) throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> counts = new ArrayList<Future<Long>>();
+        for (int i = 0; i < threads; i++)
+        {
+            counts.add(executor.submit(new Callable<Long>()
+            {
+                @Override
+                public Long call()
+                {
+                    KeyGenerator generator = factory.create();
+                    long count = 0;
+                    int blackhole = 0;
+                    long end = System.nanoTime() + DURATION_NANOS;
+                    while (System.nanoTime() < end)
+                    {
+                        for (int j = 0; j < 1000; j++)
+                        {
+                            blackhole += generator.nextKey().length();
+                        }
+                        count += 1000;
+                    }
+                    return blackhole == 0 ? 0 : count;
+                }
+            }));
+        }
+        long total = 0;
+        for (Future<Long> count : counts)
+        {
+            total += count.get();
+        }
+        executor.shutdown();
+        long perThread = total / threads * TimeUnit.SECONDS.toNanos(1) / DURATION_NANOS;
+        System.out.println(name + " threads=" + threads + " keys/s/thread=" + perThread);
+    }
+}
@@ -0,0 +1,48 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class KeyGeneratorTest
+{
+    @Test
+    public void testRandomKeysHavePrefixAndLength()
+    {
+        KeyGenerator generator = new RandomKeyGenerator("user::", 24);
+        Set<String> keys = new HashSet<String>();
+        for (int i = 0; i < 1000; i++)
+        {
+            String key = generator.nextKey();
+            Assert.assertTrue(key.matches("user::[0-9a-f]{18}"), "key " + key);
+            keys.add(key);
+        }
+        Assert.assertEquals(keys.size(), 1000, "distinct keys");
+    }
+
+    @Test
+    public void testRandomKeysDefaultLength()
+    {
+        String key = new RandomKeyGenerator("key_", 0).nextKey();
+        Assert.assertEquals(key.length(), 4 + RandomKeyGenerator.DEFAULT_RANDOM_DIGITS, "key " + key);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRandomKeysTooShort()
+    {
+        new RandomKeyGenerator("user::", 10);
+    }
+
+    @Test
+    public void testKeySpacePadsIndexes()
+    {
+        KeySpace padded = new KeySpace(1000, "uniform", 0.99, 0.2, 0.8, "user::", 12);
+        Assert.assertEquals(padded.keyFor(42), "user::000042");
+        Assert.assertSame(padded.keyFor(42), padded.keyFor(42), "cached key");
+
+        KeySpace unpadded = new KeySpace(1000, "uniform", 0.99, 0.2, 0.8, "key_", 0);
+        Assert.assertEquals(unpadded.keyFor(42), "key_42");
+    }
+}
@@ -0,0 +1,61 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class MappedDatasetDocumentFactoryTest
+{
+    @Test
+    public void testServesEveryLine() throws Exception
+    {
+        File dataset = dataset("{\"a\":1}\n{\"b\":2}\r\n\n{\"c\":3}");
+        MappedDatasetDocumentFactory factory = new MappedDatasetDocumentFactory(dataset.getPath(),
+                        MappedDatasetDocumentFactory.ORDER_SEQUENTIAL);
+        Assert.assertEquals(factory.getCount(), 3);
+        Set<String> documents = new HashSet<String>();
+        for (int i = 0; i < 3; i++)
+        {
+            documents.add(factory.getContent().toString(Charsets.UTF_8));
+        }
+        Assert.assertEquals(documents.size(), 3, documents.toString());
+        Assert.assertTrue(documents.contains("{\"b\":2}"), documents.toString());
+        Assert.assertEquals(new String(factory.getDocument().getPayload(), Charsets.UTF_8).charAt(0), '{');
+    }
+
+    @Test
+    public void testReusesIndex() throws Exception
+    {
+        File dataset = dataset("one\ntwo\n");
+        new MappedDatasetDocumentFactory(dataset.getPath(), MappedDatasetDocumentFactory.ORDER_RANDOM);
+        File index = new File(dataset.getPath() + ".idx");
+        Assert.assertTrue(index.isFile());
+        long indexed = index.lastModified();
+
+        MappedDatasetDocumentFactory factory = new MappedDatasetDocumentFactory(dataset.getPath(),
+                        MappedDatasetDocumentFactory.ORDER_RANDOM);
+        Assert.assertEquals(index.lastModified(), indexed);
+        Assert.assertEquals(factory.content(1).toString(Charsets.UTF_8), "two");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testEmptyDataset() throws Exception
+    {
+        new MappedDatasetDocumentFactory(dataset("\n\n").getPath(), MappedDatasetDocumentFactory.ORDER_RANDOM);
+    }
+
+    private static File dataset(String content) throws Exception
+    {
+        File dataset = File.createTempFile("dataset", ".jsonl");
+        dataset.deleteOnExit();
+        new File(dataset.getPath() + ".idx").deleteOnExit();
+        Files.write(content, dataset, Charsets.UTF_8);
+        return dataset;
+    }
+}
@@ -0,0 +1,32 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MeasuresTest
+{
+    @Test
+    public void testClosedLoopHasNoCorrected()
+    {
+        Measures measures = new Measures();
+        measures.record("get", 1000, 2000);
+        Map<String, Histogram> histograms = measures.getHistograms();
+        Assert.assertEquals(histograms.keySet().size(), 1, histograms.keySet().toString());
+        Assert.assertEquals(histograms.get("get").getTotalCount(), 1);
+    }
+
+    @Test
+    public void testScheduledRecordsCorrected()
+    {
+        Measures measures = new Measures(true);
+        measures.record("get", 1000, 2000000);
+        measures.record("set", 1000, -1);
+        Map<String, Histogram> histograms = measures.getHistograms();
+        Assert.assertEquals(histograms.get("get").getTotalCount(), 1);
+        Assert.assertEquals(histograms.get("get" + Measures.CORRECTED_SUFFIX).getMaxValue(), 2000, 2);
+        Assert.assertFalse(histograms.containsKey("set" + Measures.CORRECTED_SUFFIX), "set corrected");
+    }
+}
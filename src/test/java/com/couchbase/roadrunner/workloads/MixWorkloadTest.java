@@ -0,0 +1,36 @@
+package com.couchbase.roadrunner.workloads;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class MixWorkloadTest
+{
+    private static final int OPS = 50;
+
+    private static FakeBucket run(String mix)
+    {
+        FakeBucket bucket = new FakeBucket();
+        MixWorkload workload = new MixWorkload(new WorkloadContext.Builder()
+            .name("mix")
+            .bucket(bucket.bucket())
+            .amount(OPS)
+            .mix(new OperationMix(mix))
+            .documentFactory(new Workload.FixedSizeRandomDocumentFactory(16))
+            .build());
+        workload.run();
+        return bucket;
+    }
+
+    @Test
+    public void testCounterKeysApart()
+    {
+        FakeBucket bucket = run("upsert:1,counter:1");
+        Assert.assertTrue(bucket.count("counter") > 0, "no counter op run");
+        Assert.assertTrue(bucket.count("upsert") > 0, "no upsert op run");
+        for (String call : bucket.calls)
+        {
+            String key = call.substring(call.indexOf(' ') + 1);
+            Assert.assertEquals(call.startsWith("counter "), key.endsWith(MixWorkload.COUNTER_SUFFIX), call);
+        }
+    }
+}
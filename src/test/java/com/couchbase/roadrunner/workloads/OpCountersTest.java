@@ -0,0 +1,68 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.couchbase.client.core.BackpressureException;
+import com.couchbase.client.java.error.CASMismatchException;
+import com.couchbase.client.java.error.DocumentAlreadyExistsException;
+
+public class OpCountersTest
+{
+    @Test
+    public void testConcurrentIncrements() throws InterruptedException
+    {
+        OpCounters counters = new OpCounters();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++)
+        {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100000; j++)
+                {
+                    counters.increment("get", Outcome.SUCCESS);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        Assert.assertEquals(counters.get("get", Outcome.SUCCESS), 400000L);
+        Assert.assertEquals(counters.get("get", Outcome.TIMEOUT), 0L);
+        Assert.assertEquals(counters.get("set", Outcome.SUCCESS), 0L);
+    }
+
+    @Test
+    public void testMerge()
+    {
+        OpCounters first = new OpCounters();
+        first.increment("get", Outcome.SUCCESS);
+        first.increment("get", Outcome.NOT_FOUND);
+        OpCounters second = new OpCounters();
+        second.increment("get", Outcome.SUCCESS);
+        second.increment("set", Outcome.TIMEOUT);
+
+        Map<String, long[]> merged = new HashMap<String, long[]>();
+        OpCounters.merge(merged, first.getCounts());
+        OpCounters.merge(merged, second.getCounts());
+        Assert.assertEquals(merged.get("get")[Outcome.SUCCESS.ordinal()], 2L);
+        Assert.assertEquals(merged.get("get")[Outcome.NOT_FOUND.ordinal()], 1L);
+        Assert.assertEquals(merged.get("set")[Outcome.TIMEOUT.ordinal()], 1L);
+        Assert.assertEquals(first.get("get", Outcome.SUCCESS), 1L, "counts left untouched");
+    }
+
+    @Test
+    public void testOutcomeOfErrors()
+    {
+        Assert.assertEquals(Outcome.of(new CASMismatchException()), Outcome.CAS_MISMATCH);
+        Assert.assertEquals(Outcome.of(new DocumentAlreadyExistsException()), Outcome.EXISTS);
+        Assert.assertEquals(Outcome.of(new RuntimeException(new TimeoutException())), Outcome.TIMEOUT);
+        Assert.assertEquals(Outcome.of(new BackpressureException()), Outcome.BACKPRESSURE);
+        Assert.assertEquals(Outcome.of(new IllegalStateException()), Outcome.OTHER);
+    }
+}
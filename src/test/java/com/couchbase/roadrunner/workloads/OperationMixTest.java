@@ -0,0 +1,64 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class OperationMixTest
+{
+    private static final int SAMPLES = 200000;
+
+    @Test
+    public void testPicksFollowWeights()
+    {
+        OperationMix mix = new OperationMix("get:70,upsert:20,counter:5,touch:5,remove:0");
+        Map<OperationMix.Op, Integer> counts = new EnumMap<OperationMix.Op, Integer>(OperationMix.Op.class);
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            OperationMix.Op op = mix.next();
+            Integer count = counts.get(op);
+            counts.put(op, count == null ? 1 : count + 1);
+        }
+        assertShare(counts, OperationMix.Op.GET, 0.70);
+        assertShare(counts, OperationMix.Op.UPSERT, 0.20);
+        assertShare(counts, OperationMix.Op.COUNTER, 0.05);
+        assertShare(counts, OperationMix.Op.TOUCH, 0.05);
+        Assert.assertNull(counts.get(OperationMix.Op.REMOVE), "remove has no weight");
+    }
+
+    @Test
+    public void testSingleOp()
+    {
+        OperationMix mix = new OperationMix(" append : 3 ");
+        for (int i = 0; i < 1000; i++)
+        {
+            Assert.assertEquals(mix.next(), OperationMix.Op.APPEND);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownOp()
+    {
+        new OperationMix("get:50,delete:50");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDuplicateOp()
+    {
+        new OperationMix("get:50,get:50");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNoWeight()
+    {
+        new OperationMix("get:0");
+    }
+
+    private static void assertShare(Map<OperationMix.Op, Integer> counts, OperationMix.Op op, double share)
+    {
+        double actual = counts.get(op) / (double) SAMPLES;
+        Assert.assertEquals(actual, share, 0.01, op.id() + " share");
+    }
+}
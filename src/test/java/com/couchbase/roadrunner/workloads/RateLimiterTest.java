@@ -0,0 +1,49 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class RateLimiterTest
+{
+    private static final long RATE = 200000;
+
+    @Test
+    public void testAllotmentIsMultipleOfOps()
+    {
+        RateLimiter limiter = new RateLimiter(RATE);
+        Assert.assertEquals(limiter.allotmentFor(1), 20, "allotment for single ops");
+        Assert.assertEquals(limiter.allotmentFor(51), 51, "allotment for 51 ops");
+        Assert.assertEquals(limiter.allotmentFor(7), 21, "allotment for 7 ops");
+    }
+
+    @Test
+    public void testSchedulesShareTheRate()
+    {
+        RateLimiter limiter = new RateLimiter(RATE);
+        OpenLoopSchedule first = limiter.newSchedule();
+        OpenLoopSchedule second = limiter.newSchedule();
+        limiter.start();
+
+        long start = System.nanoTime();
+        long previous = 0;
+        for (int i = 0; i < 20000; i++)
+        {
+            long intended = (i % 2 == 0 ? first : second).next(1);
+            Assert.assertTrue(System.nanoTime() >= intended, "waited for intended start");
+            previous = Math.max(previous, intended);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        // 20000 ops at 200k ops/s take 100ms, no matter how many schedules share them
+        Assert.assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(95), "elapsed " + elapsed);
+        Assert.assertTrue(previous - start >= TimeUnit.MILLISECONDS.toNanos(95), "last intended start");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testRejectsNonPositiveRate()
+    {
+        new RateLimiter(0);
+    }
+}
@@ -0,0 +1,67 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.io.File;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+public class SizeDistributionTest
+{
+    private static final int SAMPLES = 100000;
+
+    @Test
+    public void testSizesStayInRange() throws Exception
+    {
+        SizeDistribution[] distributions = new SizeDistribution[]{//
+                        SizeDistribution.fromSpec("fixed", 1000), //
+                        SizeDistribution.fromSpec("uniform:200:2000", 1000), //
+                        SizeDistribution.fromSpec("normal:1000:400", 1000), //
+                        new SizeDistribution.Histogram(new int[]{1024, 4096, 2 << 20}, new double[]{70, 25, 5}) //
+                        };
+        for (SizeDistribution distribution : distributions)
+        {
+            for (int i = 0; i < SAMPLES; i++)
+            {
+                int size = distribution.nextSize();
+                Assert.assertTrue(size >= 1 && size <= distribution.getMaxSize(),
+                                distribution.getClass().getSimpleName() + " size " + size);
+            }
+        }
+    }
+
+    @Test
+    public void testHistogramFollowsWeights() throws Exception
+    {
+        File file = File.createTempFile("sizes", ".txt");
+        file.deleteOnExit();
+        Files.write("# upper bound, weight\n1024 80\n\n8192 20\n", file, Charsets.UTF_8);
+        SizeDistribution histogram = SizeDistribution.fromSpec("histogram:" + file.getPath(), 1000);
+        int small = 0;
+        for (int i = 0; i < SAMPLES; i++)
+        {
+            if (histogram.nextSize() <= 1024)
+            {
+                small++;
+            }
+        }
+        Assert.assertEquals(small / (double) SAMPLES, 0.8, 0.01);
+        Assert.assertEquals(histogram.getMaxSize(), 8192);
+    }
+
+    @Test
+    public void testSizeBuckets()
+    {
+        Assert.assertEquals(Measures.sizeBucketSuffix(Measures.sizeBucket(1)), "[0-1KB)");
+        Assert.assertEquals(Measures.sizeBucketSuffix(Measures.sizeBucket(1024)), "[1KB-4KB)");
+        Assert.assertEquals(Measures.sizeBucketSuffix(Measures.sizeBucket(2 << 20)), "[1MB+]");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownDistribution() throws Exception
+    {
+        SizeDistribution.fromSpec("pareto:1:2", 1000);
+    }
+}
@@ -0,0 +1,76 @@
+package com.couchbase.roadrunner.workloads;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class WorkloadCompletionTest
+{
+    private static final int OPS = 20;
+
+    /**
+     * Issues ops completing on other threads, the first ones last.
+     */
+    private static class DelayedWorkload extends Workload
+    {
+        private final AtomicInteger done = new AtomicInteger();
+        private volatile int doneWhenReturned = -1;
+
+        DelayedWorkload()
+        {
+            super(new WorkloadContext.Builder().name("delayed").build());
+        }
+
+        @Override
+        public void run()
+        {
+            startTimer();
+            for (int i = 0; i < OPS; i++)
+            {
+                awaitTurn(1);
+                long delay = (OPS - i) * 5;
+                new Thread(() -> {
+                    try
+                    {
+                        Thread.sleep(delay);
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    }
+                    done.incrementAndGet();
+                    completed();
+                }).start();
+            }
+            awaitCompleted();
+            endTimer();
+            doneWhenReturned = done.get();
+        }
+    }
+
+    @Test
+    public void testRunEndsOnceAllOpsAreDone()
+    {
+        DelayedWorkload workload = new DelayedWorkload();
+        workload.run();
+        Assert.assertEquals(workload.doneWhenReturned, OPS, "ops done when the run returned");
+    }
+
+    @Test
+    public void testRunWithoutOpsEnds()
+    {
+        Workload workload = new Workload(new WorkloadContext.Builder().name("empty").build())
+        {
+            @Override
+            public void run()
+            {
+                startTimer();
+                awaitCompleted();
+                endTimer();
+            }
+        };
+        workload.run();
+        Assert.assertFalse(workload.totalElapsed().isRunning());
+    }
+}
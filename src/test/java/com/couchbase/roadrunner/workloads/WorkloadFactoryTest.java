@@ -0,0 +1,24 @@
+package com.couchbase.roadrunner.workloads;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class WorkloadFactoryTest
+{
+    @Test
+    public void testBuiltInWorkloadsAreFound()
+    {
+        String[] names = new String[]{GetSetWorkload.NAME, GetsCasWorkload.NAME, LoadWorkload.NAME, MixWorkload.NAME, BatchWorkload.NAME};
+        for (String name : names)
+        {
+            Assert.assertEquals(WorkloadFactory.getWorkload(name).getName(), name);
+        }
+        Assert.assertTrue(WorkloadFactory.getWorkloadNames().contains(GetSetWorkload.NAME));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testUnknownWorkload()
+    {
+        WorkloadFactory.getWorkload("unknown");
+    }
+}